@@ -0,0 +1,54 @@
+package com.otisliddy.fiveinarow.game;
+
+/**
+ * Positions shared by the benchmarks. Boards are filled with a pattern in which neither player has 3 discs in-a-row in any direction, so a
+ * full board is a draw for any variant needing at least 3 in-a-row, and every line check has to look at the whole board.
+ */
+final class BenchmarkBoards {
+
+    private BenchmarkBoards() {
+    }
+
+    /**
+     * Get the variant to benchmark.
+     *
+     * @param variant
+     *            {@code default} for the variant set by the {@code inarow.*} system properties, or a variant such as {@code 6x9x5}.
+     * @return the variant.
+     */
+    static Variant variant(String variant) {
+        return "default".equals(variant) ? Variant.defaultVariant() : Variant.parse(variant);
+    }
+
+    /**
+     * Get the player ID of the disc at a position in the pattern.
+     *
+     * @param row
+     *            the row index, starting at 0.
+     * @param column
+     *            the column index, starting at 0.
+     * @return the player ID, 1 or 2.
+     */
+    static int owner(int row, int column) {
+        return (column / 2 + row) % 2 + 1;
+    }
+
+    /**
+     * Fill the bottom rows of a game with the pattern, stopping one disc short of the total.
+     *
+     * @param gameState
+     *            the game, which must be empty.
+     * @param numRows
+     *            the number of rows to fill.
+     * @param numDiscs
+     *            the maximum number of discs to add.
+     */
+    static void fill(GameState gameState, int numRows, int numDiscs) {
+        final int numColumns = gameState.getGrid()[0].length;
+        for (int row = 0; row < numRows; row++) {
+            for (int column = 0; column < numColumns && gameState.getMoveCount() < numDiscs; column++) {
+                gameState.tryAddDisc(column + 1, owner(row, column));
+            }
+        }
+    }
+}
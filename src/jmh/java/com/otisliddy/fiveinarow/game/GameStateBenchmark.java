@@ -0,0 +1,122 @@
+package com.otisliddy.fiveinarow.game;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.otisliddy.fiveinarow.exception.IllegalMoveException;
+
+/**
+ * Benchmarks of the move path through {@link GameState}: legal, illegal, winning and drawing moves. Each move that changes the game is taken
+ * back with {@link GameState#undoDisc(int)} in the same operation, so every operation starts from the same position and the allocations
+ * reported by the GC profiler are those of the move alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameStateBenchmark {
+
+    @Param("default")
+    private String variant;
+
+    private GameState midGame;
+    private int legalColumn;
+    private int legalPlayerId;
+    private GameState winning;
+    private int winningColumn;
+    private GameState drawing;
+    private int drawingColumn;
+    private int drawingPlayerId;
+    private GameState fullColumn;
+
+    @Setup
+    public void setup() {
+        final Variant gameVariant = BenchmarkBoards.variant(variant);
+        final int numRows = gameVariant.getNumRows();
+        final int numColumns = gameVariant.getNumColumns();
+        final int inARow = gameVariant.getInARow();
+
+        midGame = gameVariant.newGameState();
+        BenchmarkBoards.fill(midGame, numRows / 2, Integer.MAX_VALUE);
+        legalColumn = (numColumns + 1) / 2;
+        legalPlayerId = BenchmarkBoards.owner(midGame.getHeight(legalColumn), legalColumn - 1);
+
+        // Player 1 needs one more disc, on top of a column if the board is tall enough or else along the bottom row.
+        winning = gameVariant.newGameState();
+        for (int i = 0; i < inARow - 1; i++) {
+            winning.tryAddDisc(numRows >= inARow ? 1 : i + 1, 1);
+        }
+        winningColumn = numRows >= inARow ? 1 : inARow;
+
+        drawing = gameVariant.newGameState();
+        BenchmarkBoards.fill(drawing, numRows, numRows * numColumns - 1);
+        drawingColumn = numColumns;
+        drawingPlayerId = BenchmarkBoards.owner(numRows - 1, numColumns - 1);
+
+        fullColumn = gameVariant.newGameState();
+        for (int row = 0; row < numRows; row++) {
+            fullColumn.tryAddDisc(1, BenchmarkBoards.owner(row, 0));
+        }
+    }
+
+    @Benchmark
+    public int tryAddDiscLegal() {
+        final int result = midGame.tryAddDisc(legalColumn, legalPlayerId);
+        midGame.undoDisc(legalColumn);
+        return result;
+    }
+
+    @Benchmark
+    public GameState addDiscLegal() throws IllegalMoveException {
+        midGame.addDisc(legalColumn, legalPlayerId);
+        midGame.undoDisc(legalColumn);
+        return midGame;
+    }
+
+    @Benchmark
+    public int tryAddDiscColumnOutOfRange() {
+        return midGame.tryAddDisc(0, 1);
+    }
+
+    @Benchmark
+    public int tryAddDiscColumnFull() {
+        return fullColumn.tryAddDisc(1, 1);
+    }
+
+    @Benchmark
+    public Object addDiscColumnFull() {
+        try {
+            fullColumn.addDisc(1, 1);
+            return null;
+        } catch (IllegalMoveException exception) {
+            return exception;
+        }
+    }
+
+    @Benchmark
+    public int tryAddDiscWinning() {
+        final int result = winning.tryAddDisc(winningColumn, 1);
+        winning.undoDisc(winningColumn);
+        return result;
+    }
+
+    @Benchmark
+    public int tryAddDiscDrawing() {
+        final int result = drawing.tryAddDisc(drawingColumn, drawingPlayerId);
+        drawing.undoDisc(drawingColumn);
+        return result;
+    }
+}
@@ -0,0 +1,70 @@
+package com.otisliddy.fiveinarow.game;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.otisliddy.fiveinarow.exception.IllegalMove;
+
+/**
+ * Benchmarks of the Jackson serialisation of the messages sent to clients, with the {@link GameStateCodec} binary encoding of a
+ * {@link GameState} for comparison.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerialisationBenchmark {
+
+    @Param("default")
+    private String variant;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private GameState gameState;
+    private Player player;
+    private IllegalMove illegalMove;
+
+    @Setup
+    public void setup() {
+        final Variant gameVariant = BenchmarkBoards.variant(variant);
+        gameState = gameVariant.newGameState();
+        BenchmarkBoards.fill(gameState, gameVariant.getNumRows() / 2, Integer.MAX_VALUE);
+        player = new Player("player 1", 1, 42);
+        gameState.setPlayerToMove(player);
+        illegalMove = new IllegalMove("No more discs may be added to column 1 because it is full", 1);
+    }
+
+    @Benchmark
+    public byte[] writeGameState() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(gameState);
+    }
+
+    @Benchmark
+    public byte[] encodeGameState() {
+        return GameStateCodec.encode(gameState);
+    }
+
+    @Benchmark
+    public byte[] writePlayer() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(player);
+    }
+
+    @Benchmark
+    public byte[] writeIllegalMove() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(illegalMove);
+    }
+}
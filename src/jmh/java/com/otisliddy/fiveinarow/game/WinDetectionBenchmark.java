@@ -0,0 +1,87 @@
+package com.otisliddy.fiveinarow.game;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of win detection on empty, half full and full boards: {@link Bitboard#hasLine(int, int)} looks at the whole board, while
+ * {@link Bitboard#hasLineThrough(int, int, int, int)} only looks around the last disc, as on the move path. None of the boards has a line,
+ * which is the slowest case for both.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WinDetectionBenchmark {
+
+    @Param("default")
+    private String variant;
+
+    private int inARow;
+    private Bitboard empty;
+    private Bitboard midGame;
+    private Bitboard full;
+    private int midGameRow;
+    private int fullRow;
+
+    @Setup
+    public void setup() {
+        final Variant gameVariant = BenchmarkBoards.variant(variant);
+        final int numRows = gameVariant.getNumRows();
+        final int numColumns = gameVariant.getNumColumns();
+        inARow = gameVariant.getInARow();
+        empty = new Bitboard(numRows, numColumns);
+        midGame = board(numRows, numColumns, numRows / 2);
+        full = board(numRows, numColumns, numRows);
+        midGameRow = Math.max(0, numRows / 2 - 1);
+        fullRow = numRows - 1;
+    }
+
+    private static Bitboard board(int numRows, int numColumns, int filledRows) {
+        final Bitboard board = new Bitboard(numRows, numColumns);
+        for (int row = 0; row < filledRows; row++) {
+            for (int column = 0; column < numColumns; column++) {
+                board.drop(column, BenchmarkBoards.owner(row, column) - 1);
+            }
+        }
+        return board;
+    }
+
+    @Benchmark
+    public boolean hasLineEmpty() {
+        return empty.hasLine(0, inARow);
+    }
+
+    @Benchmark
+    public boolean hasLineMidGame() {
+        return midGame.hasLine(0, inARow);
+    }
+
+    @Benchmark
+    public boolean hasLineFull() {
+        return full.hasLine(0, inARow);
+    }
+
+    @Benchmark
+    public boolean hasLineThroughMidGame() {
+        return midGame.hasLineThrough(midGameRow, 0, BenchmarkBoards.owner(midGameRow, 0) - 1, inARow);
+    }
+
+    @Benchmark
+    public boolean hasLineThroughFull() {
+        return full.hasLineThrough(fullRow, 0, BenchmarkBoards.owner(fullRow, 0) - 1, inARow);
+    }
+}
@@ -1,6 +1,7 @@
 package com.otisliddy.fiveinarow;
 
-import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
@@ -18,7 +19,10 @@ public class Application {
      */
     public static void main(String[] args) {
         final SpringApplication fiveinarow = new SpringApplication(Application.class);
-        fiveinarow.setDefaultProperties(Collections.singletonMap("server.port", String.valueOf(SystemProperties.PORT.getValue())));
+        final Map<String, Object> defaultProperties = new HashMap<>();
+        defaultProperties.put("server.port", String.valueOf(SystemProperties.PORT.getValue()));
+        defaultProperties.put("server.tomcat.max-connections", String.valueOf(SystemProperties.MAX_CONNECTIONS.getValue()));
+        fiveinarow.setDefaultProperties(defaultProperties);
         fiveinarow.run(args);
     }
 
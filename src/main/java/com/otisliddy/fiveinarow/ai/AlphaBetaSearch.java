@@ -0,0 +1,304 @@
+package com.otisliddy.fiveinarow.ai;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.otisliddy.fiveinarow.game.Bitboard;
+
+/**
+ * Finds the best move in a position by negamax search with alpha-beta pruning.
+ * <p>The search deepens one move at a time until its time budget runs out, and plays the best move of the deepest search completed. Each
+ * position's result is kept in a {@link TranspositionTable}, keyed by a Zobrist hash updated as discs are added and removed. The best move
+ * found for a position is searched first when the position is met again, followed by the other columns from the centre outwards, which
+ * prunes far more of the tree than searching left to right.</p>
+ * <p>Positions are scored by a win or loss, with faster wins scoring higher, or otherwise by how close each player's discs are to the centre
+ * columns, through which most lines pass.</p>
+ * <p>An instance searches on one thread at a time, and works on the {@link Bitboard} it is given directly, restoring it before returning.
+ * Players are indexed 0 and 1, as in {@code Bitboard}.</p>
+ */
+public class AlphaBetaSearch implements MoveSearch {
+
+    /**
+     * The score of winning immediately. A win in {@code n} moves scores {@code WIN_SCORE - n}.
+     */
+    public static final int WIN_SCORE = 1_000_000;
+
+    /**
+     * The lowest score of a forced win.
+     */
+    public static final int MIN_WIN_SCORE = WIN_SCORE - 100 * 100;
+
+    private static final int INFINITY = WIN_SCORE + 1;
+    private static final int TIME_CHECK_MASK = 0x3FF;
+    private static final long RULE_KEY = 0x9E3779B97F4A7C15L;
+
+    private final TranspositionTable table;
+
+    private Bitboard board;
+    private int numRows;
+    private int numColumns;
+    private int inARow;
+    private long[] keys;
+    private int[] order;
+    private int[] weights;
+    private long hash;
+    private int rootScore;
+    private int centreScore;
+    private int numDiscs;
+    private long nodes;
+    private long deadline;
+    private AtomicBoolean stop;
+    private boolean aborted;
+
+    /**
+     * Construct an instance of {@code AlphaBetaSearch}.
+     *
+     * @param tableMegabytes
+     *            the size of the transposition table in megabytes.
+     */
+    public AlphaBetaSearch(int tableMegabytes) {
+        this(new TranspositionTable(tableMegabytes));
+    }
+
+    AlphaBetaSearch(TranspositionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Get the transposition table of this search.
+     *
+     * @return the transposition table.
+     */
+    TranspositionTable getTable() {
+        return table;
+    }
+
+    @Override
+    public SearchResult search(Bitboard board, int inARow, int player, long budgetNanos) {
+        return search(board, inARow, player, budgetNanos, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Find the best move for a player, searching no deeper than a maximum depth.
+     *
+     * @param maxDepth
+     *            the depth to stop deepening at, in moves.
+     * @see #search(Bitboard, int, int, long)
+     */
+    SearchResult search(Bitboard board, int inARow, int player, long budgetNanos, int maxDepth) {
+        table.newSearch();
+        return search(board, inARow, player, System.nanoTime() + budgetNanos, maxDepth, 1, null);
+    }
+
+    /**
+     * Find the best move for a player as one of several threads sharing a transposition table. The table's search generation is left
+     * unchanged.
+     *
+     * @param deadline
+     *            the {@link System#nanoTime()} to stop searching at.
+     * @param maxDepth
+     *            the depth to stop deepening at, in moves.
+     * @param firstDepth
+     *            the depth to start deepening from, in moves.
+     * @param stop
+     *            set to stop searching before the deadline, or {@code null} to search until the deadline.
+     * @return the best move found, at depth 0 if stopped before the first depth was completed.
+     */
+    SearchResult search(Bitboard board, int inARow, int player, long deadline, int maxDepth, int firstDepth, AtomicBoolean stop) {
+        final long start = System.nanoTime();
+        prepare(board, inARow);
+        this.deadline = deadline;
+        this.stop = stop;
+
+        int bestColumn = -1;
+        int bestScore = -INFINITY;
+        int completedDepth = 0;
+        final int lastDepth = Math.min(maxDepth, numRows * numColumns - numDiscs);
+        for (int depth = Math.min(firstDepth, lastDepth); depth <= lastDepth; depth++) {
+            final int column = searchRoot(player, depth, bestColumn);
+            if (aborted) {
+                break;
+            }
+            bestColumn = column;
+            bestScore = rootScore;
+            completedDepth = depth;
+            if (Math.abs(bestScore) >= MIN_WIN_SCORE || System.nanoTime() > deadline || (stop != null && stop.get())) {
+                break;
+            }
+        }
+        for (int i = 0; bestColumn < 0 && i < numColumns; i++) {
+            if (board.getHeight(order[i]) < numRows) {
+                bestColumn = order[i];
+            }
+        }
+        this.board = null;
+        this.stop = null;
+        return new SearchResult(bestColumn + 1, bestScore, completedDepth, nodes, System.nanoTime() - start);
+    }
+
+    private void prepare(Bitboard board, int inARow) {
+        this.board = board;
+        this.inARow = inARow;
+        if (numRows != board.getNumRows() || numColumns != board.getNumColumns() || keys == null) {
+            numRows = board.getNumRows();
+            numColumns = board.getNumColumns();
+            keys = ZobristKeys.forBoard(numRows, numColumns);
+            order = new int[numColumns];
+            weights = new int[numColumns];
+            for (int i = 0; i < numColumns; i++) {
+                // Centre first, then alternately either side of it.
+                order[i] = (numColumns - 1) / 2 + ((i & 1) == 0 ? i / 2 : -(i + 1) / 2) * (numColumns % 2 == 0 ? -1 : 1);
+                weights[i] = Math.min(i, numColumns - 1 - i) + 1;
+            }
+        }
+        // Boards of the same size may be played with different numbers in-a-row, which must not share table entries.
+        hash = inARow * RULE_KEY;
+        centreScore = 0;
+        numDiscs = 0;
+        for (int column = 0; column < numColumns; column++) {
+            for (int row = 0; row < board.getHeight(column); row++) {
+                final int player = board.get(row, column);
+                hash ^= key(row, column, player);
+                centreScore += player == 0 ? weights[column] : -weights[column];
+                numDiscs++;
+            }
+        }
+        nodes = 0;
+        aborted = false;
+    }
+
+    /**
+     * Search the position to a fixed depth, searching the best column of the previous depth first.
+     *
+     * @return the best column found, indexed starting at 0.
+     */
+    private int searchRoot(int player, int depth, int previousBest) {
+        int alpha = -INFINITY;
+        int bestColumn = -1;
+        for (int i = -1; i < numColumns; i++) {
+            final int column = i < 0 ? previousBest : order[i];
+            if (column < 0 || (i >= 0 && column == previousBest) || board.getHeight(column) >= numRows) {
+                continue;
+            }
+            final int score;
+            if (board.hasLineThrough(board.getHeight(column), column, player, inARow)) {
+                score = WIN_SCORE;
+            } else {
+                play(column, player);
+                score = -negamax(1 - player, depth - 1, -INFINITY, -alpha, 1);
+                unplay(column, player);
+            }
+            if (aborted) {
+                return bestColumn;
+            }
+            if (score > alpha) {
+                alpha = score;
+                bestColumn = column;
+            }
+        }
+        table.store(hash, depth, TranspositionTable.EXACT, alpha, bestColumn);
+        rootScore = alpha;
+        return bestColumn;
+    }
+
+    private int negamax(int player, int depth, int alpha, int beta, int ply) {
+        if ((++nodes & TIME_CHECK_MASK) == 0 && (System.nanoTime() > deadline || (stop != null && stop.get()))) {
+            aborted = true;
+        }
+        if (aborted) {
+            return 0;
+        }
+        for (int column = 0; column < numColumns; column++) {
+            final int row = board.getHeight(column);
+            if (row < numRows && board.hasLineThrough(row, column, player, inARow)) {
+                return WIN_SCORE - ply;
+            }
+        }
+        if (numDiscs == numRows * numColumns) {
+            return 0;
+        }
+        if (depth == 0) {
+            return player == 0 ? centreScore : -centreScore;
+        }
+
+        final int originalAlpha = alpha;
+        final long entry = table.probe(hash);
+        int tableMove = -1;
+        if (entry != TranspositionTable.NO_ENTRY) {
+            tableMove = TranspositionTable.move(entry);
+            if (TranspositionTable.depth(entry) >= depth) {
+                final int score = fromTable(TranspositionTable.score(entry), ply);
+                final int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT) {
+                    return score;
+                } else if (bound == TranspositionTable.LOWER_BOUND) {
+                    alpha = Math.max(alpha, score);
+                } else {
+                    beta = Math.min(beta, score);
+                }
+                if (alpha >= beta) {
+                    return score;
+                }
+            }
+        }
+
+        int bestScore = -INFINITY;
+        int bestColumn = -1;
+        for (int i = -1; i < numColumns; i++) {
+            final int column = i < 0 ? tableMove : order[i];
+            if (column < 0 || (i >= 0 && column == tableMove) || board.getHeight(column) >= numRows) {
+                continue;
+            }
+            play(column, player);
+            final int score = -negamax(1 - player, depth - 1, -beta, -alpha, ply + 1);
+            unplay(column, player);
+            if (aborted) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                bestColumn = column;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        final int bound = bestScore <= originalAlpha ? TranspositionTable.UPPER_BOUND
+                : bestScore >= beta ? TranspositionTable.LOWER_BOUND : TranspositionTable.EXACT;
+        table.store(hash, depth, bound, toTable(bestScore, ply), bestColumn);
+        return bestScore;
+    }
+
+    private void play(int column, int player) {
+        final int row = board.drop(column, player);
+        hash ^= key(row, column, player);
+        centreScore += player == 0 ? weights[column] : -weights[column];
+        numDiscs++;
+    }
+
+    private void unplay(int column, int player) {
+        board.undrop(column);
+        hash ^= key(board.getHeight(column), column, player);
+        centreScore -= player == 0 ? weights[column] : -weights[column];
+        numDiscs--;
+    }
+
+    private long key(int row, int column, int player) {
+        return keys[(player * numColumns + column) * numRows + row];
+    }
+
+    /**
+     * Convert a score relative to the root of the search into one relative to the position being stored, so that a stored win or loss
+     * counts its moves from the position itself whatever depth it is met at again.
+     */
+    private static int toTable(int score, int ply) {
+        return score >= MIN_WIN_SCORE ? score + ply : score <= -MIN_WIN_SCORE ? score - ply : score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        return score >= MIN_WIN_SCORE ? score - ply : score <= -MIN_WIN_SCORE ? score + ply : score;
+    }
+}
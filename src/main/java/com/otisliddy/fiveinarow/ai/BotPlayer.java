@@ -0,0 +1,229 @@
+package com.otisliddy.fiveinarow.ai;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import com.otisliddy.fiveinarow.config.SystemProperties;
+import com.otisliddy.fiveinarow.game.Bitboard;
+import com.otisliddy.fiveinarow.game.GameExecutor;
+import com.otisliddy.fiveinarow.game.GameState;
+
+/**
+ * Computer opponent that can take the place of a player in a game, choosing its moves with an {@link AlphaBetaSearch}.
+ * <p>Searches run on a pool of {@link SystemProperties#BOT_THREADS} threads of their own, each with its own transposition table, so that a
+ * search never holds up a {@link GameExecutor} worker. Each search runs for {@link SystemProperties#BOT_MOVE_MILLIS} ms. If {@link
+ * SystemProperties#BOT_SEARCH_THREADS} is more than 1, each search is a {@link LazySmpSearch} with that many threads, the extra ones taken
+ * from a helper pool; otherwise it is a sequential {@link AlphaBetaSearch}.</p>
+ * <p>On boards with {@link SolvedPositions} in {@link SystemProperties#BOT_SOLVED_DIR}, the bot plays perfectly without searching, and
+ * players can be given {@link Hint}s.</p>
+ * <p>The number of moves chosen and the search speed are exposed over JMX.</p>
+ */
+@Component
+@ManagedResource(objectName = "com.otisliddy.fiveinarow:name=Bot", description = "Computer opponent")
+public class BotPlayer {
+
+    /**
+     * The name of the bot player.
+     */
+    public static final String NAME = "Bot";
+
+    private static final Logger logger = LoggerFactory.getLogger(BotPlayer.class);
+
+    private final ExecutorService executor;
+    private final ExecutorService helperExecutor;
+    private final ThreadLocal<MoveSearch> searches;
+    private final long moveNanos;
+    private final ConcurrentHashMap<Integer, SolvedPositions> solvedPositions = new ConcurrentHashMap<>();
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+
+    /**
+     * Construct an instance of {@code BotPlayer} configured through system properties.
+     */
+    public BotPlayer() {
+        this(SystemProperties.BOT_THREADS.getValue(), SystemProperties.BOT_MOVE_MILLIS.getValue(), SystemProperties.BOT_TABLE_MB.getValue(),
+                SystemProperties.BOT_SEARCH_THREADS.getValue());
+    }
+
+    /**
+     * Construct an instance of {@code BotPlayer}.
+     *
+     * @param numThreads
+     *            the number of search threads.
+     * @param moveMillis
+     *            the time to search for each move in milliseconds.
+     * @param tableMegabytes
+     *            the size of the transposition table of each search in megabytes.
+     * @param searchThreads
+     *            the number of threads each search runs on.
+     */
+    public BotPlayer(int numThreads, long moveMillis, int tableMegabytes, int searchThreads) {
+        final int poolSize = Math.max(1, numThreads);
+        this.executor = Executors.newFixedThreadPool(poolSize, daemonThreads("bot-"));
+        if (searchThreads > 1) {
+            this.helperExecutor = Executors.newFixedThreadPool(poolSize * (searchThreads - 1), daemonThreads("bot-helper-"));
+            this.searches = ThreadLocal.withInitial(() -> new LazySmpSearch(searchThreads, tableMegabytes, helperExecutor));
+        } else {
+            this.helperExecutor = null;
+            this.searches = ThreadLocal.withInitial(() -> new AlphaBetaSearch(tableMegabytes));
+        }
+        this.moveNanos = TimeUnit.MILLISECONDS.toNanos(moveMillis);
+    }
+
+    /**
+     * Map the solved-position files in {@link SystemProperties#BOT_SOLVED_DIR}, if set.
+     *
+     * @throws IOException
+     *             if a file could not be mapped.
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        final String dir = SystemProperties.BOT_SOLVED_DIR.getStringValue();
+        if (dir.isEmpty()) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(dir), "solved-*.bin")) {
+            for (Path file : files) {
+                final SolvedPositions solved = SolvedPositions.open(file);
+                addSolvedPositions(solved);
+                logger.info("Mapped {} solved positions of {}x{} with {} in-a-row from {}", solved.size(), solved.getNumRows(),
+                        solved.getNumColumns(), solved.getInARow(), file);
+            }
+        }
+    }
+
+    /**
+     * Use solved positions for the bot's moves and hints on their board size, in place of any used before.
+     *
+     * @param solved
+     *            the solved positions.
+     */
+    public void addSolvedPositions(SolvedPositions solved) {
+        solvedPositions.put(variantKey(solved.getNumRows(), solved.getNumColumns(), solved.getInARow()), solved);
+    }
+
+    private static int variantKey(int numRows, int numColumns, int inARow) {
+        return numRows << 16 | numColumns << 8 | inARow;
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            final Thread thread = new Thread(runnable, prefix + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Choose the move for the player to move in a game. Must be called from the game's {@link GameExecutor} worker, which may carry on
+     * changing the game while the move is being chosen.
+     *
+     * @param gameState
+     *            the state of the game, which must be in progress.
+     * @return the move, completed once the search has finished.
+     */
+    public CompletableFuture<SearchResult> chooseMove(GameState gameState) {
+        final Bitboard board = gameState.copyBoard();
+        final int player = gameState.getPlayerToMove().getId() - 1;
+        final int inARow = gameState.getInARow();
+        final SolvedPositions solved = solvedPositions.get(variantKey(board.getNumRows(), board.getNumColumns(), inARow));
+        final int solvedColumn = solved == null ? -1 : solved.bestMove(board, player);
+        if (solvedColumn >= 0) {
+            final int value = solved.lookup(board);
+            final int score = value > 0 ? AlphaBetaSearch.WIN_SCORE - value + 1 : value < 0 ? -AlphaBetaSearch.WIN_SCORE - value - 1 : 0;
+            moves.increment();
+            return CompletableFuture.completedFuture(new SearchResult(solvedColumn + 1, score, Math.abs(value), 0, 0));
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            final SearchResult result = searches.get().search(board, inARow, player, moveNanos);
+            moves.increment();
+            nodes.add(result.getNodes());
+            searchNanos.add(result.getElapsedNanos());
+            logger.debug("Bot chose {}", result);
+            return result;
+        }, executor);
+    }
+
+    /**
+     * Get the perfect-play move for the player to move in a game. Must be called from the game's {@link GameExecutor} worker.
+     *
+     * @param gameState
+     *            the state of the game, which must be in progress.
+     * @return the hint, or {@code null} if there are no solved positions for the game's board.
+     */
+    @Nullable
+    public Hint hint(GameState gameState) {
+        final Bitboard board = gameState.copyBoard();
+        final SolvedPositions solved = solvedPositions.get(variantKey(board.getNumRows(), board.getNumColumns(), gameState.getInARow()));
+        if (solved == null) {
+            return null;
+        }
+        final int column = solved.bestMove(board, gameState.getPlayerToMove().getId() - 1);
+        return column < 0 ? null : new Hint(column + 1, solved.lookup(board));
+    }
+
+    /**
+     * Get the number of moves the bot has chosen.
+     *
+     * @return the number of moves chosen.
+     */
+    @ManagedAttribute(description = "Number of moves the bot has chosen")
+    public long getMoves() {
+        return moves.sum();
+    }
+
+    /**
+     * Get the number of positions the bot has searched.
+     *
+     * @return the number of positions searched.
+     */
+    @ManagedAttribute(description = "Number of positions the bot has searched")
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    /**
+     * Get the average search speed of the bot, over all searches so far.
+     *
+     * @return the number of positions searched per second of search time.
+     */
+    @ManagedAttribute(description = "Positions searched per second by the bot")
+    public long getNodesPerSecond() {
+        final long nanos = searchNanos.sum();
+        return nanos == 0 ? 0 : (long) (nodes.sum() * (double) TimeUnit.SECONDS.toNanos(1) / nanos);
+    }
+
+    /**
+     * Stop the search threads.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        if (helperExecutor != null) {
+            helperExecutor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.otisliddy.fiveinarow.ai;
+
+/**
+ * The perfect-play move in a position, and the result it leads to for the player to move.
+ */
+public class Hint {
+
+    /**
+     * The result of a game for the player to move, if both players play perfectly.
+     */
+    public enum Outcome {
+        WIN, DRAW, LOSS
+    }
+
+    private final int column;
+    private final Outcome outcome;
+    private final int moves;
+
+    /**
+     * Construct an instance with the provided arguments.
+     *
+     * @param column
+     *            the best column, indexed starting at 1.
+     * @param value
+     *            the value of the position, as given by {@link SolvedPositions#lookup(com.otisliddy.fiveinarow.game.Bitboard)}.
+     */
+    public Hint(int column, int value) {
+        this.column = column;
+        this.outcome = value > 0 ? Outcome.WIN : value < 0 ? Outcome.LOSS : Outcome.DRAW;
+        this.moves = Math.abs(value);
+    }
+
+    /**
+     * Get the best column.
+     *
+     * @return the column, indexed starting at 1.
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * Get the result the best column leads to.
+     *
+     * @return the outcome for the player to move.
+     */
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Get the number of moves, by both players, until the game is won or lost. 0 if the game is drawn.
+     *
+     * @return the number of moves left.
+     */
+    public int getMoves() {
+        return moves;
+    }
+
+    @Override
+    public String toString() {
+        return "Hint{column=" + column + ", outcome=" + outcome + ", moves=" + moves + '}';
+    }
+}
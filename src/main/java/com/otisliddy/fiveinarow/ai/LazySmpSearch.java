@@ -0,0 +1,93 @@
+package com.otisliddy.fiveinarow.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.otisliddy.fiveinarow.game.Bitboard;
+
+/**
+ * Searches for the best move on several threads at once, using Lazy SMP.
+ * <p>Every thread runs its own {@link AlphaBetaSearch} of the whole position, on its own copy of the board, and all of them share one
+ * {@link TranspositionTable}. Nothing else is shared: each thread finds positions already searched by the others in the table, and so skips
+ * them or searches their best move first. Half of the helper threads start a move deeper than the calling thread, so that they fill the table
+ * ahead of it rather than searching the same positions at the same time.</p>
+ * <p>The calling thread searches too, and the helpers are stopped once it has finished. The result is that of the deepest search completed by
+ * any thread, with the nodes of every thread counted.</p>
+ * <p>An instance searches on one thread at a time.</p>
+ */
+public class LazySmpSearch implements MoveSearch {
+
+    private final AlphaBetaSearch[] searches;
+    private final Executor helperExecutor;
+
+    /**
+     * Construct an instance of {@code LazySmpSearch}.
+     *
+     * @param numThreads
+     *            the number of threads to search on, including the calling thread.
+     * @param tableMegabytes
+     *            the size of the shared transposition table in megabytes.
+     * @param helperExecutor
+     *            runs the helper searches, and must be able to run {@code numThreads - 1} of them at once.
+     */
+    public LazySmpSearch(int numThreads, int tableMegabytes, Executor helperExecutor) {
+        final TranspositionTable table = new TranspositionTable(tableMegabytes);
+        this.searches = new AlphaBetaSearch[Math.max(1, numThreads)];
+        for (int i = 0; i < searches.length; i++) {
+            searches[i] = new AlphaBetaSearch(table);
+        }
+        this.helperExecutor = helperExecutor;
+    }
+
+    @Override
+    public SearchResult search(Bitboard board, int inARow, int player, long budgetNanos) {
+        return search(board, inARow, player, budgetNanos, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Find the best move for a player, searching no deeper than a maximum depth.
+     *
+     * @param maxDepth
+     *            the depth to stop deepening at, in moves.
+     * @see #search(Bitboard, int, int, long)
+     */
+    SearchResult search(Bitboard board, int inARow, int player, long budgetNanos, int maxDepth) {
+        final long start = System.nanoTime();
+        final long deadline = start + budgetNanos;
+        final AtomicBoolean stop = new AtomicBoolean();
+        searches[0].getTable().newSearch();
+
+        final List<CompletableFuture<SearchResult>> helpers = new ArrayList<>(searches.length - 1);
+        for (int i = 0; i < searches.length - 1; i++) {
+            final AlphaBetaSearch helper = searches[i + 1];
+            final Bitboard helperBoard = new Bitboard(board);
+            final int firstDepth = 1 + (i & 1);
+            helpers.add(CompletableFuture.supplyAsync(
+                    () -> helper.search(helperBoard, inARow, player, deadline, maxDepth, firstDepth, stop), helperExecutor));
+        }
+
+        SearchResult best = searches[0].search(board, inARow, player, deadline, maxDepth, 1, null);
+        stop.set(true);
+        long nodes = best.getNodes();
+        for (CompletableFuture<SearchResult> helper : helpers) {
+            final SearchResult result = helper.join();
+            nodes += result.getNodes();
+            if (result.getDepth() > best.getDepth()) {
+                best = result;
+            }
+        }
+        return new SearchResult(best.getColumn(), best.getScore(), best.getDepth(), nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * Get the number of threads each search runs on.
+     *
+     * @return the number of threads, including the calling thread.
+     */
+    public int getNumThreads() {
+        return searches.length;
+    }
+}
@@ -0,0 +1,24 @@
+package com.otisliddy.fiveinarow.ai;
+
+import com.otisliddy.fiveinarow.game.Bitboard;
+
+/**
+ * Finds the best move in a position.
+ */
+public interface MoveSearch {
+
+    /**
+     * Find the best move for a player.
+     *
+     * @param board
+     *            the position to search, which must have at least one empty column and no winner yet. It is restored before returning.
+     * @param inARow
+     *            the number of discs needed in-a-row to win.
+     * @param player
+     *            the index of the player to move, 0 or 1.
+     * @param budgetNanos
+     *            the time to search for in nanoseconds. At least a one move deep search is always completed.
+     * @return the best move found.
+     */
+    SearchResult search(Bitboard board, int inARow, int player, long budgetNanos);
+}
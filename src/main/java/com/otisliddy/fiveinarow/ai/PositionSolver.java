@@ -0,0 +1,253 @@
+package com.otisliddy.fiveinarow.ai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import com.otisliddy.fiveinarow.game.Bitboard;
+
+/**
+ * Solves every position reachable on a small board, and writes the perfect-play values to a {@link SolvedPositions} file.
+ * <p>Every legal sequence of moves is followed until the game is won or the board is full, and the value of each position reached is kept
+ * under its {@link Bitboard#canonicalKey()}, so that a position met again by another order of moves, or as the mirror image of one already
+ * solved, is only solved once. Only positions in which the game is still in progress are written.</p>
+ * <p>Run from the command line with the number of rows, columns and in-a-row, and the directory to write the file to, e.g.:</p>
+ * <pre>
+ * java -cp target/classes com.otisliddy.fiveinarow.ai.PositionSolver 4 5 4 solved
+ * </pre>
+ * <p>The number of positions grows quickly with the size of the board, so only boards of up to about 25 cells finish in reasonable time
+ * and memory.</p>
+ */
+public final class PositionSolver {
+
+    private final int numRows;
+    private final int numColumns;
+    private final int inARow;
+    private final Bitboard board;
+    private final LongShortMap values = new LongShortMap();
+
+    /**
+     * Construct a {@code PositionSolver} for a board size.
+     *
+     * @param numRows
+     *            the number of rows.
+     * @param numColumns
+     *            the number of columns.
+     * @param inARow
+     *            the number of discs needed in-a-row to win.
+     * @throws IllegalArgumentException
+     *             if the board is too large for {@link Bitboard#canonicalKey()}.
+     */
+    public PositionSolver(int numRows, int numColumns, int inARow) {
+        if (!Bitboard.hasCanonicalKey(numRows, numColumns)) {
+            throw new IllegalArgumentException("A board of " + numRows + "x" + numColumns + " is too large to solve");
+        }
+        this.numRows = numRows;
+        this.numColumns = numColumns;
+        this.inARow = inARow;
+        this.board = new Bitboard(numRows, numColumns);
+    }
+
+    /**
+     * Solve every position reachable from the empty board.
+     *
+     * @return the value of the empty board for the first player, as described by {@link SolvedPositions#lookup(Bitboard)}.
+     */
+    public int solve() {
+        return solve(0, 0);
+    }
+
+    /**
+     * Get the number of positions solved.
+     *
+     * @return the number of positions solved.
+     */
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * Write the values of the solved positions to a file, replacing it atomically.
+     *
+     * @param path
+     *            the file to write.
+     * @throws IOException
+     *             if the file could not be written.
+     */
+    public void write(Path path) throws IOException {
+        final long[] keys = values.keys();
+        Arrays.sort(keys);
+        final Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            final ByteBuffer header = ByteBuffer.allocate(SolvedPositions.HEADER_BYTES);
+            header.putInt(SolvedPositions.MAGIC).putInt(SolvedPositions.VERSION).putInt(numRows).putInt(numColumns).putInt(inARow).putInt(0)
+                    .putLong(keys.length).flip();
+            write(channel, header);
+            final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            for (long key : keys) {
+                if (buffer.remaining() < Long.BYTES) {
+                    write(channel, buffer.flip());
+                    buffer.clear();
+                }
+                buffer.putLong(key);
+            }
+            for (long key : keys) {
+                if (buffer.remaining() < Short.BYTES) {
+                    write(channel, buffer.flip());
+                    buffer.clear();
+                }
+                buffer.putShort(values.get(key));
+            }
+            write(channel, buffer.flip());
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Solve the position on the board, with the provided player to move, by trying every move.
+     *
+     * @return the value of the position for the player to move.
+     */
+    private int solve(int player, int numDiscs) {
+        final long key = board.canonicalKey();
+        final short known = values.get(key);
+        if (known != LongShortMap.MISSING) {
+            return known;
+        }
+        int best = 0;
+        boolean first = true;
+        for (int column = 0; column < numColumns; column++) {
+            final int row = board.getHeight(column);
+            if (row == numRows) {
+                continue;
+            }
+            final int value;
+            if (board.hasLineThrough(row, column, player, inARow)) {
+                value = 1;
+            } else if (numDiscs + 1 == numRows * numColumns) {
+                value = 0;
+            } else {
+                board.drop(column, player);
+                value = SolvedPositions.parentValue(solve(1 - player, numDiscs + 1));
+                board.undrop(column);
+            }
+            if (first || SolvedPositions.isBetter(value, best)) {
+                best = value;
+                first = false;
+            }
+        }
+        values.put(key, (short) best);
+        return best;
+    }
+
+    /**
+     * Solve a board size and write it to a directory, under the name {@link SolvedPositions#fileName(int, int, int)}.
+     *
+     * @param args
+     *            the number of rows, columns and in-a-row, and the directory.
+     * @throws IOException
+     *             if the file could not be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            System.err.println("Usage: PositionSolver <rows> <columns> <inARow> <directory>");
+            System.exit(1);
+        }
+        final int numRows = Integer.parseInt(args[0]);
+        final int numColumns = Integer.parseInt(args[1]);
+        final int inARow = Integer.parseInt(args[2]);
+        final Path path = Paths.get(args[3]).resolve(SolvedPositions.fileName(numRows, numColumns, inARow));
+        Files.createDirectories(path.getParent());
+
+        final long start = System.nanoTime();
+        final PositionSolver solver = new PositionSolver(numRows, numColumns, inARow);
+        final int value = solver.solve();
+        solver.write(path);
+        System.out.printf("Solved %d positions of %dx%d with %d in-a-row in %.1f s: the first player %s. Wrote %s%n", solver.size(), numRows,
+                numColumns, inARow, (System.nanoTime() - start) / 1e9, SolvedPositions.describe(value), path);
+    }
+
+    /**
+     * Open-addressing hash map from non-zero {@code long} keys to {@code short} values, kept small as it may hold many millions of positions.
+     */
+    private static final class LongShortMap {
+
+        static final short MISSING = Short.MIN_VALUE;
+
+        private long[] keys = new long[1 << 16];
+        private short[] values = new short[1 << 16];
+        private int size;
+
+        short get(long key) {
+            final int mask = keys.length - 1;
+            for (int index = index(key, mask); keys[index] != 0; index = (index + 1) & mask) {
+                if (keys[index] == key) {
+                    return values[index];
+                }
+            }
+            return MISSING;
+        }
+
+        void put(long key, short value) {
+            if (2 * (size + 1) > keys.length) {
+                resize();
+            }
+            final int mask = keys.length - 1;
+            int index = index(key, mask);
+            while (keys[index] != 0 && keys[index] != key) {
+                index = (index + 1) & mask;
+            }
+            if (keys[index] == 0) {
+                keys[index] = key;
+                size++;
+            }
+            values[index] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long[] keys() {
+            final long[] result = new long[size];
+            int count = 0;
+            for (long key : keys) {
+                if (key != 0) {
+                    result[count++] = key;
+                }
+            }
+            return result;
+        }
+
+        private void resize() {
+            final long[] oldKeys = keys;
+            final short[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new short[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int index(long key, int mask) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.otisliddy.fiveinarow.ai;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The outcome of a search for the best move.
+ */
+public class SearchResult {
+
+    private final int column;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long elapsedNanos;
+
+    /**
+     * Construct an instance with the provided arguments.
+     *
+     * @param column
+     *            the best column found, indexed starting at 1.
+     * @param score
+     *            the score of the best column for the player to move.
+     * @param depth
+     *            the depth of the deepest completed search.
+     * @param nodes
+     *            the number of positions searched.
+     * @param elapsedNanos
+     *            the time taken by the search in nanoseconds.
+     */
+    public SearchResult(int column, int score, int depth, long nodes, long elapsedNanos) {
+        this.column = column;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Get the best column found.
+     *
+     * @return the column, indexed starting at 1.
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * Get the score of the best column for the player to move. Positive scores favour the player to move, and scores of at least
+     * {@link AlphaBetaSearch#MIN_WIN_SCORE} are forced wins.
+     *
+     * @return the score.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Get the depth of the deepest completed search, in moves.
+     *
+     * @return the depth.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Get the number of positions searched.
+     *
+     * @return the number of positions searched.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Get the time taken by the search.
+     *
+     * @return the time taken in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Get the search speed.
+     *
+     * @return the number of positions searched per second.
+     */
+    public long getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchResult{column=" + column + ", score=" + score + ", depth=" + depth + ", nodes=" + nodes + ", nodesPerSecond="
+                + getNodesPerSecond() + '}';
+    }
+}
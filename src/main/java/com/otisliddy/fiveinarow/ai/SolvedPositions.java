@@ -0,0 +1,226 @@
+package com.otisliddy.fiveinarow.ai;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.otisliddy.fiveinarow.game.Bitboard;
+
+/**
+ * Perfect-play values of every position of a small board, as written by {@link PositionSolver}, read straight from a memory-mapped file.
+ * <p>The file holds a header followed by the {@link Bitboard#canonicalKey()} of every solved position in ascending order, then the value of
+ * each position in the same order. Opening the file only maps it, and each lookup is a binary search of the mapped keys, so lookups take
+ * {@code O(log n)} time, allocate nothing and may be made by any number of threads at once.</p>
+ * <p>The value of a position is from the point of view of the player to move: {@code v > 0} if the player wins with the game ending after
+ * {@code v} more moves, {@code v < 0} if the player loses after {@code -v} more moves, and {@code 0} if the game is drawn. Perfect play wins
+ * as quickly, and loses as slowly, as possible.</p>
+ */
+public final class SolvedPositions {
+
+    static final int MAGIC = 0x534F4C56;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+
+    /**
+     * Returned by {@link #lookup(Bitboard)} for positions not in the file.
+     */
+    public static final int NOT_FOUND = Integer.MIN_VALUE;
+
+    private final MappedByteBuffer buffer;
+    private final int numRows;
+    private final int numColumns;
+    private final int inARow;
+    private final long count;
+    private final long valuesOffset;
+
+    private SolvedPositions(MappedByteBuffer buffer, int numRows, int numColumns, int inARow, long count) {
+        this.buffer = buffer;
+        this.numRows = numRows;
+        this.numColumns = numColumns;
+        this.inARow = inARow;
+        this.count = count;
+        this.valuesOffset = HEADER_BYTES + count * Long.BYTES;
+    }
+
+    /**
+     * Map a file written by {@link PositionSolver}.
+     *
+     * @param path
+     *            the file.
+     * @return the solved positions in the file.
+     * @throws IOException
+     *             if the file could not be read, or is not a complete file of solved positions.
+     */
+    public static SolvedPositions open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Unexpected size " + size + " of solved positions file " + path);
+            }
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            final int magic = buffer.getInt(0);
+            final int version = buffer.getInt(4);
+            if (magic != MAGIC || version != VERSION) {
+                throw new IOException("Unsupported solved positions file " + path + " of version " + version);
+            }
+            final long count = buffer.getLong(24);
+            if (size != HEADER_BYTES + count * (Long.BYTES + Short.BYTES)) {
+                throw new IOException("Incomplete solved positions file " + path);
+            }
+            return new SolvedPositions(buffer, buffer.getInt(8), buffer.getInt(12), buffer.getInt(16), count);
+        }
+    }
+
+    /**
+     * Get the value of a position.
+     *
+     * @param board
+     *            the position, which must be of this file's size.
+     * @return the value of the position for the player to move, or {@link #NOT_FOUND} if the game is over in the position.
+     */
+    public int lookup(Bitboard board) {
+        final long key = board.canonicalKey();
+        long low = 0;
+        long high = count - 1;
+        while (low <= high) {
+            final long middle = (low + high) >>> 1;
+            final long middleKey = buffer.getLong((int) (HEADER_BYTES + middle * Long.BYTES));
+            if (middleKey < key) {
+                low = middle + 1;
+            } else if (middleKey > key) {
+                high = middle - 1;
+            } else {
+                return buffer.getShort((int) (valuesOffset + middle * Short.BYTES));
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Find the best move in a position, which is the one winning the fastest, or failing that drawing, or failing that losing the slowest.
+     * The board is changed while the moves are tried, and restored before returning.
+     *
+     * @param board
+     *            the position, which must be of this file's size with the game still in progress.
+     * @param player
+     *            the index of the player to move, 0 or 1.
+     * @return the best column, indexed starting at 0, whose value is that of the position given by {@link #lookup(Bitboard)}, or -1 if the
+     *         position is not in the file.
+     */
+    public int bestMove(Bitboard board, int player) {
+        final int numDiscs = numDiscs(board);
+        int bestColumn = -1;
+        int bestValue = 0;
+        for (int column = 0; column < numColumns; column++) {
+            final int row = board.getHeight(column);
+            if (row == numRows) {
+                continue;
+            }
+            final int value;
+            if (board.hasLineThrough(row, column, player, inARow)) {
+                value = 1;
+            } else if (numDiscs + 1 == numRows * numColumns) {
+                value = 0;
+            } else {
+                board.drop(column, player);
+                final int childValue = lookup(board);
+                board.undrop(column);
+                if (childValue == NOT_FOUND) {
+                    return -1;
+                }
+                value = parentValue(childValue);
+            }
+            if (bestColumn < 0 || isBetter(value, bestValue)) {
+                bestColumn = column;
+                bestValue = value;
+            }
+        }
+        return bestColumn;
+    }
+
+    private int numDiscs(Bitboard board) {
+        int numDiscs = 0;
+        for (int column = 0; column < numColumns; column++) {
+            numDiscs += board.getHeight(column);
+        }
+        return numDiscs;
+    }
+
+    /**
+     * Get the number of rows of the board.
+     *
+     * @return the number of rows.
+     */
+    public int getNumRows() {
+        return numRows;
+    }
+
+    /**
+     * Get the number of columns of the board.
+     *
+     * @return the number of columns.
+     */
+    public int getNumColumns() {
+        return numColumns;
+    }
+
+    /**
+     * Get the number of discs needed in-a-row to win.
+     *
+     * @return the number of discs needed in-a-row.
+     */
+    public int getInARow() {
+        return inARow;
+    }
+
+    /**
+     * Get the number of positions in the file.
+     *
+     * @return the number of positions.
+     */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * Get the name of the file of solved positions of a board size.
+     *
+     * @param numRows
+     *            the number of rows.
+     * @param numColumns
+     *            the number of columns.
+     * @param inARow
+     *            the number of discs needed in-a-row.
+     * @return the file name.
+     */
+    public static String fileName(int numRows, int numColumns, int inARow) {
+        return "solved-" + numRows + "x" + numColumns + "x" + inARow + ".bin";
+    }
+
+    /**
+     * Get the value of a position for the player to move, from the value of the position after the move for the other player.
+     */
+    static int parentValue(int childValue) {
+        return childValue < 0 ? 1 - childValue : childValue > 0 ? -(childValue + 1) : 0;
+    }
+
+    /**
+     * Whether a value is better for the player to move than another: wins before draws before losses, faster wins and slower losses first.
+     */
+    static boolean isBetter(int value, int other) {
+        return rank(value) > rank(other);
+    }
+
+    private static int rank(int value) {
+        return value > 0 ? Short.MAX_VALUE - value : value < 0 ? Short.MIN_VALUE - value : 0;
+    }
+
+    /**
+     * Describe a value in words.
+     */
+    static String describe(int value) {
+        return value > 0 ? "wins in " + value + " moves" : value < 0 ? "loses in " + -value + " moves" : "draws";
+    }
+}
@@ -0,0 +1,114 @@
+package com.otisliddy.fiveinarow.ai;
+
+/**
+ * Fixed-size cache of search results keyed by the Zobrist hash of a position.
+ * <p>Each entry is two {@code long}s: the data, packing the score, search depth, bound type, best move and search generation, and the hash
+ * XORed with the data. An entry is only returned if XORing its two words gives back the hash being probed, so an entry torn by threads
+ * writing it at the same time is simply treated as missing. The table therefore needs no locks, even when shared between threads.</p>
+ * <p>Each hash maps to a single slot. A result replaces the one in its slot unless that one is for another position, was stored during the
+ * current search and was searched deeper.</p>
+ */
+final class TranspositionTable {
+
+    static final long NO_ENTRY = 0L;
+    static final int EXACT = 1;
+    static final int LOWER_BOUND = 2;
+    static final int UPPER_BOUND = 3;
+
+    private static final int ENTRY_BYTES = 2 * Long.BYTES;
+    private static final int MAX_DEPTH = 0xFF;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+    private volatile int generation;
+
+    /**
+     * Construct an empty {@code TranspositionTable}.
+     *
+     * @param megabytes
+     *            the maximum size of the table. The number of entries is rounded down to a power of two.
+     */
+    TranspositionTable(int megabytes) {
+        final long entries = Math.max(1, ((long) megabytes << 20) / ENTRY_BYTES);
+        final int size = (int) Math.min(Long.highestOneBit(entries), 1 << 30);
+        keys = new long[size];
+        data = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Start a new search, so that entries stored by earlier searches are replaced first.
+     */
+    void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * Find the entry for a position.
+     *
+     * @param hash
+     *            the Zobrist hash of the position.
+     * @return the entry, or {@link #NO_ENTRY} if there is none.
+     */
+    long probe(long hash) {
+        final int index = (int) hash & mask;
+        final long entry = data[index];
+        return (keys[index] ^ entry) == hash ? entry : NO_ENTRY;
+    }
+
+    /**
+     * Store the result of searching a position.
+     *
+     * @param hash
+     *            the Zobrist hash of the position.
+     * @param depth
+     *            the depth the position was searched to.
+     * @param bound
+     *            {@link #EXACT}, {@link #LOWER_BOUND} or {@link #UPPER_BOUND}.
+     * @param score
+     *            the score of the position.
+     * @param move
+     *            the best column found, indexed starting at 0, or -1 if none.
+     */
+    void store(long hash, int depth, int bound, int score, int move) {
+        final int index = (int) hash & mask;
+        final long existing = data[index];
+        if (existing != NO_ENTRY && (keys[index] ^ existing) != hash && generation(existing) == generation && depth(existing) > depth) {
+            return;
+        }
+        final long entry = (long) score << 32 | (long) generation << 24 | (long) (move + 1) << 16 | (long) Math.min(depth, MAX_DEPTH) << 8
+                | bound;
+        data[index] = entry;
+        keys[index] = hash ^ entry;
+    }
+
+    /**
+     * Get the number of entries the table can hold.
+     *
+     * @return the capacity of the table.
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    static int score(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    static int depth(long entry) {
+        return (int) (entry >>> 8) & 0xFF;
+    }
+
+    static int bound(long entry) {
+        return (int) entry & 0x3;
+    }
+
+    static int move(long entry) {
+        return ((int) (entry >>> 16) & 0xFF) - 1;
+    }
+
+    private static int generation(long entry) {
+        return (int) (entry >>> 24) & 0xFF;
+    }
+}
@@ -0,0 +1,40 @@
+package com.otisliddy.fiveinarow.ai;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Random keys for Zobrist hashing of positions. The hash of a position is the XOR of the key of every disc on the board, so it is updated
+ * by a single XOR whenever a disc is added or removed. The player to move needs no key of its own, since it follows from the number of
+ * discs.
+ * <p>Keys are generated once per board size from a fixed seed, and shared.</p>
+ */
+final class ZobristKeys {
+
+    private static final long SEED = 0x5EED5EED5EED5EEDL;
+    private static final ConcurrentHashMap<Long, long[]> KEYS = new ConcurrentHashMap<>();
+
+    private ZobristKeys() {
+    }
+
+    /**
+     * Get the keys for a board size. The key of a disc of player {@code p} at {@code (row, column)} is at index
+     * {@code (p * numColumns + column) * numRows + row}.
+     *
+     * @param numRows
+     *            the number of rows.
+     * @param numColumns
+     *            the number of columns.
+     * @return the keys, which must not be changed.
+     */
+    static long[] forBoard(int numRows, int numColumns) {
+        return KEYS.computeIfAbsent((long) numRows << 32 | numColumns, size -> {
+            final SplittableRandom random = new SplittableRandom(SEED ^ size);
+            final long[] keys = new long[2 * numRows * numColumns];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = random.nextLong();
+            }
+            return keys;
+        });
+    }
+}
@@ -0,0 +1,133 @@
+package com.otisliddy.fiveinarow.archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.NoSuchElementException;
+
+import com.otisliddy.fiveinarow.game.GameState;
+import com.otisliddy.fiveinarow.game.GameStatus;
+import com.otisliddy.fiveinarow.game.MoveEvent;
+import com.otisliddy.fiveinarow.game.Player;
+import com.otisliddy.fiveinarow.game.Variant;
+
+/**
+ * A game in the {@link GameArchive}, read back as the {@link MoveEvent}s of its moves in the order they were made.
+ * <p>Moves are read from the archive file a block of {@value #READ_AHEAD} at a time, and the only other state kept is the height of each
+ * column, so an instance uses a small fixed amount of memory however many moves the game has.</p>
+ */
+public class ArchivedGame {
+
+    private static final int READ_AHEAD = 64;
+
+    private final FileChannel channel;
+    private final long gameId;
+    private final Variant variant;
+    private final GameStatus status;
+    private final Player playerOne;
+    private final Player playerTwo;
+    private final long movesOffset;
+    private final int numMoves;
+    private final int[] heights;
+    private final ByteBuffer moves = ByteBuffer.allocate(READ_AHEAD);
+    private int nextMove;
+    private int bufferStart;
+
+    ArchivedGame(FileChannel channel, long gameId, Variant variant, GameStatus status, Player playerOne, Player playerTwo, long movesOffset,
+            int numMoves) {
+        this.channel = channel;
+        this.gameId = gameId;
+        this.variant = variant;
+        this.status = status;
+        this.playerOne = playerOne;
+        this.playerTwo = playerTwo;
+        this.movesOffset = movesOffset;
+        this.numMoves = numMoves;
+        this.heights = new int[variant.getNumColumns()];
+        this.moves.limit(0);
+    }
+
+    /**
+     * Create the state of the game before its first move.
+     *
+     * @return the initial state of the game.
+     */
+    public GameState newGameState() {
+        final GameState gameState = variant.newGameState();
+        gameState.setPlayerToMove(playerOne);
+        return gameState;
+    }
+
+    /**
+     * Whether there are moves left to read.
+     *
+     * @return {@code true} if {@link #nextMove()} will return a move.
+     */
+    public boolean hasNextMove() {
+        return nextMove < numMoves;
+    }
+
+    /**
+     * Read the next move of the game.
+     *
+     * @return the next move.
+     * @throws IOException
+     *            if the move cannot be read from the archive.
+     * @throws NoSuchElementException
+     *            if there are no moves left.
+     */
+    public MoveEvent nextMove() throws IOException {
+        if (!hasNextMove()) {
+            throw new NoSuchElementException("No moves left in game " + gameId);
+        }
+        if (nextMove - bufferStart >= moves.limit()) {
+            bufferStart = nextMove;
+            moves.clear().limit(Math.min(READ_AHEAD, numMoves - nextMove));
+            GameArchive.readFully(channel, moves, movesOffset + nextMove);
+        }
+        final int column = moves.get(nextMove - bufferStart) & 0xFF;
+        final int row = heights[column - 1]++;
+        final Player mover = (nextMove & 1) == 0 ? playerOne : playerTwo;
+        nextMove++;
+        if (hasNextMove()) {
+            return new MoveEvent(nextMove, column, row, mover.getId(), GameStatus.IN_PROGRESS, mover == playerOne ? playerTwo : playerOne);
+        }
+        return new MoveEvent(nextMove, column, row, mover.getId(), status, mover);
+    }
+
+    /**
+     * Get the game ID.
+     *
+     * @return the game ID.
+     */
+    public long getGameId() {
+        return gameId;
+    }
+
+    /**
+     * Get the variant of the game.
+     *
+     * @return the variant of the game.
+     */
+    public Variant getVariant() {
+        return variant;
+    }
+
+    /**
+     * Get the status the game finished with.
+     *
+     * @return the final status of the game.
+     */
+    public GameStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Get the number of moves in the game.
+     *
+     * @return the number of moves.
+     */
+    public int getNumMoves() {
+        return numMoves;
+    }
+}
@@ -0,0 +1,243 @@
+package com.otisliddy.fiveinarow.archive;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import com.otisliddy.fiveinarow.config.SystemProperties;
+import com.otisliddy.fiveinarow.game.Game;
+import com.otisliddy.fiveinarow.game.GameExecutor;
+import com.otisliddy.fiveinarow.game.GameState;
+import com.otisliddy.fiveinarow.game.GameStatus;
+import com.otisliddy.fiveinarow.game.Player;
+import com.otisliddy.fiveinarow.game.Variant;
+
+/**
+ * Append-only archive of finished games, from which they can be replayed move by move.
+ * <p>Each game is one record in a single file. All numbers are big-endian. A record is:</p>
+ * <ol>
+ * <li>{@code int} length in bytes of the rest of the record</li>
+ * <li>{@code long} game ID</li>
+ * <li>{@code byte} number of rows, {@code byte} number of columns, {@code byte} number of discs needed in-a-row</li>
+ * <li>{@code byte} final {@link GameStatus} ordinal</li>
+ * <li>for each player, {@code short} name length in bytes (-1 for no name) and UTF-8 name</li>
+ * <li>{@code int} number of moves, followed by the column of each move as a {@code byte}, indexed starting at 1</li>
+ * </ol>
+ * <p>Only the offset of each record is kept in memory. Games are read back through {@link ArchivedGame}, which reads the moves from the file
+ * a small block at a time, so replaying uses the same small amount of memory however long the game is.</p>
+ * <p>The archive is disabled unless {@link SystemProperties#ARCHIVE_DIR} is set.</p>
+ */
+@Component
+public class GameArchive {
+
+    private static final Logger logger = LoggerFactory.getLogger(GameArchive.class);
+    private static final String FILE_NAME = "games.archive";
+    private static final int FIXED_HEADER_BYTES = Long.BYTES + 4;
+    private static final GameStatus[] STATUSES = GameStatus.values();
+
+    private final Path directory;
+    private final ConcurrentHashMap<Long, Long> offsets = new ConcurrentHashMap<>();
+    private final AtomicLong position = new AtomicLong();
+    private FileChannel channel;
+
+    /**
+     * Construct an instance of {@code GameArchive} configured through system properties. Empty constructor needed for injecting.
+     */
+    public GameArchive() {
+        final String dir = SystemProperties.ARCHIVE_DIR.getStringValue();
+        this.directory = dir.isEmpty() ? null : Paths.get(dir);
+    }
+
+    /**
+     * Construct an instance of {@code GameArchive}.
+     *
+     * @param directory
+     *            the directory to keep the archive in.
+     */
+    public GameArchive(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Open the archive, indexing the games already in it. Does nothing if the archive is disabled.
+     *
+     * @throws IOException
+     *            if the archive cannot be read.
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        if (directory == null) {
+            return;
+        }
+        Files.createDirectories(directory);
+        channel = FileChannel.open(directory.resolve(FILE_NAME), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        final long size = channel.size();
+        final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + Long.BYTES);
+        long offset = 0;
+        while (offset + header.capacity() <= size) {
+            header.clear();
+            readFully(channel, header, offset);
+            final int length = header.getInt(0);
+            if (length < FIXED_HEADER_BYTES || offset + Integer.BYTES + length > size) {
+                break;
+            }
+            offsets.put(header.getLong(Integer.BYTES), offset);
+            offset += Integer.BYTES + length;
+        }
+        if (offset < size) {
+            logger.warn("Truncating incomplete record at the end of the game archive");
+            channel.truncate(offset);
+        }
+        position.set(offset);
+        logger.info("Opened game archive of {} games in {}", offsets.size(), directory);
+    }
+
+    /**
+     * Close the archive.
+     *
+     * @throws IOException
+     *            if the archive cannot be closed.
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Whether the archive is enabled.
+     *
+     * @return {@code true} if finished games are archived.
+     */
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Archive a finished game. Must be called from the game's {@link GameExecutor} worker. Games still in progress are ignored.
+     *
+     * @param game
+     *            the game to archive.
+     */
+    public void archive(Game game) {
+        final GameState gameState = game.getState();
+        if (channel == null || gameState.getStatus() == GameStatus.IN_PROGRESS) {
+            return;
+        }
+        final int[][] grid = gameState.getGrid();
+        final byte[] playerOneName = nameBytes(game.getPlayerOne());
+        final byte[] playerTwoName = nameBytes(game.getPlayerTwo());
+        final byte[] moves = game.getMoves();
+        final int length = FIXED_HEADER_BYTES + nameLength(playerOneName) + nameLength(playerTwoName) + Integer.BYTES + moves.length;
+
+        final ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + length);
+        record.putInt(length);
+        record.putLong(game.getId());
+        record.put((byte) grid.length);
+        record.put((byte) grid[0].length);
+        record.put((byte) gameState.getInARow());
+        record.put((byte) gameState.getStatus().ordinal());
+        putName(record, playerOneName);
+        putName(record, playerTwoName);
+        record.putInt(moves.length);
+        record.put(moves);
+        record.flip();
+
+        final long offset = position.getAndAdd(record.remaining());
+        try {
+            while (record.hasRemaining()) {
+                channel.write(record, offset + record.position());
+            }
+            offsets.put(game.getId(), offset);
+        } catch (IOException exception) {
+            logger.error("Failed to archive game {}", game.getId(), exception);
+        }
+    }
+
+    /**
+     * Open an archived game for replaying.
+     *
+     * @param gameId
+     *            the ID of the game.
+     * @return the archived game, or {@code null} if the game is not in the archive.
+     * @throws IOException
+     *            if the game cannot be read.
+     */
+    @Nullable
+    public ArchivedGame find(long gameId) throws IOException {
+        final Long offset = offsets.get(gameId);
+        if (offset == null) {
+            return null;
+        }
+        final ByteBuffer fixed = ByteBuffer.allocate(Integer.BYTES + FIXED_HEADER_BYTES);
+        long position = readFully(channel, fixed, offset);
+        final Variant variant = new Variant(fixed.get(12), fixed.get(13), fixed.get(14));
+        final GameStatus status = STATUSES[fixed.get(15)];
+
+        final String[] names = new String[2];
+        final ByteBuffer buffer = ByteBuffer.allocate(Short.BYTES);
+        for (int i = 0; i < names.length; i++) {
+            buffer.clear().limit(Short.BYTES);
+            position = readFully(channel, buffer, position);
+            final short nameLength = buffer.getShort(0);
+            if (nameLength >= 0) {
+                final ByteBuffer name = ByteBuffer.allocate(nameLength);
+                position = readFully(channel, name, position);
+                names[i] = new String(name.array(), StandardCharsets.UTF_8);
+            }
+        }
+        final ByteBuffer numMoves = ByteBuffer.allocate(Integer.BYTES);
+        position = readFully(channel, numMoves, position);
+        return new ArchivedGame(channel, gameId, variant, status, new Player(names[0], 1, gameId), new Player(names[1], 2, gameId), position,
+                numMoves.getInt(0));
+    }
+
+    private static byte[] nameBytes(Player player) {
+        return player == null || player.getName() == null ? null : player.getName().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int nameLength(byte[] name) {
+        return Short.BYTES + (name == null ? 0 : name.length);
+    }
+
+    private static void putName(ByteBuffer record, byte[] name) {
+        record.putShort((short) (name == null ? -1 : name.length));
+        if (name != null) {
+            record.put(name);
+        }
+    }
+
+    /**
+     * Fill a buffer from a file.
+     *
+     * @return the position in the file after the bytes read.
+     */
+    static long readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of game archive");
+            }
+            position += read;
+        }
+        return position;
+    }
+}
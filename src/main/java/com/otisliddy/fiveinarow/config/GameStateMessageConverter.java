@@ -0,0 +1,51 @@
+package com.otisliddy.fiveinarow.config;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.AbstractMessageConverter;
+import org.springframework.util.MimeType;
+
+import com.otisliddy.fiveinarow.game.GameState;
+import com.otisliddy.fiveinarow.game.GameStateCodec;
+
+/**
+ * Converts {@link GameState} payloads to and from the compact binary encoding of {@link GameStateCodec}.
+ * <p>The converter only applies to messages whose {@code content-type} header is {@value #CONTENT_TYPE}, so JSON stays the default for every
+ * other message.</p>
+ */
+public class GameStateMessageConverter extends AbstractMessageConverter {
+
+    /**
+     * The content type of binary encoded game states.
+     */
+    public static final String CONTENT_TYPE = "application/vnd.fiveinarow.gamestate";
+
+    /**
+     * The content type of binary encoded game states.
+     */
+    public static final MimeType MIME_TYPE = MimeType.valueOf(CONTENT_TYPE);
+
+    /**
+     * Construct an instance of {@code GameStateMessageConverter}.
+     */
+    public GameStateMessageConverter() {
+        super(MIME_TYPE);
+        setStrictContentTypeMatch(true);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return GameState.class.equals(clazz);
+    }
+
+    @Override
+    protected Object convertFromInternal(Message<?> message, Class<?> targetClass, Object conversionHint) {
+        final Object payload = message.getPayload();
+        return payload instanceof byte[] ? GameStateCodec.decode((byte[]) payload) : null;
+    }
+
+    @Override
+    protected Object convertToInternal(Object payload, MessageHeaders headers, Object conversionHint) {
+        return GameStateCodec.encode((GameState) payload);
+    }
+}
@@ -0,0 +1,70 @@
+package com.otisliddy.fiveinarow.config;
+
+import java.util.concurrent.BlockingQueue;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decides when the server is too busy to start new games, so that games already in progress keep getting their moves through.
+ * <p>The server is overloaded while the queue of messages from clients, or the queue of messages to clients, is at least {@link
+ * SystemProperties#SHED_QUEUE_PERCENT} percent full. Checking only reads the size of each queue, so it can be made for every request.</p>
+ * <p>A {@link VirtualThreadTaskExecutor} has no queue, so for one the server is instead overloaded while the number of messages being
+ * processed is at least that percentage of its limit.</p>
+ */
+@Component
+public class LoadShedder {
+
+    private final int percent;
+    @Autowired
+    @Qualifier("clientInboundChannelExecutor")
+    private ThreadPoolTaskExecutor inboundExecutor;
+    @Autowired
+    @Qualifier("clientOutboundChannelExecutor")
+    private ThreadPoolTaskExecutor outboundExecutor;
+
+    /**
+     * Construct an instance of {@code LoadShedder} configured through system properties. Empty constructor needed for injecting.
+     */
+    public LoadShedder() {
+        this.percent = SystemProperties.SHED_QUEUE_PERCENT.getValue();
+    }
+
+    /**
+     * Construct an instance of {@code LoadShedder}.
+     *
+     * @param inboundExecutor
+     *            the executor processing messages from clients.
+     * @param outboundExecutor
+     *            the executor sending messages to clients.
+     * @param percent
+     *            how full either queue may be, as a percentage of its capacity, before the server is overloaded.
+     */
+    public LoadShedder(ThreadPoolTaskExecutor inboundExecutor, ThreadPoolTaskExecutor outboundExecutor, int percent) {
+        this.inboundExecutor = inboundExecutor;
+        this.outboundExecutor = outboundExecutor;
+        this.percent = percent;
+    }
+
+    /**
+     * Whether the server is too busy to start new games.
+     *
+     * @return {@code true} if new games should be refused.
+     */
+    public boolean isOverloaded() {
+        return isFull(inboundExecutor) || isFull(outboundExecutor);
+    }
+
+    private boolean isFull(ThreadPoolTaskExecutor executor) {
+        if (executor instanceof VirtualThreadTaskExecutor) {
+            final VirtualThreadTaskExecutor virtualExecutor = (VirtualThreadTaskExecutor) executor;
+            return (long) virtualExecutor.getInFlight() * 100 >= (long) virtualExecutor.getLimit() * percent;
+        }
+        final BlockingQueue<Runnable> queue = executor.getThreadPoolExecutor().getQueue();
+        final long size = queue.size();
+        final long capacity = size + queue.remainingCapacity();
+        return capacity > 0 && size * 100 >= capacity * percent;
+    }
+}
@@ -0,0 +1,117 @@
+package com.otisliddy.fiveinarow.config;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import com.otisliddy.fiveinarow.metrics.GameMetrics;
+
+/**
+ * Limits how fast each client may send moves, so that one client flooding {@value #MOVE_DESTINATION} cannot starve the others. As an
+ * interceptor on the client inbound channel, it drops excess moves as they arrive, reading only their headers, before they are queued for
+ * the controller. {@link com.otisliddy.fiveinarow.controller.RawGameHandler} checks the moves of raw clients in the same way.
+ * <p>Each session has a token bucket refilled at {@link SystemProperties#MOVE_RATE} moves per second, holding up to {@link
+ * SystemProperties#MOVE_BURST} moves. The bucket is kept as the single time at which it will next be full, in an {@link AtomicLong} updated
+ * by compare-and-set, so checking a move takes no lock. The bucket is held in the session's attributes, so there is one per connected
+ * session and it goes with the session.</p>
+ */
+@Component
+public class MoveRateLimiter implements ChannelInterceptor {
+
+    static final String MOVE_DESTINATION = "/fiveinarow/move";
+    private static final String BUCKET_ATTRIBUTE = MoveRateLimiter.class.getName() + ".bucket";
+    private static final Logger logger = LoggerFactory.getLogger(MoveRateLimiter.class);
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final LongSupplier nanoTime;
+    @Autowired
+    private GameMetrics gameMetrics;
+
+    /**
+     * Construct an instance of {@code MoveRateLimiter} configured through system properties. Empty constructor needed for injecting.
+     */
+    public MoveRateLimiter() {
+        this(SystemProperties.MOVE_RATE.getValue(), SystemProperties.MOVE_BURST.getValue(), System::nanoTime, null);
+    }
+
+    /**
+     * Construct an instance of {@code MoveRateLimiter}.
+     *
+     * @param movesPerSecond
+     *            the number of moves per second each session may send on average, or 0 for no limit.
+     * @param burst
+     *            the number of moves each session may send at once.
+     * @param nanoTime
+     *            supplies the current time in nanoseconds.
+     * @param gameMetrics
+     *            the metrics to count dropped moves with, or {@code null} not to count them.
+     */
+    public MoveRateLimiter(int movesPerSecond, int burst, LongSupplier nanoTime, GameMetrics gameMetrics) {
+        this.intervalNanos = movesPerSecond > 0 ? 1_000_000_000L / movesPerSecond : 0;
+        this.burstNanos = intervalNanos * Math.max(burst, 1);
+        this.nanoTime = nanoTime;
+        this.gameMetrics = gameMetrics;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        final MessageHeaders headers = message.getHeaders();
+        if (SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE
+                || !MOVE_DESTINATION.equals(SimpMessageHeaderAccessor.getDestination(headers))) {
+            return message;
+        }
+        final Map<String, Object> attributes = SimpMessageHeaderAccessor.getSessionAttributes(headers);
+        if (attributes == null || tryAcquire(attributes)) {
+            return message;
+        }
+        logger.debug("Dropping move from session {} over the rate limit", SimpMessageHeaderAccessor.getSessionId(headers));
+        return null;
+    }
+
+    /**
+     * Take a move from the bucket of a session, if there is one left.
+     *
+     * @param attributes
+     *            the attributes of the session, in which its bucket is kept.
+     * @return {@code true} if the move may go ahead, or {@code false} if it should be dropped.
+     */
+    public boolean tryAcquire(Map<String, Object> attributes) {
+        if (intervalNanos == 0) {
+            return true;
+        }
+        AtomicLong bucket = (AtomicLong) attributes.get(BUCKET_ATTRIBUTE);
+        if (bucket == null) {
+            final AtomicLong newBucket = new AtomicLong(Long.MIN_VALUE);
+            bucket = (AtomicLong) attributes.putIfAbsent(BUCKET_ATTRIBUTE, newBucket);
+            if (bucket == null) {
+                bucket = newBucket;
+            }
+        }
+        final long now = nanoTime.getAsLong();
+        while (true) {
+            final long fullAt = bucket.get();
+            final long nextFullAt = Math.max(fullAt, now) + intervalNanos;
+            if (nextFullAt - now > burstNanos) {
+                if (gameMetrics != null) {
+                    gameMetrics.moveThrottled();
+                }
+                return false;
+            }
+            if (bucket.compareAndSet(fullAt, nextFullAt)) {
+                return true;
+            }
+        }
+    }
+}
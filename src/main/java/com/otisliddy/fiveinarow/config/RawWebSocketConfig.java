@@ -0,0 +1,28 @@
+package com.otisliddy.fiveinarow.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+import com.otisliddy.fiveinarow.controller.RawGameHandler;
+
+/**
+ * Configures the raw WebSocket endpoint at {@value #ENDPOINT}, which sits alongside the STOMP endpoint configured by {@link WebSocketConfig}
+ * but outside its path, so that SockJS does not claim it.
+ */
+@Configuration
+@EnableWebSocket
+public class RawWebSocketConfig implements WebSocketConfigurer {
+
+    static final String ENDPOINT = "/5-in-a-row-raw";
+
+    @Autowired
+    private RawGameHandler rawGameHandler;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(rawGameHandler, ENDPOINT);
+    }
+}
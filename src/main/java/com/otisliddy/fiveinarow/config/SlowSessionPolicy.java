@@ -0,0 +1,77 @@
+package com.otisliddy.fiveinarow.config;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+/**
+ * Handles a message to a client arriving at the full queue of the client outbound channel, by dropping the message and closing the session
+ * of the client it was for. Running the send on the thread passing the message on instead would stall that thread, which may be a game's
+ * worker or a thread handling another client's message, for as long as the slow client takes to accept it.
+ * <p>As a decorator of the STOMP endpoint's handler, it keeps the open WebSocket sessions by ID so that it can close them. A session is closed
+ * the first time one of its messages is dropped, and the messages to it dropped after that are only logged.</p>
+ */
+@Component
+public class SlowSessionPolicy implements RejectedExecutionHandler, WebSocketHandlerDecoratorFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlowSessionPolicy.class);
+
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+
+    @Override
+    public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+        final String sessionId = task instanceof MessageHandlingRunnable
+                ? SimpMessageHeaderAccessor.getSessionId(((MessageHandlingRunnable) task).getMessage().getHeaders())
+                : null;
+        final WebSocketSession session = sessionId == null ? null : sessions.remove(sessionId);
+        if (session == null) {
+            logger.debug("Dropping message to session {} as the outbound queue is full", sessionId);
+            return;
+        }
+        logger.warn("Closing session {} as the outbound queue is full", sessionId);
+        try {
+            session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException exception) {
+            logger.debug("Failed to close session {}: {}", sessionId, exception.toString());
+        }
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                sessions.put(session.getId(), session);
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    /**
+     * Get the number of open sessions.
+     *
+     * @return the number of sessions.
+     */
+    int size() {
+        return sessions.size();
+    }
+}
@@ -0,0 +1,77 @@
+package com.otisliddy.fiveinarow.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.simp.user.UserDestinationMessageHandler;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.NativeMessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sends a STOMP {@code RECEIPT} for each {@code SUBSCRIBE} that asks for one, once the in-memory broker has registered the subscription. The
+ * in-memory broker does not send receipts itself, and a subscription is registered on an inbound thread some time after the {@code
+ * SUBSCRIBE} arrives, so a receipt is the only way for a client to know that messages sent to the destination from then on will reach it.
+ * <p>As an interceptor on the client inbound channel, it acts after the handler that registers the subscription has handled the {@code
+ * SUBSCRIBE}: the {@link UserDestinationMessageHandler} for {@value #USER_DESTINATION_PREFIX} destinations, which passes the subscription
+ * to the broker on the same thread, and the {@link SimpleBrokerMessageHandler} for the others. An external broker sends receipts itself, so
+ * this is only registered with the in-memory broker.</p>
+ */
+@Component
+public class SubscriptionReceipts implements ExecutorChannelInterceptor {
+
+    static final String USER_DESTINATION_PREFIX = "/user/";
+    private static final String RECEIPT_HEADER = "receipt";
+    private static final byte[] EMPTY_PAYLOAD = new byte[0];
+    private static final Logger logger = LoggerFactory.getLogger(SubscriptionReceipts.class);
+
+    @Autowired
+    @Qualifier("clientOutboundChannel")
+    private ObjectProvider<MessageChannel> clientOutboundChannel;
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        final MessageHeaders headers = message.getHeaders();
+        if (ex != null || SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.SUBSCRIBE) {
+            return;
+        }
+        final String receipt = NativeMessageHeaderAccessor.getFirstNativeHeader(RECEIPT_HEADER, headers);
+        final String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        if (receipt == null || destination == null || !registers(handler, destination)) {
+            return;
+        }
+        final String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        logger.debug("Sending receipt {} to session {} for subscription to {}", receipt, sessionId, destination);
+        clientOutboundChannel.getObject().send(receiptMessage(receipt, sessionId));
+    }
+
+    /**
+     * Whether a handler is the one that registers subscriptions to a destination.
+     */
+    static boolean registers(MessageHandler handler, String destination) {
+        return destination.startsWith(USER_DESTINATION_PREFIX) ? handler instanceof UserDestinationMessageHandler
+                : handler instanceof SimpleBrokerMessageHandler;
+    }
+
+    /**
+     * Build the {@code RECEIPT} frame for a session.
+     */
+    static Message<byte[]> receiptMessage(String receipt, String sessionId) {
+        final StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.RECEIPT);
+        accessor.setReceiptId(receipt);
+        accessor.setSessionId(sessionId);
+        return MessageBuilder.createMessage(EMPTY_PAYLOAD, accessor.getMessageHeaders());
+    }
+}
@@ -23,7 +23,192 @@ public enum SystemProperties {
     /**
      * The number of discs needed, in a row, to win the game. The direction of the discs may be horizontal, vertical or diagonal.
      */
-    PORT("inarow.port", "8080");
+    PORT("inarow.port", "8080"),
+
+    /**
+     * The width of the rating buckets used by the lobby to match players of a similar rating. Players are only paired with players in the same
+     * bucket.
+     */
+    LOBBY_RATING_BUCKET_SIZE("inarow.lobby.ratingbucket", "200"),
+
+    /**
+     * The highest rating the lobby tells apart. Players with a higher rating are matched as if they had this rating, so that the lobby keeps
+     * a bounded number of rating buckets.
+     */
+    LOBBY_MAX_RATING("inarow.lobby.maxrating", "3000"),
+
+    /**
+     * The number of worker threads that process game moves. Each game is processed by exactly one of the threads. A value of 0 uses one thread
+     * per available processor.
+     */
+    GAME_THREADS("inarow.gamethreads", "0"),
+
+    /**
+     * The host of an external STOMP message broker to relay messages through, so that several game servers can share one broker. If empty,
+     * the in-memory simple broker of this server is used.
+     */
+    BROKER_RELAY_HOST("inarow.broker.host", ""),
+
+    /**
+     * The STOMP port of the external message broker.
+     */
+    BROKER_RELAY_PORT("inarow.broker.port", "61613"),
+
+    /**
+     * The login used to connect to the external message broker.
+     */
+    BROKER_RELAY_LOGIN("inarow.broker.login", "guest"),
+
+    /**
+     * The passcode used to connect to the external message broker.
+     */
+    BROKER_RELAY_PASSCODE("inarow.broker.passcode", "guest"),
+
+    /**
+     * The directory to keep the move journal in, used to recover games after a restart. If empty, no journal is kept.
+     */
+    JOURNAL_DIR("inarow.journal.dir", ""),
+
+    /**
+     * The size in megabytes of each move journal file.
+     */
+    JOURNAL_SEGMENT_MB("inarow.journal.segmentmb", "64"),
+
+    /**
+     * The interval in milliseconds at which move journal writes are flushed to disk together. Moves made since the last flush may be lost
+     * if the machine crashes.
+     */
+    JOURNAL_FLUSH_MILLIS("inarow.journal.flushmillis", "10"),
+
+    /**
+     * The interval in seconds at which a snapshot of all games is written and older move journal files are deleted.
+     */
+    JOURNAL_SNAPSHOT_SECONDS("inarow.journal.snapshotseconds", "60"),
+
+    /**
+     * The directory to archive finished games in, so that they can be replayed. If empty, finished games are not archived.
+     */
+    ARCHIVE_DIR("inarow.archive.dir", ""),
+
+    /**
+     * The default interval in milliseconds between the moves of a replayed game.
+     */
+    REPLAY_MOVE_MILLIS("inarow.replay.movemillis", "500"),
+
+    /**
+     * The number of threads that read the moves of replayed games from the archive and send them.
+     */
+    REPLAY_THREADS("inarow.replay.threads", "2"),
+
+    /**
+     * The time in milliseconds the bot opponent searches for each move.
+     */
+    BOT_MOVE_MILLIS("inarow.bot.movemillis", "1000"),
+
+    /**
+     * The number of threads searching moves for bot opponents. Each thread searches for one game at a time.
+     */
+    BOT_THREADS("inarow.bot.threads", "2"),
+
+    /**
+     * The size in megabytes of the transposition table of each bot search.
+     */
+    BOT_TABLE_MB("inarow.bot.tablemb", "16"),
+
+    /**
+     * The number of threads each bot search runs on, sharing one transposition table. 1 searches sequentially.
+     */
+    BOT_SEARCH_THREADS("inarow.bot.searchthreads", "1"),
+
+    /**
+     * The directory of solved-position files written by {@code PositionSolver}, used by the bot and for hints on boards small enough to
+     * solve. Empty to use none.
+     */
+    BOT_SOLVED_DIR("inarow.bot.solveddir", ""),
+
+    /**
+     * The file to write the Prometheus text format of the server's metrics to, for collection without scraping over HTTP. If empty, no file
+     * is written.
+     */
+    METRICS_FILE("inarow.metrics.file", ""),
+
+    /**
+     * The interval in seconds at which the metrics file is written.
+     */
+    METRICS_FILE_SECONDS("inarow.metrics.fileseconds", "15"),
+
+    /**
+     * The maximum number of connections the server accepts at once.
+     */
+    MAX_CONNECTIONS("inarow.maxconnections", "10000"),
+
+    /**
+     * The number of threads that process messages from clients. A value of 0 uses two threads per available processor. If {@link
+     * #VIRTUAL_THREADS} is set, it is instead the number of messages from clients processed at once, each on its own virtual thread, and a
+     * value of 0 allows 10000.
+     */
+    INBOUND_THREADS("inarow.inbound.threads", "0"),
+
+    /**
+     * The number of messages from clients that may wait to be processed. Once full, the thread receiving a message processes it itself. Not
+     * used with {@link #VIRTUAL_THREADS}, as messages then do not wait.
+     */
+    INBOUND_QUEUE_CAPACITY("inarow.inbound.queue", "10000"),
+
+    /**
+     * The number of threads that send messages to clients. A value of 0 uses two threads per available processor. If {@link
+     * #VIRTUAL_THREADS} is set, it is instead the number of messages to clients sent at once, each on its own virtual thread, and a value of
+     * 0 allows 10000.
+     */
+    OUTBOUND_THREADS("inarow.outbound.threads", "0"),
+
+    /**
+     * The number of messages to clients that may wait to be sent. Once full, a message to a client is dropped and the client disconnected.
+     * Not used with {@link #VIRTUAL_THREADS}, as messages then do not wait.
+     */
+    OUTBOUND_QUEUE_CAPACITY("inarow.outbound.queue", "10000"),
+
+    /**
+     * The size in kilobytes of the messages that may be buffered for a client that is slow to receive them, before its session is closed.
+     */
+    SEND_BUFFER_KB("inarow.send.bufferkb", "512"),
+
+    /**
+     * The time in milliseconds a message may take to be sent to a client, before its session is closed.
+     */
+    SEND_TIME_MILLIS("inarow.send.timemillis", "10000"),
+
+    /**
+     * How full, as a percentage of its capacity, the queue of messages from or to clients may be before new games are refused. With {@link
+     * #VIRTUAL_THREADS}, the percentage of the messages that may be processed at once.
+     */
+    SHED_QUEUE_PERCENT("inarow.shed.queuepercent", "80"),
+
+    /**
+     * Whether to process messages from and to clients on virtual threads, so that a thread blocked sending to a slow client or writing to disk
+     * costs little. Needs Java 21 or later.
+     */
+    VIRTUAL_THREADS("inarow.virtualthreads", "false"),
+
+    /**
+     * The time in seconds a game in progress, or waiting for a player, may go without a move or a player joining before it is ended.
+     */
+    GAME_IDLE_SECONDS("inarow.game.idleseconds", "600"),
+
+    /**
+     * The time in seconds a won or drawn game is kept after its last move, so that its players may still resync it, before it is removed.
+     */
+    GAME_FINISHED_SECONDS("inarow.game.finishedseconds", "60"),
+
+    /**
+     * The number of moves per second each client may send on average. Moves beyond the limit are dropped. A value of 0 sets no limit.
+     */
+    MOVE_RATE("inarow.move.rate", "10"),
+
+    /**
+     * The number of moves each client may send at once, before {@link #MOVE_RATE} applies.
+     */
+    MOVE_BURST("inarow.move.burst", "20");
 
     private final String name;
     private final String value;
@@ -48,7 +233,16 @@ public enum SystemProperties {
      * @return the integer value for this property. If no System Property exits for the given property, then the default value is returned.
      */
     public int getValue() {
-        return Integer.parseInt(System.getProperty(name, value));
+        return Integer.parseInt(getStringValue());
+    }
+
+    /**
+     * Get the string value for this property.
+     *
+     * @return the string value for this property. If no System Property exits for the given property, then the default value is returned.
+     */
+    public String getStringValue() {
+        return System.getProperty(name, value);
     }
 
 }
@@ -0,0 +1,112 @@
+package com.otisliddy.fiveinarow.config;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Runs each task on a new thread of its own, as is usual for virtual threads, rather than on a pool of threads taking tasks from a queue.
+ * At most a fixed number of tasks run at once. A task arriving while that many are running is passed to the executor's {@link
+ * RejectedExecutionHandler}, just as a task arriving at the full queue of a pool would be.
+ * <p>It is a {@link ThreadPoolTaskExecutor} only so that it can be registered as a client channel's executor. The pool it initializes is
+ * never given a task. {@link LoadShedder} reads how many tasks are running against the limit instead of how full the pool's queue is.</p>
+ */
+class VirtualThreadTaskExecutor extends ThreadPoolTaskExecutor {
+
+    private final ExecutorService threadPerTaskExecutor;
+    private final Semaphore permits;
+    private final int limit;
+    private RejectedExecutionHandler rejectedExecutionHandler = new ThreadPoolExecutor.AbortPolicy();
+
+    /**
+     * Construct an instance of {@code VirtualThreadTaskExecutor}.
+     *
+     * @param threadPerTaskExecutor
+     *            the executor starting a new thread for each task.
+     * @param limit
+     *            the number of tasks that may run at once.
+     */
+    VirtualThreadTaskExecutor(ExecutorService threadPerTaskExecutor, int limit) {
+        this.threadPerTaskExecutor = threadPerTaskExecutor;
+        this.permits = new Semaphore(limit);
+        this.limit = limit;
+        setCorePoolSize(1);
+        setMaxPoolSize(1);
+        setQueueCapacity(0);
+    }
+
+    @Override
+    public void setRejectedExecutionHandler(RejectedExecutionHandler rejectedExecutionHandler) {
+        super.setRejectedExecutionHandler(rejectedExecutionHandler);
+        this.rejectedExecutionHandler = rejectedExecutionHandler != null ? rejectedExecutionHandler : new ThreadPoolExecutor.AbortPolicy();
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (!permits.tryAcquire()) {
+            rejectedExecutionHandler.rejectedExecution(task, getThreadPoolExecutor());
+            return;
+        }
+        try {
+            threadPerTaskExecutor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RuntimeException exception) {
+            permits.release();
+            throw exception;
+        }
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        final FutureTask<Object> future = new FutureTask<>(task, null);
+        execute(future);
+        return future;
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        final FutureTask<T> future = new FutureTask<>(task);
+        execute(future);
+        return future;
+    }
+
+    @Override
+    public int getActiveCount() {
+        return getInFlight();
+    }
+
+    @Override
+    public void shutdown() {
+        threadPerTaskExecutor.shutdown();
+        super.shutdown();
+    }
+
+    /**
+     * Get the number of tasks running.
+     *
+     * @return the number of tasks running.
+     */
+    int getInFlight() {
+        return limit - permits.availablePermits();
+    }
+
+    /**
+     * Get the number of tasks that may run at once.
+     *
+     * @return the limit of tasks running.
+     */
+    int getLimit() {
+        return limit;
+    }
+}
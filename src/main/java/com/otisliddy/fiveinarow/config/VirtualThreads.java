@@ -0,0 +1,72 @@
+package com.otisliddy.fiveinarow.config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates virtual threads when running on Java 21 or later. The server is built for Java 11, so the virtual thread API is looked up by
+ * reflection, once, when a factory is first asked for.
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Whether the running JVM supports virtual threads.
+     *
+     * @return {@code true} if virtual threads can be created.
+     */
+    static boolean isSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException exception) {
+            return false;
+        }
+    }
+
+    /**
+     * Get a factory of virtual threads named with a prefix followed by a number counting up from 0.
+     *
+     * @param prefix
+     *            the prefix of the thread names.
+     * @return the factory.
+     * @throws IllegalStateException
+     *             if the running JVM does not support virtual threads.
+     */
+    static ThreadFactory factory(String prefix) {
+        if (!isSupported()) {
+            throw new IllegalStateException("Virtual threads need Java 21 or later, but this is Java " + System.getProperty("java.version"));
+        }
+        try {
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            final Method name = builderClass.getMethod("name", String.class, long.class);
+            final Method factory = builderClass.getMethod("factory");
+            final Object builder = name.invoke(Thread.class.getMethod("ofVirtual").invoke(null), prefix, 0L);
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException exception) {
+            throw new IllegalStateException("Could not create a factory of virtual threads", exception);
+        }
+    }
+
+    /**
+     * Get an executor starting a new virtual thread for each task, named with a prefix followed by a number counting up from 0.
+     *
+     * @param prefix
+     *            the prefix of the thread names.
+     * @return the executor.
+     * @throws IllegalStateException
+     *             if the running JVM does not support virtual threads.
+     */
+    static ExecutorService threadPerTaskExecutor(String prefix) {
+        final ThreadFactory factory = factory(prefix);
+        try {
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+        } catch (ReflectiveOperationException exception) {
+            throw new IllegalStateException("Could not create an executor of virtual threads", exception);
+        }
+    }
+}
@@ -1,19 +1,116 @@
 package com.otisliddy.fiveinarow.config;
 
+import java.util.List;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import com.otisliddy.fiveinarow.metrics.GameMetrics;
 
+/**
+ * Configures STOMP messaging over WebSockets.
+ * <p>By default messages are brokered in memory by this server. If {@link SystemProperties#BROKER_RELAY_HOST} is set, subscriptions and
+ * broadcasts are instead relayed to an external STOMP broker, so that several game servers can sit behind one broker. The in-memory broker
+ * does not acknowledge subscriptions, so {@link SubscriptionReceipts} sends the receipts clients ask for, which an external broker sends
+ * itself.</p>
+ * <p>Messages from and to clients are processed on pools of {@link SystemProperties#INBOUND_THREADS} and {@link
+ * SystemProperties#OUTBOUND_THREADS} threads, each with a queue of bounded capacity. A message from a client arriving at the full inbound
+ * queue is processed by the thread reading it, which slows that client down rather than dropping the message, and {@link LoadShedder}
+ * refuses new games well before that happens. A message to a client arriving at the full outbound queue is dropped by {@link
+ * SlowSessionPolicy}, which disconnects the client, so that no game's worker waits on a slow client. A client whose messages take longer than
+ * {@link SystemProperties#SEND_TIME_MILLIS} ms to send, or build up beyond {@link SystemProperties#SEND_BUFFER_KB} KB, is also
+ * disconnected.</p>
+ * <p>If {@link SystemProperties#VIRTUAL_THREADS} is set, each message is instead processed on a virtual thread of its own, so many more
+ * messages can wait on slow clients at once. There are no queues then. Up to {@link SystemProperties#INBOUND_THREADS} and {@link
+ * SystemProperties#OUTBOUND_THREADS} messages are processed at once, and a message arriving beyond that is treated as one arriving at a full
+ * queue. {@link LoadShedder} refuses new games once that many messages are being processed, in place of the queues filling.</p>
+ * <p>Moves from each client are limited to a steady rate by {@link MoveRateLimiter}, before they are queued.</p>
+ * <p>Broadcasts and their deliveries to subscribers are counted by {@link GameMetrics}.</p>
+ */
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private static final int VIRTUAL_THREAD_LIMIT = 10_000;
+
+    @Autowired
+    private GameMetrics gameMetrics;
+    @Autowired
+    private MoveRateLimiter moveRateLimiter;
+    @Autowired
+    private SubscriptionReceipts subscriptionReceipts;
+    @Autowired
+    private SlowSessionPolicy slowSessionPolicy;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic", "/queue");
+        final String relayHost = SystemProperties.BROKER_RELAY_HOST.getStringValue();
+        if (relayHost.isEmpty()) {
+            config.enableSimpleBroker("/topic", "/queue");
+        } else {
+            final String login = SystemProperties.BROKER_RELAY_LOGIN.getStringValue();
+            final String passcode = SystemProperties.BROKER_RELAY_PASSCODE.getStringValue();
+            config.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(SystemProperties.BROKER_RELAY_PORT.getValue())
+                    .setClientLogin(login)
+                    .setClientPasscode(passcode)
+                    .setSystemLogin(login)
+                    .setSystemPasscode(passcode);
+        }
         config.setApplicationDestinationPrefixes("/fiveinarow");
+        config.configureBrokerChannel().interceptors(gameMetrics.broadcastInterceptor());
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor(executor("inbound-", SystemProperties.INBOUND_THREADS.getValue(),
+                SystemProperties.INBOUND_QUEUE_CAPACITY.getValue(), new ThreadPoolExecutor.CallerRunsPolicy()));
+        registration.interceptors(moveRateLimiter);
+        if (SystemProperties.BROKER_RELAY_HOST.getStringValue().isEmpty()) {
+            registration.interceptors(subscriptionReceipts);
+        }
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor(executor("outbound-", SystemProperties.OUTBOUND_THREADS.getValue(),
+                SystemProperties.OUTBOUND_QUEUE_CAPACITY.getValue(), slowSessionPolicy));
+        registration.interceptors(gameMetrics.deliveryInterceptor());
+    }
+
+    private static ThreadPoolTaskExecutor executor(String virtualThreadPrefix, int numThreads, int queueCapacity,
+            RejectedExecutionHandler rejectedExecutionHandler) {
+        final ThreadPoolTaskExecutor executor;
+        if (Boolean.parseBoolean(SystemProperties.VIRTUAL_THREADS.getStringValue())) {
+            executor = new VirtualThreadTaskExecutor(VirtualThreads.threadPerTaskExecutor(virtualThreadPrefix),
+                    numThreads > 0 ? numThreads : VIRTUAL_THREAD_LIMIT);
+        } else {
+            final int size = numThreads > 0 ? numThreads : 2 * Runtime.getRuntime().availableProcessors();
+            executor = new ThreadPoolTaskExecutor();
+            executor.setCorePoolSize(size);
+            executor.setMaxPoolSize(size);
+            executor.setQueueCapacity(queueCapacity);
+        }
+        executor.setRejectedExecutionHandler(rejectedExecutionHandler);
+        return executor;
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendBufferSizeLimit(SystemProperties.SEND_BUFFER_KB.getValue() * 1024)
+                .setSendTimeLimit(SystemProperties.SEND_TIME_MILLIS.getValue())
+                .addDecoratorFactory(slowSessionPolicy);
     }
 
     @Override
@@ -21,4 +118,10 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.addEndpoint("/5-in-a-row").withSockJS().setDisconnectDelay(400).setHeartbeatTime(400);
     }
 
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        messageConverters.add(new GameStateMessageConverter());
+        return true;
+    }
+
 }
@@ -1,166 +1,629 @@
 package com.otisliddy.fiveinarow.controller;
 
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Arrays;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Objects;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Controller;
+import org.springframework.util.MimeType;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 
-import com.otisliddy.fiveinarow.config.SystemProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.otisliddy.fiveinarow.ai.BotPlayer;
+import com.otisliddy.fiveinarow.ai.Hint;
+import com.otisliddy.fiveinarow.archive.GameArchive;
+import com.otisliddy.fiveinarow.config.GameStateMessageConverter;
+import com.otisliddy.fiveinarow.config.LoadShedder;
 import com.otisliddy.fiveinarow.exception.IllegalMoveException;
+import com.otisliddy.fiveinarow.game.EncodedStateCache;
+import com.otisliddy.fiveinarow.game.Game;
+import com.otisliddy.fiveinarow.game.GameExecutor;
+import com.otisliddy.fiveinarow.game.GameRegistry;
 import com.otisliddy.fiveinarow.game.GameState;
+import com.otisliddy.fiveinarow.game.GameStateCodec;
 import com.otisliddy.fiveinarow.game.GameStatus;
+import com.otisliddy.fiveinarow.game.MoveEvent;
 import com.otisliddy.fiveinarow.game.Player;
+import com.otisliddy.fiveinarow.game.Variant;
+import com.otisliddy.fiveinarow.journal.MoveJournal;
+import com.otisliddy.fiveinarow.lobby.Lobby;
+import com.otisliddy.fiveinarow.metrics.GameMetrics;
 
 /**
- * Receives and processes WebSocket messages prefixed by '/fiveinarow'
+ * Receives and processes WebSocket messages prefixed by '/fiveinarow'. Any number of games may run at once. Each message is routed to the game
+ * its WebSocket session is playing in, and each game's messages are sent to destinations suffixed with the game ID.
+ * <p>Players may also connect to the raw WebSocket endpoint of {@link RawGameHandler}, which calls the same methods. The messages of a game
+ * are then also sent to those of its players in the {@link RawProtocol} through {@link RawSessions}.</p>
+ * <p>Whole game states are sent already encoded, from the game's {@link EncodedStateCache}, so each version of a game's state is encoded once
+ * in each format however many clients it is sent to, rather than once per send.</p>
+ * <p>Games that expire in the {@link GameRegistry} are evicted: a game in progress is ended as if a player had disconnected, and a finished
+ * game is removed without a message, as its players have already seen the result.</p>
  */
 @Controller
 public class GameController {
 
     private static final Logger logger = LoggerFactory.getLogger(GameController.class);
-    private static final int NUM_ROWS = SystemProperties.NUM_ROWS.getValue();
-    private static final int NUM_COLUMNS = SystemProperties.NUM_COLUMNS.getValue();
-    private static final int IN_A_ROW_TO_WIN = SystemProperties.IN_A_ROW_TO_WIN.getValue();
     private static final String ENDPOINT_START = "/start";
     private static final String ENDPOINT_MOVE = "/move";
     private static final String QUEUE_START = "/queue/start";
+    private static final String QUEUE_START_REJECTED = "/queue/start-rejected";
+    private static final String SERVER_BUSY = "The server is too busy to start a new game. Please try again later.";
     private static final String TOPIC_MOVES = "/topic/moves";
+    private static final String TOPIC_STATE = "/topic/state";
+    private static final String ENDPOINT_READY = "/ready";
+    private static final String ENDPOINT_RESYNC = "/resync";
+    private static final String ENDPOINT_REJOIN = "/rejoin";
+    private static final String ENDPOINT_SPECTATE = "/spectate";
+    private static final String ENDPOINT_HINT = "/hint";
+    private static final String QUEUE_HINT = "/queue/hint";
+    private static final String QUEUE_STATE = "/queue/state";
     private static final String QUEUE_ILLEGAL_MOVE = "/queue/illegal-move";
     private static final String TOPIC_DISCONNECTED = "/topic/disconnected";
+    private static final String HEADER_VARIANT = "variant";
+    private static final String HEADER_RATING = "rating";
+    private static final String HEADER_OPPONENT = "opponent";
+    static final String OPPONENT_BOT = "bot";
+    private static final String HEADER_GAME_ID = "gameId";
+    private static final String HEADER_PLAYER_ID = "playerId";
+    private static final long START_TIMEOUT_MILLIS = 2000;
+    private static final MimeType JSON = new MimeType("application", "json", StandardCharsets.UTF_8);
+    private static final Function<GameState, byte[]> BINARY_ENCODER = GameStateCodec::encode;
+    private static final String IDLE_TOO_LONG = "The game has been idle for too long. Game over.";
 
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
     @Autowired
-    private GameState gameState;
-    private Player playerOne = null;
-    private Player playerTwo = null;
-    private AtomicInteger playerId = new AtomicInteger(1);
+    private GameRegistry gameRegistry;
+    @Autowired
+    private Lobby lobby;
+    @Autowired
+    private GameExecutor gameExecutor;
+    @Autowired
+    private MoveJournal moveJournal;
+    @Autowired
+    private GameArchive gameArchive;
+    @Autowired
+    private BotPlayer botPlayer;
+    @Autowired
+    private GameMetrics gameMetrics;
+    @Autowired
+    private LoadShedder loadShedder;
+    @Autowired
+    private RawSessions rawSessions;
+    @Autowired
+    @Qualifier("messageBrokerTaskScheduler")
+    private TaskScheduler taskScheduler;
+    @Autowired
+    private ObjectMapper objectMapper;
+    private final Function<GameState, byte[]> jsonEncoder = this::toJson;
+
+    /**
+     * Start evicting expired games.
+     */
+    @PostConstruct
+    public void open() {
+        taskScheduler.scheduleAtFixedRate(() -> gameRegistry.expire(this::evictGame), Duration.ofMillis(GameRegistry.EXPIRY_TICK_MILLIS));
+    }
 
     /**
      * Processes a message request from a client to start a game as a new player. This endpoitn must be called before a client calls
-     * {@value ENDPOINT_MOVE}. The method sends a {@link Player} object to the client which represents the client's new player details.
+     * {@value ENDPOINT_MOVE}. The method sends a {@link Player} object to the client which represents the client's new player details,
+     * including the ID of the game the player has joined.
      * <p>
-     * If this method is called for the second time for a game, a message is also sent to {@value TOPIC_MOVES} for connected clients to receive
-     * the initial game state.
+     * The caller is matched in the {@link Lobby} with players who want the same game variant and have a similar rating, optionally given by the
+     * {@value HEADER_VARIANT} header, e.g. {@code 6x9x5}, and the {@value HEADER_RATING} header. If no such player is waiting, a new game is
+     * created with the caller as player 1. Otherwise the caller joins the waiting player's game as player 2.
      * </p>
-     *
-     * <p>Only two active clients during a game are supported, i.e. two players. If this method is called for a third time during the same game, a
-     * player will be returned with ID=3, but that player should not be allowed by the client to call {@value ENDPOINT_MOVE}.
+     * <p>
+     * If the {@value HEADER_OPPONENT} header is {@value OPPONENT_BOT}, the caller skips the lobby and plays as player 1 against a {@link
+     * BotPlayer} as player 2.
+     * </p>
+     * <p>
+     * Once both players have called {@value ENDPOINT_READY}, the initial game state is sent to {@value TOPIC_STATE}/{gameId}. Clients
+     * subscribe after receiving their {@code Player}, so the initial state always arrives after it. If a client is not ready within {@value
+     * START_TIMEOUT_MILLIS} ms of the second player joining, the initial state is sent anyway, and is sent to the client again once it is.
+     * </p>
+     * <p>
+     * If the {@link LoadShedder} finds the server overloaded, no game is started. Instead a message saying so is sent to the calling client
+     * only, at {@value QUEUE_START_REJECTED}, so that games in progress are not slowed down by new ones.
      * </p>
      *
      * @param name
      *            the name to assign to the player to be associated with the calling client.
-     * @return the {@code Player} object to be  associated with the calling client.
+     * @param sessionId
+     *            the ID of the WebSocket session of the calling client.
+     * @param variant
+     *            the game variant to play, or {@code null} for the variant configured through system properties.
+     * @param rating
+     *            the rating of the player, or {@code null} if the player is unrated.
+     * @param opponent
+     *            {@value OPPONENT_BOT} to play against the computer, or {@code null} to play against another player.
+     * @return the {@code Player} object to be  associated with the calling client, or {@code null} if the server is overloaded, in which case
+     *         no {@code Player} is sent.
      */
     @MessageMapping(ENDPOINT_START)
     @SendToUser(QUEUE_START)
-    public Player start(@Payload String name) {
+    public Player start(@Payload String name, @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId,
+            @Header(name = HEADER_VARIANT, required = false) String variant, @Header(name = HEADER_RATING, required = false) Integer rating,
+            @Header(name = HEADER_OPPONENT, required = false) String opponent) {
         logger.info("/start endpoint called with payload '{}' ", name);
 
-        final Player player = new Player(name, playerId.getAndIncrement());
-        logger.debug("Creating player {}", player);
+        if (loadShedder.isOverloaded()) {
+            logger.warn("Refusing to start a game for session {} as the server is overloaded", sessionId);
+            gameMetrics.startRejected();
+            if (RawSessions.isRaw(sessionId)) {
+                rawSessions.send(sessionId, RawProtocol.text(RawProtocol.REJECTED, SERVER_BUSY));
+            } else {
+                messagingTemplate.convertAndSendToUser(sessionId, QUEUE_START_REJECTED, SERVER_BUSY, sessionHeaders(sessionId, null));
+            }
+            return null;
+        }
+        Variant gameVariant = variant == null ? null : Variant.parse(variant);
+        if (gameVariant == null) {
+            if (variant != null) {
+                logger.debug("Ignoring invalid variant '{}'", variant);
+            }
+            gameVariant = Variant.defaultVariant();
+        }
+        if (OPPONENT_BOT.equals(opponent)) {
+            return startBotGame(name, sessionId, gameVariant);
+        }
+        final Player player = lobby.join(lobby.matchKey(gameVariant, rating), name, sessionId);
+        logger.debug("Player {} joined game {}", player, player.getGameId());
+        final long gameId = player.getGameId();
+        final Variant journaledVariant = gameVariant;
         if (player.getId() == 1) {
-            playerOne = player;
-            gameState.setPlayerToMove(player);
-        } else if (player.getId() == 2) {
-            playerTwo = player;
-            final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
-            // delay to make sure /topic/moves message is sent after /queue/start
-            executor.schedule(() -> messagingTemplate.convertAndSend(TOPIC_MOVES, gameState), 50, TimeUnit.MILLISECONDS);
+            gameExecutor.execute(gameId, () -> moveJournal.gameCreated(gameId, journaledVariant));
+        } else {
+            gameExecutor.execute(gameId, () -> moveJournal.playerJoined(gameId, journaledVariant));
+        }
+        final Game game = gameRegistry.get(gameId);
+        if (player.getId() == 2 && game != null) {
+            startIfReady(game, false);
+            taskScheduler.schedule(() -> startIfReady(game, true), Instant.now().plusMillis(START_TIMEOUT_MILLIS));
         }
-
         return player;
     }
 
+    private Player startBotGame(String name, String sessionId, Variant variant) {
+        final Game game = gameRegistry.create(variant, name, sessionId);
+        game.joinBot(BotPlayer.NAME);
+        logger.debug("Player {} started game {} against the bot", game.getPlayerOne(), game.getId());
+        gameExecutor.execute(game.getId(), () -> {
+            moveJournal.gameCreated(game.getId(), variant);
+            moveJournal.playerJoined(game.getId(), variant);
+        });
+        taskScheduler.schedule(() -> startIfReady(game, true), Instant.now().plusMillis(START_TIMEOUT_MILLIS));
+        return game.getPlayerOne();
+    }
+
     /**
-     * Processes a message request from a client to make a move in the provided grid column. Upon successfgul updating of the game, the {@code
-     * GameState} is sent to {@value TOPIC_MOVES}. The game state may have three statuses:
+     * Processes a message from a client that it is ready for its game to start. Subscriptions are registered asynchronously, so a client sends
+     * this only once its subscriptions to the game's destinations have been acknowledged with STOMP receipts, and so is sure to receive
+     * whatever is sent to them from then on. When both players of a game are ready, the initial game state is sent to {@value
+     * TOPIC_STATE}/{gameId}. If the game has already started, as it does without waiting for a player who is not ready within {@value
+     * START_TIMEOUT_MILLIS} ms, the game state is sent to the calling client only, at {@value QUEUE_STATE}.
+     *
+     * @param sessionId
+     *            the ID of the WebSocket session of the calling client.
+     */
+    @MessageMapping(ENDPOINT_READY)
+    public void ready(@Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId) {
+        final Game game = gameRegistry.getBySession(sessionId);
+        if (game == null) {
+            logger.debug("Ignoring ready from session {} which is not in a game", sessionId);
+            return;
+        }
+        game.markReady(sessionId);
+        if (game.isStarted()) {
+            gameExecutor.execute(game.getId(), () -> sendStateToUser(game, sessionId, JSON));
+        } else {
+            startIfReady(game, false);
+        }
+    }
+
+    /**
+     * Handles a raw client having joined a game through {@link #start}. The client receives the game state without subscribing, so it is
+     * ready for the game to start straight away, without calling {@value ENDPOINT_READY}.
+     *
+     * @param sessionId
+     *            the ID of the raw session of the client.
+     */
+    void rawPlayerJoined(String sessionId) {
+        final Game game = gameRegistry.getBySession(sessionId);
+        if (game != null) {
+            game.markReady(sessionId);
+            startIfReady(game, false);
+        }
+    }
+
+    private void startIfReady(Game game, boolean force) {
+        if (gameRegistry.get(game.getId()) == game && game.claimStart(force)) {
+            logger.debug("Starting game {}", game.getId());
+            gameExecutor.execute(game.getId(), () -> {
+                sendState(game, TOPIC_STATE + "/" + game.getId(), null, JSON);
+                if (RawSessions.hasRawPlayer(game)) {
+                    rawSessions.sendToPlayers(game, game.getEncodedState().get(RawProtocol.STATE_ENCODER));
+                }
+                final long joinedNanos = game.getPlayerTwoJoinedNanos();
+                if (joinedNanos != 0) {
+                    gameMetrics.started(System.nanoTime() - joinedNanos);
+                }
+            });
+        }
+    }
+
+    /**
+     * Processes a message request from a client to make a move in the provided grid column. Upon successfgul updating of the game, a {@link
+     * MoveEvent} describing the move is sent to {@value TOPIC_MOVES}/{gameId}. Clients apply the event to the {@code GameState} they last
+     * received, and may call {@value ENDPOINT_RESYNC} to receive the whole {@code GameState} again. The game status after the move may be:
      * <ol>
      * <li>{@code IN_PROGRESS}: The game has been started but has not been completed.</li>
-     * <li>{@code IN_PROGRESS}: The game has been won by a player In this case the game state's {@code playerToMove} indicates the winner of
+     * <li>{@code IN_PROGRESS}: The game has been won by a player In this case the event's {@code playerToMove} indicates the winner of
      * the game.
      * </li>
      * <li>{@code IN_PROGRESS}: The game has ended in a draw.</li>
      * </ol>
      *
-     * <p>If the column does not exist, or the column is full, no message will be sent to a message will be sent to {@value TOPIC_MOVES}. Instead  a
-     * message will be sent to {@value QUEUE_ILLEGAL_MOVE} of an {@code IllegalMove} object, containing details of the illegal move. This message
-     * should be ignored by the player who did not make the illegal move.
+     * <p>If the column does not exist, or the column is full, no message will be sent to a message will be sent to {@value TOPIC_MOVES}/{gameId}.
+     * Instead  a message will be sent to the calling client only, at {@value QUEUE_ILLEGAL_MOVE}, of an {@code IllegalMove} object, containing
+     * details of the illegal move.
      * </p>
+     * <p>The move is applied asynchronously by the game's {@link GameExecutor} worker, so that moves for a game are applied strictly one at a
+     * time while moves for different games run in parallel. Moves from a client whose player is not the player to move, or made once the game
+     * is over, are ignored.</p>
+     * <p>If the other player is a {@link BotPlayer}, its reply is chosen after the move and applied in the same way.</p>
      *
      * @param column
      *            the column to make the move in.
+     * @param sessionId
+     *            the ID of the WebSocket session of the calling client, used to find the game to make the move in.
      */
     @MessageMapping(ENDPOINT_MOVE)
-    public void move(@Payload int column) {
+    public void move(@Payload int column, @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId) {
         logger.info("/move endpoint called with payload '{}' ", column);
 
+        final Game game = gameRegistry.getBySession(sessionId);
+        if (game == null) {
+            logger.debug("Ignoring move from session {} which is not in a game", sessionId);
+            return;
+        }
+        gameExecutor.execute(game.getId(), () -> {
+            try {
+                applyMove(game, column, sessionId);
+            } catch (RuntimeException exception) {
+                logger.error("There was an internal server error: {}", exception);
+                endGame(game, "There was an internal server error: " + exception);
+            }
+        });
+    }
+
+    /**
+     * Make a move in a game. Only called from the game's {@link GameExecutor} worker, so moves for each game are applied one at a time.
+     */
+    private void applyMove(Game game, int column, String sessionId) {
+        final GameState gameState = game.getState();
+        if (game.isFinished() || gameState.getStatus() != GameStatus.IN_PROGRESS) {
+            logger.debug("Ignoring move from session {} in finished game {}", sessionId, game.getId());
+            return;
+        }
+        final Player playerToMove = gameState.getPlayerToMove();
+        final String sessionToMove = playerToMove == null ? null
+                : playerToMove.getId() == 1 ? game.getPlayerOneSessionId() : game.getPlayerTwoSessionId();
+        if (playerToMove == null || !Objects.equals(sessionId, sessionToMove)) {
+            logger.debug("Ignoring move from session {} out of turn in game {}", sessionId, game.getId());
+            return;
+        }
+        final long startNanos = System.nanoTime();
         try {
             gameState.addDisc(column, gameState.getPlayerToMove().getId());
         } catch (IllegalMoveException exception) {
+            gameMetrics.illegalMove();
             logger.debug("Illegal move by playerId={}: {}", exception.getIllegalMove().getPlayerId(), exception.getIllegalMove().getMessage());
-            messagingTemplate.convertAndSend(QUEUE_ILLEGAL_MOVE, exception.getIllegalMove());
+            if (RawSessions.isRaw(sessionId)) {
+                rawSessions.send(sessionId, RawProtocol.illegalMove(exception.getIllegalMove()));
+            } else {
+                messagingTemplate.convertAndSendToUser(sessionId, QUEUE_ILLEGAL_MOVE, exception.getIllegalMove(), sessionHeaders(sessionId, null));
+            }
             return;
         }
 
+        final int playerId = gameState.getPlayerToMove().getId();
+        gameRegistry.touch(game);
+        moveJournal.moveMade(game.getId(), gameState.getMoveCount(), column, playerId);
+        game.recordMove(column);
         if (gameState.getStatus().equals(GameStatus.IN_PROGRESS)) {
-            Player playerToMove = gameState.getPlayerToMove().equals(playerOne) ? playerTwo : playerOne;
-            gameState.setPlayerToMove(playerToMove);
+            game.switchPlayerToMove();
+        } else {
+            game.markFinished();
+            gameArchive.archive(game);
+            gameMetrics.gameFinished(gameState.getStatus());
         }
 
-        logger.debug("Move completed, with game state'{}' ", gameState.getStatus());
-        logger.debug("Game grid: {}", Arrays.deepToString(gameState.getGrid()));
-        messagingTemplate.convertAndSend(TOPIC_MOVES, gameState);
+        logger.debug("Move completed in game {}, with game state'{}' ", game.getId(), gameState.getStatus());
+        if (logger.isDebugEnabled()) {
+            logger.debug("Game grid: {}", Arrays.deepToString(gameState.getGrid()));
+        }
+        final MoveEvent event = new MoveEvent(gameState.getMoveCount(), column, gameState.getHeight(column) - 1, playerId, gameState.getStatus(),
+                gameState.getPlayerToMove());
+        messagingTemplate.convertAndSend(TOPIC_MOVES + "/" + game.getId(), event);
+        if (RawSessions.hasRawPlayer(game)) {
+            rawSessions.sendToPlayers(game, RawProtocol.moved(event));
+        }
+        gameMetrics.moveApplied(System.nanoTime() - startNanos);
+        if (game.isBotToMove()) {
+            requestBotMove(game);
+        }
+    }
+
+    /**
+     * Ask the bot for its move in a game, and apply the move once chosen unless the game has changed meanwhile. Only called from the game's
+     * {@link GameExecutor} worker.
+     */
+    private void requestBotMove(Game game) {
+        final int moveCount = game.getState().getMoveCount();
+        botPlayer.chooseMove(game.getState()).thenAccept(result -> gameExecutor.execute(game.getId(), () -> {
+            if (gameRegistry.get(game.getId()) != game || game.getState().getMoveCount() != moveCount || !game.isBotToMove()) {
+                return;
+            }
+            try {
+                applyMove(game, result.getColumn(), null);
+            } catch (RuntimeException exception) {
+                logger.error("There was an internal server error: {}", exception);
+                endGame(game, "There was an internal server error: " + exception);
+            }
+        }));
     }
 
     /**
-     * Handles unexpected server exceptions and sends a message to {@value TOPIC_DISCONNECTED}. The client should then discontinue the game.
+     * Processes a message request from a client to receive the whole {@link GameState} of its game again, for example after missing a {@link
+     * MoveEvent}. The game state is sent to the calling client only, at {@value QUEUE_STATE}.
+     * <p>If the request has a {@code content-type} header of {@value GameStateMessageConverter#CONTENT_TYPE}, the game state is sent in the
+     * compact binary encoding of {@link GameStateCodec}. Otherwise it is sent as JSON.</p>
+     *
+     * @param sessionId
+     *            the ID of the WebSocket session of the calling client.
+     * @param contentType
+     *            the content type of the request, if any.
+     */
+    @MessageMapping(ENDPOINT_RESYNC)
+    public void resync(@Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId,
+            @Header(name = MessageHeaders.CONTENT_TYPE, required = false) MimeType contentType) {
+        final Game game = gameRegistry.getBySession(sessionId);
+        if (game == null) {
+            logger.debug("Ignoring resync from session {} which is not in a game", sessionId);
+            return;
+        }
+        if (RawSessions.isRaw(sessionId)) {
+            gameExecutor.execute(game.getId(), () -> rawSessions.send(sessionId, game.getEncodedState().get(RawProtocol.STATE_ENCODER)));
+            return;
+        }
+        final MimeType replyContentType = GameStateMessageConverter.MIME_TYPE.equalsTypeAndSubtype(contentType) ? contentType : JSON;
+        gameExecutor.execute(game.getId(), () -> sendStateToUser(game, sessionId, replyContentType));
+    }
+
+    /**
+     * Processes a message request from a client for the best move in its game. If it is the client's turn and the {@link BotPlayer} has
+     * solved every position of the game's board, a {@link Hint} is sent to the calling client only, at {@value QUEUE_HINT}. Otherwise no
+     * message is sent.
+     *
+     * @param sessionId
+     *            the ID of the WebSocket session of the calling client.
+     */
+    @MessageMapping(ENDPOINT_HINT)
+    public void hint(@Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId) {
+        final Game game = gameRegistry.getBySession(sessionId);
+        if (game == null) {
+            logger.debug("Ignoring hint request from session {} which is not in a game", sessionId);
+            return;
+        }
+        gameExecutor.execute(game.getId(), () -> {
+            final GameState gameState = game.getState();
+            final Player playerToMove = gameState.getPlayerToMove();
+            if (gameState.getStatus() != GameStatus.IN_PROGRESS || playerToMove == null
+                    || !sessionId.equals(playerToMove.getId() == 1 ? game.getPlayerOneSessionId() : game.getPlayerTwoSessionId())) {
+                return;
+            }
+            final Hint hint = botPlayer.hint(gameState);
+            if (hint != null) {
+                messagingTemplate.convertAndSendToUser(sessionId, QUEUE_HINT, hint, sessionHeaders(sessionId, null));
+            }
+        });
+    }
+
+    /**
+     * Processes a message request from a client to take the place of a player in an existing game, after the game has been recovered from the
+     * {@link MoveJournal} on a restart of the server. The {@link Player} object of the rejoined player is sent to the calling client at {@value
+     * QUEUE_START}, like {@value ENDPOINT_START}, followed by the whole {@link GameState} of the game at {@value QUEUE_STATE}.
+     * <p>A player can only be rejoined while no WebSocket session is playing as them, so a player still connected cannot be displaced. The
+     * player is rejoined by the game's {@link GameExecutor} worker, so that the game's players change only between its moves, and only one of
+     * several clients rejoining as the same player at once succeeds. No message is sent to the others.</p>
+     *
+     * @param name
+     *            the name of the rejoining player.
+     * @param sessionId
+     *            the ID of the WebSocket session of the calling client.
+     * @param gameId
+     *            the ID of the game to rejoin, given by the {@value HEADER_GAME_ID} header.
+     * @param playerId
+     *            the ID of the player to rejoin as, 1 or 2, given by the {@value HEADER_PLAYER_ID} header.
+     */
+    @MessageMapping(ENDPOINT_REJOIN)
+    public void rejoin(@Payload String name, @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId,
+            @Header(HEADER_GAME_ID) long gameId, @Header(HEADER_PLAYER_ID) int playerId) {
+        logger.info("/rejoin endpoint called with payload '{}' ", name);
+
+        final Game game = gameRegistry.get(gameId);
+        if (game == null || (playerId != 1 && playerId != 2)) {
+            logger.debug("Ignoring rejoin of player {} to game {}", playerId, gameId);
+            return;
+        }
+        gameExecutor.execute(gameId, () -> {
+            if (gameRegistry.get(gameId) != game || game.getPlayerTwo() == null) {
+                logger.debug("Ignoring rejoin of player {} to game {}", playerId, gameId);
+                return;
+            }
+            final String currentSessionId = playerId == 1 ? game.getPlayerOneSessionId() : game.getPlayerTwoSessionId();
+            if (currentSessionId != null) {
+                logger.debug("Ignoring rejoin of player {} to game {}, who is still connected", playerId, gameId);
+                return;
+            }
+            final Player player = gameRegistry.rejoin(game, playerId, name, sessionId);
+            messagingTemplate.convertAndSendToUser(sessionId, QUEUE_START, player, sessionHeaders(sessionId, null));
+            sendStateToUser(game, sessionId, JSON);
+        });
+    }
+
+    /**
+     * Handles unexpected server exceptions and sends a message to {@value TOPIC_DISCONNECTED}/{gameId}. The clients should then discontinue the
+     * game.
      *
      * @param exception
      *            the exception thrown up by the server.
+     * @param sessionId
+     *            the ID of the WebSocket session whose message caused the exception.
      */
     @MessageExceptionHandler
-    @SendToUser(destinations = QUEUE_ILLEGAL_MOVE, broadcast = false)
-    public void handleException(Exception exception) {
+    public void handleException(Exception exception, @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId) {
         logger.error("There was an internal server error: {}", exception);
-        messagingTemplate.convertAndSend(TOPIC_DISCONNECTED, "There was an internal server error: " + exception);
-        resetGame();
+        final Game game = gameRegistry.getBySession(sessionId);
+        if (game != null) {
+            endGame(game, "There was an internal server error: " + exception);
+        }
     }
 
     /**
-     * Handles a player disconnecting from the gameand sends a message to {@value TOPIC_DISCONNECTED}. The other client should then discontinue the
-     * game.
+     * Handles a player disconnecting from their game and sends a message to {@value TOPIC_DISCONNECTED}/{gameId}. The other client should then
+     * discontinue the game.
      *
      * @param event
      *            the disconnection {@code SessionDisconnectEvent}.s
      */
     @EventListener
     public void onPlayerDisconnected(SessionDisconnectEvent event) {
-        if (playerOne != null) {
-            logger.info("A WebSocket session has been disconnected");
-            messagingTemplate.convertAndSend("/topic/disconnected", "The other player has disconnected. Game over.");
-            resetGame();
+        playerDisconnected(event.getSessionId());
+    }
+
+    /**
+     * Handles a player disconnecting from their game, as {@link #onPlayerDisconnected(SessionDisconnectEvent)}.
+     *
+     * @param sessionId
+     *            the ID of the disconnected session.
+     */
+    void playerDisconnected(String sessionId) {
+        final Game game = gameRegistry.getBySession(sessionId);
+        if (game != null) {
+            logger.info("A WebSocket session has been disconnected from game {}", game.getId());
+            endGame(game, "The other player has disconnected. Game over.");
+        }
+    }
+
+    /**
+     * Processes a message request from a client to watch a game without playing in it. The whole {@link GameState} of the game is sent to
+     * the calling client only, at {@value QUEUE_STATE}. The client should subscribe to {@value TOPIC_MOVES}/{gameId} before calling this
+     * endpoint, and apply the {@link MoveEvent}s whose sequence is greater than the move count of the game state. It may call this endpoint
+     * again to receive the whole game state again.
+     *
+     * @param sessionId
+     *            the ID of the WebSocket session of the calling client.
+     * @param gameId
+     *            the ID of the game to watch, given by the {@value HEADER_GAME_ID} header.
+     */
+    @MessageMapping(ENDPOINT_SPECTATE)
+    public void spectate(@Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId, @Header(HEADER_GAME_ID) long gameId) {
+        final Game game = gameRegistry.get(gameId);
+        if (game == null) {
+            logger.debug("Ignoring spectating of game {} which does not exist", gameId);
+            return;
         }
+        gameExecutor.execute(gameId, () -> sendStateToUser(game, sessionId, JSON));
+    }
+
+    private void sendStateToUser(Game game, String sessionId, MimeType contentType) {
+        sendState(game, messagingTemplate.getUserDestinationPrefix() + sessionId + QUEUE_STATE, sessionId, contentType);
+    }
+
+    /**
+     * Send the current state of a game, encoded as JSON or, for a content type of {@value GameStateMessageConverter#CONTENT_TYPE}, by {@link
+     * GameStateCodec}. Only called from the game's {@link GameExecutor} worker.
+     */
+    private void sendState(Game game, String destination, String sessionId, MimeType contentType) {
+        final boolean binary = GameStateMessageConverter.MIME_TYPE.equalsTypeAndSubtype(contentType);
+        final byte[] payload = game.getEncodedState().get(binary ? BINARY_ENCODER : jsonEncoder);
+        messagingTemplate.send(destination, MessageBuilder.createMessage(payload, sessionHeaders(sessionId, contentType)));
     }
 
-    private void resetGame() {
-        logger.debug("Resetting game");
-        gameState = new GameState(NUM_ROWS, NUM_COLUMNS, IN_A_ROW_TO_WIN);
-        playerId = new AtomicInteger(1);
-        playerOne = null;
-        playerTwo = null;
+    /**
+     * Encode a game state as JSON with the application's {@code ObjectMapper}, the one the STOMP message converter uses, so that states sent
+     * already encoded match those the converter would have encoded.
+     */
+    private byte[] toJson(GameState gameState) {
+        try {
+            return objectMapper.writeValueAsBytes(gameState);
+        } catch (JsonProcessingException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private static MessageHeaders sessionHeaders(String sessionId, MimeType contentType) {
+        final SimpMessageHeaderAccessor headerAccessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        if (sessionId != null) {
+            headerAccessor.setSessionId(sessionId);
+        }
+        if (contentType != null) {
+            headerAccessor.setContentType(contentType);
+        }
+        headerAccessor.setLeaveMutable(true);
+        return headerAccessor.getMessageHeaders();
+    }
+
+    private void evictGame(Game game) {
+        final boolean finished = game.isFinished();
+        logger.debug("Evicting {} game {}", finished ? "finished" : "idle", game.getId());
+        gameMetrics.gameEvicted(finished);
+        if (finished) {
+            removeGame(game);
+        } else {
+            endGame(game, IDLE_TOO_LONG);
+        }
+    }
+
+    private void removeGame(Game game) {
+        lobby.leave(game);
+        gameRegistry.remove(game);
+        gameExecutor.execute(game.getId(), () -> moveJournal.gameEnded(game.getId()));
+    }
+
+    private void endGame(Game game, String reason) {
+        logger.debug("Ending game {}", game.getId());
+        removeGame(game);
+        messagingTemplate.convertAndSend(TOPIC_DISCONNECTED + "/" + game.getId(), reason);
+        if (RawSessions.hasRawPlayer(game)) {
+            rawSessions.sendToPlayers(game, RawProtocol.text(RawProtocol.DISCONNECTED, reason));
+        }
     }
 }
@@ -0,0 +1,83 @@
+package com.otisliddy.fiveinarow.controller;
+
+import java.nio.ByteBuffer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.BinaryWebSocketHandler;
+
+import com.otisliddy.fiveinarow.config.MoveRateLimiter;
+import com.otisliddy.fiveinarow.game.Player;
+
+/**
+ * Handles the raw WebSocket endpoint, which carries frames of the {@link RawProtocol} without SockJS or STOMP, for native clients and bots
+ * that want the lowest cost per message. Each frame is passed on to the same {@link GameController} method as the equivalent STOMP message,
+ * so raw clients play by the same rules as, and against, STOMP clients.
+ * <p>A raw client that starts a game is sent the game state as soon as the game starts, without subscribing to anything first. Moves beyond
+ * the client's {@link MoveRateLimiter} limit are dropped. Frames with an unknown opcode, or too short for theirs, end the connection.</p>
+ */
+@Component
+public class RawGameHandler extends BinaryWebSocketHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(RawGameHandler.class);
+    private static final String SESSION_ID_ATTRIBUTE = "rawSessionId";
+    private static final int START_HEADER_BYTES = 5;
+
+    @Autowired
+    private GameController gameController;
+    @Autowired
+    private RawSessions rawSessions;
+    @Autowired
+    private MoveRateLimiter moveRateLimiter;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        session.getAttributes().put(SESSION_ID_ATTRIBUTE, rawSessions.add(session));
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
+        final String sessionId = (String) session.getAttributes().get(SESSION_ID_ATTRIBUTE);
+        final ByteBuffer frame = message.getPayload();
+        final int length = frame.remaining();
+        final byte opcode = length == 0 ? 0 : frame.get(frame.position());
+        final ByteBuffer body = frame.slice();
+        try {
+            if (opcode == RawProtocol.START && length >= START_HEADER_BYTES) {
+                start(sessionId, body);
+            } else if (opcode == RawProtocol.MOVE && length == 2) {
+                if (moveRateLimiter.tryAcquire(session.getAttributes())) {
+                    gameController.move(body.get(1), sessionId);
+                }
+            } else if (opcode == RawProtocol.RESYNC) {
+                gameController.resync(sessionId, null);
+            } else {
+                logger.debug("Closing raw session {} after a frame of {} bytes with opcode {}", sessionId, length, opcode);
+                session.close(CloseStatus.BAD_DATA);
+            }
+        } catch (RuntimeException exception) {
+            gameController.handleException(exception, sessionId);
+        }
+    }
+
+    private void start(String sessionId, ByteBuffer frame) {
+        final String opponent = RawProtocol.startAgainstBot(frame) ? GameController.OPPONENT_BOT : null;
+        final Player player = gameController.start(RawProtocol.startName(frame), sessionId, RawProtocol.startVariant(frame), null, opponent);
+        if (player != null) {
+            rawSessions.send(sessionId, RawProtocol.started(player));
+            gameController.rawPlayerJoined(sessionId);
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        final String sessionId = (String) session.getAttributes().get(SESSION_ID_ATTRIBUTE);
+        gameController.playerDisconnected(sessionId);
+        rawSessions.remove(sessionId);
+    }
+}
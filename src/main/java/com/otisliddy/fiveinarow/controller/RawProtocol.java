@@ -0,0 +1,108 @@
+package com.otisliddy.fiveinarow.controller;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+import com.otisliddy.fiveinarow.exception.IllegalMove;
+import com.otisliddy.fiveinarow.game.EncodedStateCache;
+import com.otisliddy.fiveinarow.game.GameState;
+import com.otisliddy.fiveinarow.game.GameStateCodec;
+import com.otisliddy.fiveinarow.game.MoveEvent;
+import com.otisliddy.fiveinarow.game.Player;
+
+/**
+ * The binary protocol of the raw WebSocket endpoint served by {@link RawGameHandler}, for native clients and bots that want to avoid the cost
+ * of SockJS and STOMP framing.
+ * <p>Each WebSocket binary message is one frame, starting with a {@code byte} opcode. All numbers are big-endian and strings are UTF-8,
+ * running to the end of the frame. Frames sent by the client:</p>
+ * <ul>
+ * <li>{@value #START}: {@code byte} 1 to play against the computer or 0 to be paired with another player, then {@code byte} rows, {@code
+ * byte} columns and {@code byte} in-a-row of the variant to play, all 0 for the server's default, then the player's name. Like {@code
+ * /fiveinarow/start}, but the player needs no further request to receive the initial state.</li>
+ * <li>{@value #MOVE}: {@code byte} column, indexed starting at 1. Like {@code /fiveinarow/move}.</li>
+ * <li>{@value #RESYNC}: empty. Like {@code /fiveinarow/resync}.</li>
+ * </ul>
+ * <p>Frames sent by the server:</p>
+ * <ul>
+ * <li>{@value #STARTED}: {@code byte} player ID and {@code long} game ID of the player who sent {@value #START}.</li>
+ * <li>{@value #STATE}: the whole game state, encoded by {@link GameStateCodec}.</li>
+ * <li>{@value #MOVED}: a {@link MoveEvent}, as {@code int} sequence, {@code byte} column, {@code byte} row, {@code byte} ID of the player
+ * who moved, {@code byte} game status ordinal, and {@code byte} ID of the player to move next or the winner, 0 if none.</li>
+ * <li>{@value #ILLEGAL_MOVE}: {@code byte} player ID, then the reason the move is illegal.</li>
+ * <li>{@value #DISCONNECTED}: the reason the game has ended early.</li>
+ * <li>{@value #REJECTED}: the reason {@value #START} was refused.</li>
+ * </ul>
+ */
+final class RawProtocol {
+
+    static final byte START = 1;
+    static final byte MOVE = 2;
+    static final byte RESYNC = 3;
+
+    static final byte STARTED = 65;
+    static final byte STATE = 66;
+    static final byte MOVED = 67;
+    static final byte ILLEGAL_MOVE = 68;
+    static final byte DISCONNECTED = 69;
+    static final byte REJECTED = 70;
+
+    static final int MOVED_BYTES = 1 + Integer.BYTES + 5;
+
+    /**
+     * Encodes {@value #STATE} frames, as a constant so that the frames can be cached in an {@link EncodedStateCache}.
+     */
+    static final Function<GameState, byte[]> STATE_ENCODER = RawProtocol::state;
+
+    private RawProtocol() {
+    }
+
+    static byte[] started(Player player) {
+        return ByteBuffer.allocate(1 + 1 + Long.BYTES).put(STARTED).put((byte) player.getId()).putLong(player.getGameId()).array();
+    }
+
+    static byte[] state(GameState gameState) {
+        final byte[] encoded = GameStateCodec.encode(gameState);
+        final byte[] frame = new byte[1 + encoded.length];
+        frame[0] = STATE;
+        System.arraycopy(encoded, 0, frame, 1, encoded.length);
+        return frame;
+    }
+
+    static byte[] moved(MoveEvent event) {
+        final Player playerToMove = event.getPlayerToMove();
+        return ByteBuffer.allocate(MOVED_BYTES).put(MOVED).putInt((int) event.getSequence()).put((byte) event.getColumn())
+                .put((byte) event.getRow()).put((byte) event.getPlayerId()).put((byte) event.getStatus().ordinal())
+                .put((byte) (playerToMove == null ? 0 : playerToMove.getId())).array();
+    }
+
+    static byte[] illegalMove(IllegalMove illegalMove) {
+        final byte[] message = illegalMove.getMessage().getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(2 + message.length).put(ILLEGAL_MOVE).put((byte) illegalMove.getPlayerId()).put(message).array();
+    }
+
+    static byte[] text(byte opcode, String text) {
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(1 + bytes.length).put(opcode).put(bytes).array();
+    }
+
+    /**
+     * Get the variant of a {@value #START} frame in the form parsed by {@code Variant}, or {@code null} for the server's default.
+     */
+    static String startVariant(ByteBuffer frame) {
+        final int numRows = frame.get(2) & 0xFF;
+        final int numColumns = frame.get(3) & 0xFF;
+        final int inARow = frame.get(4) & 0xFF;
+        return numRows == 0 && numColumns == 0 && inARow == 0 ? null : numRows + "x" + numColumns + "x" + inARow;
+    }
+
+    static boolean startAgainstBot(ByteBuffer frame) {
+        return frame.get(1) != 0;
+    }
+
+    static String startName(ByteBuffer frame) {
+        final ByteBuffer name = frame.duplicate();
+        name.position(5);
+        return StandardCharsets.UTF_8.decode(name).toString();
+    }
+}
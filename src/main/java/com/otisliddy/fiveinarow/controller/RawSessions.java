@@ -0,0 +1,91 @@
+package com.otisliddy.fiveinarow.controller;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import com.otisliddy.fiveinarow.config.SystemProperties;
+import com.otisliddy.fiveinarow.game.Game;
+
+/**
+ * The sessions connected to the raw WebSocket endpoint, through which {@link GameController} sends the messages of a game to those of its
+ * players who are not using STOMP.
+ * <p>Raw session IDs are prefixed with {@value #ID_PREFIX} so that they never clash with the IDs of STOMP sessions. Each session is wrapped in
+ * a {@link ConcurrentWebSocketSessionDecorator}, so that game workers can send to it at the same time, and a client that falls more than
+ * {@link SystemProperties#SEND_BUFFER_KB} KB or {@link SystemProperties#SEND_TIME_MILLIS} ms behind is disconnected, as for STOMP.</p>
+ */
+@Component
+class RawSessions {
+
+    static final String ID_PREFIX = "raw-";
+
+    private static final Logger logger = LoggerFactory.getLogger(RawSessions.class);
+
+    private final ConcurrentHashMap<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    private final int sendTimeMillis = SystemProperties.SEND_TIME_MILLIS.getValue();
+    private final int sendBufferBytes = SystemProperties.SEND_BUFFER_KB.getValue() * 1024;
+
+    /**
+     * Register a newly connected session.
+     *
+     * @return the ID of the session used by the game logic.
+     */
+    String add(WebSocketSession session) {
+        final String sessionId = ID_PREFIX + session.getId();
+        sessions.put(sessionId, new ConcurrentWebSocketSessionDecorator(session, sendTimeMillis, sendBufferBytes));
+        return sessionId;
+    }
+
+    void remove(String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    /**
+     * Whether a session ID belongs to a raw session, connected or not.
+     */
+    static boolean isRaw(String sessionId) {
+        return sessionId != null && sessionId.startsWith(ID_PREFIX);
+    }
+
+    /**
+     * Send a frame to a session, if it is connected.
+     */
+    void send(String sessionId, byte[] frame) {
+        final WebSocketSession session = sessionId == null ? null : sessions.get(sessionId);
+        if (session == null) {
+            return;
+        }
+        try {
+            session.sendMessage(new BinaryMessage(frame));
+        } catch (IOException | RuntimeException exception) {
+            logger.debug("Could not send to raw session {}: {}", sessionId, exception.toString());
+        }
+    }
+
+    /**
+     * Send a frame to the players of a game who are connected through raw sessions.
+     */
+    void sendToPlayers(Game game, byte[] frame) {
+        final String playerOneSessionId = game.getPlayerOneSessionId();
+        if (isRaw(playerOneSessionId)) {
+            send(playerOneSessionId, frame);
+        }
+        final String playerTwoSessionId = game.getPlayerTwoSessionId();
+        if (isRaw(playerTwoSessionId)) {
+            send(playerTwoSessionId, frame);
+        }
+    }
+
+    /**
+     * Whether either player of a game is connected through a raw session.
+     */
+    static boolean hasRawPlayer(Game game) {
+        return isRaw(game.getPlayerOneSessionId()) || isRaw(game.getPlayerTwoSessionId());
+    }
+}
@@ -0,0 +1,181 @@
+package com.otisliddy.fiveinarow.controller;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import com.otisliddy.fiveinarow.archive.ArchivedGame;
+import com.otisliddy.fiveinarow.archive.GameArchive;
+import com.otisliddy.fiveinarow.config.SystemProperties;
+import com.otisliddy.fiveinarow.game.GameState;
+import com.otisliddy.fiveinarow.game.MoveEvent;
+
+/**
+ * Streams finished games from the {@link GameArchive} to clients, one move at a time at a chosen pace.
+ * <p>Each replay reads the next move from the archive only when it is due to be sent, so a replay holds a small fixed amount of memory
+ * however long the game is, and many clients can watch replays at once. Each client can watch one replay at a time.</p>
+ * <p>Replays run on a scheduler of {@link SystemProperties#REPLAY_THREADS} threads of their own, so that reading the archive never holds up
+ * the message broker's scheduler.</p>
+ */
+@Controller
+public class ReplayController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplayController.class);
+    private static final String ENDPOINT_REPLAY = "/replay";
+    private static final String QUEUE_REPLAY_STATE = "/queue/replay/state";
+    private static final String QUEUE_REPLAY_MOVES = "/queue/replay/moves";
+    private static final String HEADER_GAME_ID = "gameId";
+    private static final String HEADER_MOVE_MILLIS = "moveMillis";
+    private static final int MIN_MOVE_MILLIS = 10;
+
+    private final ConcurrentHashMap<String, Replay> replays = new ConcurrentHashMap<>();
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+    @Autowired
+    private GameArchive gameArchive;
+    private final ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+
+    /**
+     * Start the scheduler that replays run on.
+     */
+    @PostConstruct
+    public void open() {
+        taskScheduler.setPoolSize(SystemProperties.REPLAY_THREADS.getValue());
+        taskScheduler.setThreadNamePrefix("replay-");
+        taskScheduler.setDaemon(true);
+        taskScheduler.initialize();
+    }
+
+    /**
+     * Stop the scheduler that replays run on, along with any replays in progress.
+     */
+    @PreDestroy
+    public void close() {
+        taskScheduler.shutdown();
+    }
+
+    /**
+     * Processes a message request from a client to replay a finished game. The {@link GameState} of the game before its first move is sent
+     * to the calling client at {@value QUEUE_REPLAY_STATE}, followed by a {@link MoveEvent} for each move of the game at {@value
+     * QUEUE_REPLAY_MOVES}. The last event has the final status of the game. Any replay the client is already watching is stopped.
+     *
+     * @param sessionId
+     *            the ID of the WebSocket session of the calling client.
+     * @param gameId
+     *            the ID of the game to replay, given by the {@value HEADER_GAME_ID} header.
+     * @param moveMillis
+     *            the interval in milliseconds between moves, given by the optional {@value HEADER_MOVE_MILLIS} header. Defaults to
+     *            {@link SystemProperties#REPLAY_MOVE_MILLIS}.
+     * @throws IOException
+     *            if the game cannot be read from the archive.
+     */
+    @MessageMapping(ENDPOINT_REPLAY)
+    public void replay(@Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId, @Header(HEADER_GAME_ID) long gameId,
+            @Header(name = HEADER_MOVE_MILLIS, required = false) Integer moveMillis) throws IOException {
+        logger.info("/replay endpoint called for game {}", gameId);
+
+        final ArchivedGame archivedGame = gameArchive.find(gameId);
+        if (archivedGame == null) {
+            logger.debug("Ignoring replay of game {} which is not archived", gameId);
+            return;
+        }
+        final Replay replay = new Replay(sessionId, archivedGame);
+        final Replay previous = replays.put(sessionId, replay);
+        if (previous != null) {
+            previous.cancel();
+        }
+        messagingTemplate.convertAndSendToUser(sessionId, QUEUE_REPLAY_STATE, archivedGame.newGameState(), sessionHeaders(sessionId));
+        final Duration interval = Duration.ofMillis(Math.max(MIN_MOVE_MILLIS, moveMillis == null ? SystemProperties.REPLAY_MOVE_MILLIS.getValue()
+                : moveMillis));
+        replay.future = taskScheduler.scheduleWithFixedDelay(replay, Instant.now().plus(interval), interval);
+        if (replay.cancelled) {
+            replay.cancel();
+        }
+    }
+
+    /**
+     * Stops the replay a client is watching when it disconnects.
+     *
+     * @param event
+     *            the disconnection {@code SessionDisconnectEvent}.
+     */
+    @EventListener
+    public void onDisconnected(SessionDisconnectEvent event) {
+        final Replay replay = replays.remove(event.getSessionId());
+        if (replay != null) {
+            replay.cancel();
+        }
+    }
+
+    private static MessageHeaders sessionHeaders(String sessionId) {
+        final SimpMessageHeaderAccessor headerAccessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headerAccessor.setSessionId(sessionId);
+        headerAccessor.setLeaveMutable(true);
+        return headerAccessor.getMessageHeaders();
+    }
+
+    /**
+     * Sends the next move of a replay each time it is run, and cancels itself after the last move.
+     */
+    private class Replay implements Runnable {
+
+        private final String sessionId;
+        private final ArchivedGame archivedGame;
+        private volatile ScheduledFuture<?> future;
+        private volatile boolean cancelled;
+
+        Replay(String sessionId, ArchivedGame archivedGame) {
+            this.sessionId = sessionId;
+            this.archivedGame = archivedGame;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            try {
+                messagingTemplate.convertAndSendToUser(sessionId, QUEUE_REPLAY_MOVES, archivedGame.nextMove(), sessionHeaders(sessionId));
+            } catch (IOException | RuntimeException exception) {
+                logger.error("Failed to replay game {}", archivedGame.getGameId(), exception);
+                finish();
+                return;
+            }
+            if (!archivedGame.hasNextMove()) {
+                finish();
+            }
+        }
+
+        private void finish() {
+            replays.remove(sessionId, this);
+            cancel();
+        }
+
+        void cancel() {
+            cancelled = true;
+            final ScheduledFuture<?> scheduled = future;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+        }
+    }
+}
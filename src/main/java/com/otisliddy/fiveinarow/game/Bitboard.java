@@ -0,0 +1,337 @@
+package com.otisliddy.fiveinarow.game;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Bitboard representation of a game grid, holding one bit set per player and the populated height of every column.
+ * <p>Cells are laid out column by column, bottom to top, with one spare sentinel bit above the top row of each column. The sentinel bit is
+ * never set, which stops lines from wrapping from the top of one column into the bottom of the next. The cell at (row, column) is therefore
+ * bit {@code column * (numRows + 1) + row}. Boards of any size are supported, spread over as many {@code long} words as needed.</p>
+ * <p>Rows, columns and players are all indexed starting at 0 in this class.</p>
+ */
+public class Bitboard implements Serializable {
+
+    private static final int WORD_BITS = Long.SIZE;
+    private static final int NUM_PLAYERS = 2;
+
+    private final int numRows;
+    private final int numColumns;
+    private final int columnStride;
+    private final long[][] discs;
+    private final int[] heights;
+
+    /**
+     * Construct an empty {@code Bitboard}.
+     *
+     * @param numRows
+     *            the number of rows in the grid.
+     * @param numColumns
+     *            the number of columns in the grid.
+     */
+    public Bitboard(int numRows, int numColumns) {
+        this.numRows = numRows;
+        this.numColumns = numColumns;
+        this.columnStride = numRows + 1;
+        final int numWords = (numColumns * columnStride + WORD_BITS - 1) / WORD_BITS;
+        discs = new long[NUM_PLAYERS][Math.max(numWords, 1)];
+        heights = new int[numColumns];
+    }
+
+    /**
+     * Construct a {@code Bitboard} holding the same discs as the provided bitboard. Changes to either bitboard do not affect the other.
+     *
+     * @param other
+     *            the bitboard to copy.
+     */
+    public Bitboard(Bitboard other) {
+        this.numRows = other.numRows;
+        this.numColumns = other.numColumns;
+        this.columnStride = other.columnStride;
+        this.discs = new long[NUM_PLAYERS][];
+        for (int player = 0; player < NUM_PLAYERS; player++) {
+            discs[player] = other.discs[player].clone();
+        }
+        this.heights = other.heights.clone();
+    }
+
+    /**
+     * Get the number of rows in the grid.
+     *
+     * @return the number of rows in the grid.
+     */
+    public int getNumRows() {
+        return numRows;
+    }
+
+    /**
+     * Get the number of columns in the grid.
+     *
+     * @return the number of columns in the grid.
+     */
+    public int getNumColumns() {
+        return numColumns;
+    }
+
+    /**
+     * Get the number of discs in the provided column, i.e. the row index the next disc dropped into the column will land on.
+     *
+     * @param column
+     *            the column index.
+     * @return the populated height of the column.
+     */
+    public int getHeight(int column) {
+        return heights[column];
+    }
+
+    /**
+     * Drop a disc for the provided player into the provided column. The caller is responsible for checking that the column is not full.
+     *
+     * @param column
+     *            the column index.
+     * @param player
+     *            the player index, either 0 or 1.
+     * @return the row index the disc landed on.
+     */
+    public int drop(int column, int player) {
+        final int row = heights[column]++;
+        set(row, column, player);
+        return row;
+    }
+
+    /**
+     * Remove the top disc from the provided column. The caller is responsible for checking that the column is not empty.
+     *
+     * @param column
+     *            the column index.
+     */
+    public void undrop(int column) {
+        final int bit = bitIndex(--heights[column], column);
+        final long mask = ~(1L << bit);
+        discs[0][bit >>> 6] &= mask;
+        discs[1][bit >>> 6] &= mask;
+    }
+
+    /**
+     * Get the player index of the disc at the provided position.
+     *
+     * @param row
+     *            the row index.
+     * @param column
+     *            the column index.
+     * @return the player index owning the cell, or -1 if the cell is empty.
+     */
+    public int get(int row, int column) {
+        final int bit = bitIndex(row, column);
+        for (int player = 0; player < NUM_PLAYERS; player++) {
+            if (isSet(discs[player], bit)) {
+                return player;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Whether the provided player owns the cell at the provided position. Positions outside of the grid are never owned.
+     *
+     * @param row
+     *            the row index.
+     * @param column
+     *            the column index.
+     * @param player
+     *            the player index.
+     * @return {@code true} if the player has a disc at the position.
+     */
+    public boolean isOwnedBy(int row, int column, int player) {
+        if (row < 0 || row >= numRows || column < 0 || column >= numColumns) {
+            return false;
+        }
+        return isSet(discs[player], bitIndex(row, column));
+    }
+
+    /**
+     * Replace the contents of this bitboard with the provided grid, using the {@link GameState#getGrid()} encoding. Column heights are taken
+     * to be the number of consecutive discs from the bottom of each column.
+     *
+     * @param grid
+     *            the grid to load, with dimensions matching this bitboard.
+     */
+    public void load(int[][] grid) {
+        clear();
+        for (int row = 0; row < numRows; row++) {
+            for (int column = 0; column < numColumns; column++) {
+                if (grid[row][column] != 0) {
+                    set(row, column, grid[row][column] - 1);
+                }
+            }
+        }
+        for (int column = 0; column < numColumns; column++) {
+            int height = 0;
+            while (height < numRows && grid[height][column] != 0) {
+                height++;
+            }
+            heights[column] = height;
+        }
+    }
+
+    /**
+     * Write the contents of this bitboard into the provided grid, using the {@link GameState#getGrid()} encoding.
+     *
+     * @param grid
+     *            the grid to write to, with dimensions matching this bitboard.
+     */
+    public void copyInto(int[][] grid) {
+        for (int row = 0; row < numRows; row++) {
+            for (int column = 0; column < numColumns; column++) {
+                grid[row][column] = get(row, column) + 1;
+            }
+        }
+    }
+
+    /**
+     * Remove every disc from the board.
+     */
+    public void clear() {
+        for (long[] playerDiscs : discs) {
+            Arrays.fill(playerDiscs, 0L);
+        }
+        Arrays.fill(heights, 0);
+    }
+
+    /**
+     * Whether boards of the provided size fit in a {@link #canonicalKey()}.
+     *
+     * @param numRows
+     *            the number of rows in the grid.
+     * @param numColumns
+     *            the number of columns in the grid.
+     * @return {@code true} if a board of this size has a canonical key.
+     */
+    public static boolean hasCanonicalKey(int numRows, int numColumns) {
+        return (long) numColumns * (numRows + 1) <= WORD_BITS;
+    }
+
+    /**
+     * Get a key identifying the position on this board up to reflection, so that a position and its mirror image have the same key. Only
+     * supported for boards that fit in one word, as given by {@link #hasCanonicalKey(int, int)}.
+     * <p>Each column is encoded in its {@code numRows + 1} bits as player 0's discs plus a marker bit just above the top disc, which is enough
+     * to tell every position apart. The key is the smaller of the encodings of the board and of its mirror image. It is never 0.</p>
+     *
+     * @return the canonical key of the position.
+     */
+    public long canonicalKey() {
+        final long columnMask = -1L >>> (WORD_BITS - columnStride);
+        long key = 0;
+        long mirrored = 0;
+        for (int column = 0; column < numColumns; column++) {
+            final long columnBits = (discs[0][0] >>> (column * columnStride) & columnMask) | 1L << heights[column];
+            key |= columnBits << (column * columnStride);
+            mirrored |= columnBits << ((numColumns - 1 - column) * columnStride);
+        }
+        return Long.compareUnsigned(key, mirrored) <= 0 ? key : mirrored;
+    }
+
+    /**
+     * Whether the provided player has at least {@code inARow} discs in a line anywhere on the board. Each of the four line directions is
+     * checked by shifting the player's bitboard onto itself and masking, so the cost depends on the board size rather than on the number of
+     * discs.
+     *
+     * @param player
+     *            the player index.
+     * @param inARow
+     *            the number of discs needed in-a-row.
+     * @return {@code true} if the player has a winning line.
+     */
+    public boolean hasLine(int player, int inARow) {
+        if (inARow <= 0) {
+            return true;
+        }
+        final long[] board = discs[player];
+        return hasLine(board, 1, inARow)
+                || hasLine(board, columnStride, inARow)
+                || hasLine(board, columnStride + 1, inARow)
+                || hasLine(board, columnStride - 1, inARow);
+    }
+
+    /**
+     * Whether the disc at the provided position is part of a line of at least {@code inARow} discs of the provided player. Each of the four
+     * axes through the disc is walked in both directions, stopping as soon as a line is complete or both ends are blocked, so at most
+     * {@code 2 * (inARow - 1)} cells are read per axis whatever the board size.
+     *
+     * @param row
+     *            the row index of the disc.
+     * @param column
+     *            the column index of the disc.
+     * @param player
+     *            the player index.
+     * @param inARow
+     *            the number of discs needed in-a-row.
+     * @return {@code true} if the disc completes a winning line.
+     */
+    public boolean hasLineThrough(int row, int column, int player, int inARow) {
+        final long[] board = discs[player];
+        final int bit = bitIndex(row, column);
+        return runLength(board, bit, 1, inARow) >= inARow
+                || runLength(board, bit, columnStride, inARow) >= inARow
+                || runLength(board, bit, columnStride + 1, inARow) >= inARow
+                || runLength(board, bit, columnStride - 1, inARow) >= inARow;
+    }
+
+    /**
+     * Count the discs in the run through the provided bit along one axis, giving up once {@code limit} discs have been counted. The sentinel
+     * bits and the ends of the board both stop the walk.
+     */
+    private int runLength(long[] board, int bit, int step, int limit) {
+        final int numBits = numColumns * columnStride;
+        int count = 1;
+        for (int next = bit + step; count < limit && next < numBits && isSet(board, next); next += step) {
+            count++;
+        }
+        for (int next = bit - step; count < limit && next >= 0 && isSet(board, next); next -= step) {
+            count++;
+        }
+        return count;
+    }
+
+    private static boolean isSet(long[] board, int bit) {
+        return (board[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    private static boolean hasLine(long[] board, int shift, int inARow) {
+        for (int word = 0; word < board.length; word++) {
+            long line = board[word];
+            for (int i = 1; i < inARow && line != 0; i++) {
+                line &= wordAt(board, word * WORD_BITS + i * shift);
+            }
+            if (line != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read the 64 bits of the board starting at the provided bit offset, treating bits past the end of the board as empty.
+     */
+    private static long wordAt(long[] board, int bitOffset) {
+        final int word = bitOffset >>> 6;
+        final int offset = bitOffset & (WORD_BITS - 1);
+        if (word >= board.length) {
+            return 0L;
+        }
+        long result = board[word] >>> offset;
+        if (offset != 0 && word + 1 < board.length) {
+            result |= board[word + 1] << (WORD_BITS - offset);
+        }
+        return result;
+    }
+
+    private void set(int row, int column, int player) {
+        final int bit = bitIndex(row, column);
+        discs[player][bit >>> 6] |= 1L << bit;
+    }
+
+    private int bitIndex(int row, int column) {
+        return column * columnStride + row;
+    }
+}
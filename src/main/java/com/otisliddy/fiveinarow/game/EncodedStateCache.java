@@ -0,0 +1,71 @@
+package com.otisliddy.fiveinarow.game;
+
+import java.util.function.Function;
+
+/**
+ * Caches the encodings of a game's {@link GameState}, so that each version of the state is encoded at most once in each encoding, however
+ * many clients it is sent to and however often it is sent again. Any change to the state starts a new {@link GameState#version() version},
+ * so a cached encoding is never stale.
+ * <p>Encodings are told apart by the identity of their encoder, so each encoder should be held in a constant. Only used from the game's
+ * {@link GameExecutor} worker, so it takes no lock.</p>
+ */
+public class EncodedStateCache {
+
+    private static final int MAX_ENCODINGS = 4;
+
+    private final GameState state;
+    private final Object[] encoders = new Object[MAX_ENCODINGS];
+    private final long[] versions = new long[MAX_ENCODINGS];
+    private final byte[][] encodings = new byte[MAX_ENCODINGS][];
+    private int numEncodings;
+    private long encodeCount;
+
+    /**
+     * Construct an instance of {@code EncodedStateCache}.
+     *
+     * @param state
+     *            the game state to encode.
+     */
+    public EncodedStateCache(GameState state) {
+        this.state = state;
+    }
+
+    /**
+     * Get the encoding of the current version of the game state, encoding it if not already cached.
+     *
+     * @param encoder
+     *            the encoder, which must not change the state.
+     * @return the encoded state, which must not be changed.
+     * @throws IllegalStateException
+     *             if more than {@value #MAX_ENCODINGS} encoders are used.
+     */
+    public byte[] get(Function<GameState, byte[]> encoder) {
+        final long version = state.version();
+        int slot = 0;
+        while (slot < numEncodings && encoders[slot] != encoder) {
+            slot++;
+        }
+        if (slot == numEncodings) {
+            if (slot == MAX_ENCODINGS) {
+                throw new IllegalStateException("At most " + MAX_ENCODINGS + " encodings of a game state can be cached");
+            }
+            encoders[slot] = encoder;
+            numEncodings++;
+        } else if (versions[slot] == version) {
+            return encodings[slot];
+        }
+        encodeCount++;
+        encodings[slot] = encoder.apply(state);
+        versions[slot] = version;
+        return encodings[slot];
+    }
+
+    /**
+     * Get the number of times the state has been encoded.
+     *
+     * @return the number of encodings made.
+     */
+    public long getEncodeCount() {
+        return encodeCount;
+    }
+}
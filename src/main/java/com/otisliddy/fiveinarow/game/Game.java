@@ -0,0 +1,361 @@
+package com.otisliddy.fiveinarow.game;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.lang.Nullable;
+
+import com.otisliddy.fiveinarow.lobby.MatchKey;
+
+/**
+ * A single game of 5-in-a-row, owning its {@link GameState} and the two players taking part in it.
+ * <p>Player one is assigned when the game is created. Player two joins later, at which point the game can begin.</p>
+ */
+public class Game {
+
+    private static final int FIXED_BYTES = 512;
+    private static final int OPEN = 0;
+    private static final int JOINED = 1;
+    private static final int REMOVED = 2;
+
+    private final long id;
+    private final GameState state;
+    private final EncodedStateCache encodedState;
+    private volatile Player playerOne;
+    private volatile String playerOneSessionId;
+    private volatile Player playerTwo;
+    private volatile String playerTwoSessionId;
+    private volatile boolean playerOneReady;
+    private volatile boolean playerTwoReady;
+    private volatile boolean playerTwoBot;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final AtomicInteger phase = new AtomicInteger(OPEN);
+    private byte[] moves = new byte[16];
+    private int numMoves;
+    private volatile long lastActiveMillis;
+    private volatile MatchKey matchKey;
+    private volatile long playerTwoJoinedNanos;
+    private volatile boolean finished;
+
+    /**
+     * Construct an instance of {@code Game} with its first player, who moves first.
+     *
+     * @param id
+     *            the game ID.
+     * @param state
+     *            the initial state of the game.
+     * @param playerOneName
+     *            the name of the first player.
+     * @param playerOneSessionId
+     *            the ID of the WebSocket session of the first player, or {@code null} if the game is being recovered.
+     */
+    public Game(long id, GameState state, String playerOneName, String playerOneSessionId) {
+        this.id = id;
+        this.state = state;
+        this.encodedState = new EncodedStateCache(state);
+        this.playerOne = new Player(playerOneName, 1, id);
+        this.playerOneSessionId = playerOneSessionId;
+        state.setPlayerToMove(playerOne);
+    }
+
+    /**
+     * Add the second player to this game, unless a second player has already joined or the game has been {@link #markRemoved() removed}.
+     *
+     * @param name
+     *            the name of the second player.
+     * @param sessionId
+     *            the ID of the WebSocket session of the second player, or {@code null} if the game is being recovered.
+     * @return the second player, or {@code null} if the player could not join.
+     */
+    @Nullable
+    public Player joinPlayerTwo(String name, String sessionId) {
+        if (!phase.compareAndSet(OPEN, JOINED)) {
+            return null;
+        }
+        playerTwoSessionId = sessionId;
+        playerTwoReady = playerOneReady && sessionId != null && sessionId.equals(playerOneSessionId);
+        playerTwo = new Player(name, 2, id);
+        playerTwoJoinedNanos = System.nanoTime();
+        return playerTwo;
+    }
+
+    /**
+     * Add a computer opponent to this game as the second player. The opponent has no WebSocket session, and moves when asked by the server.
+     *
+     * @param name
+     *            the name of the computer opponent.
+     * @return the second player.
+     */
+    public Player joinBot(String name) {
+        playerTwoBot = true;
+        playerTwoReady = true;
+        playerTwo = new Player(name, 2, id);
+        playerTwoJoinedNanos = System.nanoTime();
+        return playerTwo;
+    }
+
+    /**
+     * Mark this game as removed from its registry, so that no second player can join it from then on.
+     */
+    public void markRemoved() {
+        phase.set(REMOVED);
+    }
+
+    /**
+     * Whether this game has been removed from its registry.
+     *
+     * @return {@code true} if the game has been removed.
+     */
+    public boolean isRemoved() {
+        return phase.get() == REMOVED;
+    }
+
+    /**
+     * Whether it is the computer opponent's turn to move.
+     *
+     * @return {@code true} if the second player is a computer opponent and the game is waiting for it to move.
+     */
+    public boolean isBotToMove() {
+        final Player playerToMove = state.getPlayerToMove();
+        return playerTwoBot && state.getStatus() == GameStatus.IN_PROGRESS && playerToMove != null && playerToMove.getId() == 2;
+    }
+
+    /**
+     * Reattach a player to this game from a new WebSocket session, for example after the game has been recovered from the journal. Only called
+     * from the game's {@link GameExecutor} worker, as it may change the player to move.
+     *
+     * @param playerId
+     *            the ID of the player to reattach, 1 or 2.
+     * @param name
+     *            the name of the player.
+     * @param sessionId
+     *            the ID of the new WebSocket session of the player.
+     * @return the reattached player.
+     */
+    public Player rejoin(int playerId, String name, String sessionId) {
+        final Player player = new Player(name, playerId, id);
+        final Player playerToMove = state.getPlayerToMove();
+        if (playerId == 1) {
+            playerOneSessionId = sessionId;
+            playerOne = player;
+        } else {
+            playerTwoSessionId = sessionId;
+            playerTwo = player;
+        }
+        if (playerToMove != null && playerToMove.getId() == playerId) {
+            state.setPlayerToMove(player);
+        }
+        return player;
+    }
+
+    /**
+     * Record that a WebSocket session is ready to receive the game state of this game, having had its subscriptions to the game acknowledged.
+     *
+     * @param sessionId
+     *            the ID of the ready session.
+     */
+    public void markReady(String sessionId) {
+        if (sessionId.equals(playerOneSessionId)) {
+            playerOneReady = true;
+        }
+        if (sessionId.equals(playerTwoSessionId)) {
+            playerTwoReady = true;
+        }
+    }
+
+    /**
+     * Claim the right to send the initial game state to the players. Succeeds exactly once, after both players have joined and are ready,
+     * or once for any caller when {@code force} is set.
+     *
+     * @param force
+     *            whether to claim the start even if the players have not yet both joined and become ready.
+     * @return {@code true} if the caller should send the initial game state.
+     */
+    public boolean claimStart(boolean force) {
+        final boolean ready = playerTwo != null && playerOneReady && playerTwoReady;
+        return (ready || force) && started.compareAndSet(false, true);
+    }
+
+    /**
+     * Whether the initial game state has been claimed to be sent to the players.
+     *
+     * @return {@code true} if the game has started.
+     */
+    public boolean isStarted() {
+        return started.get();
+    }
+
+    /**
+     * Pass the move to the other player.
+     */
+    public void switchPlayerToMove() {
+        final Player playerToMove = state.getPlayerToMove();
+        state.setPlayerToMove(playerToMove != null && playerToMove.getId() == 1 ? playerTwo : playerOne);
+    }
+
+    /**
+     * Add a move to the history of this game. Only called from the game's {@link GameExecutor} worker, after the move has been added to the
+     * game state.
+     *
+     * @param column
+     *            the column of the move, indexed starting at 1.
+     */
+    public void recordMove(int column) {
+        if (numMoves == moves.length) {
+            moves = Arrays.copyOf(moves, numMoves * 2);
+        }
+        moves[numMoves++] = (byte) column;
+    }
+
+    /**
+     * Get the history of this game. Only called from the game's {@link GameExecutor} worker.
+     *
+     * @return the columns of the moves made so far, indexed starting at 1, in the order they were made.
+     */
+    public byte[] getMoves() {
+        return Arrays.copyOf(moves, numMoves);
+    }
+
+    /**
+     * Record activity in this game, such as a move or a player joining, so that it is not evicted as idle.
+     *
+     * @param nowMillis
+     *            the current time in milliseconds.
+     */
+    public void touch(long nowMillis) {
+        lastActiveMillis = nowMillis;
+    }
+
+    /**
+     * Record that this game has been won or drawn. Called from the game's {@link GameExecutor} worker once the game state's status is
+     * final, so that other threads, such as the one expiring games, can tell the game is over without reading the game state.
+     */
+    public void markFinished() {
+        finished = true;
+    }
+
+    /**
+     * Whether this game has been won or drawn.
+     *
+     * @return {@code true} if the game has finished.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Get the time of the last activity in this game.
+     *
+     * @return the time of the last activity, in milliseconds.
+     */
+    public long getLastActiveMillis() {
+        return lastActiveMillis;
+    }
+
+    /**
+     * Get the time the second player joined this game, for measuring how long the game takes to start.
+     *
+     * @return the {@link System#nanoTime()} at which the second player joined, or 0 if no second player has joined.
+     */
+    public long getPlayerTwoJoinedNanos() {
+        return playerTwoJoinedNanos;
+    }
+
+    /**
+     * Record the key the first player of this game is waiting in the lobby on, so that the game can be taken out of the lobby directly.
+     *
+     * @param matchKey
+     *            the key the first player is matched on.
+     */
+    public void setMatchKey(MatchKey matchKey) {
+        this.matchKey = matchKey;
+    }
+
+    /**
+     * Get the key the first player of this game waited in the lobby on.
+     *
+     * @return the match key, or {@code null} if the game was not created by the lobby.
+     */
+    @Nullable
+    public MatchKey getMatchKey() {
+        return matchKey;
+    }
+
+    /**
+     * Estimate the heap used by this game once its board is full, for metrics. The estimate covers the objects of the game and its players
+     * plus, for each cell of the board, the cached grid, the move history and the bitboard, and does not change over the life of the game.
+     *
+     * @return the estimated size of this game in bytes.
+     */
+    public long estimatedBytes() {
+        final long numCells = state.numCells();
+        return FIXED_BYTES + numCells * (Integer.BYTES + Byte.BYTES) + numCells / 4;
+    }
+
+    /**
+     * Get the game ID.
+     *
+     * @return the game ID.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Get the state of this game.
+     *
+     * @return the state of this game.
+     */
+    public GameState getState() {
+        return state;
+    }
+
+    /**
+     * Get the cached encodings of the state of this game. Only used from the game's {@link GameExecutor} worker.
+     *
+     * @return the cached encodings of the state of this game.
+     */
+    public EncodedStateCache getEncodedState() {
+        return encodedState;
+    }
+
+    /**
+     * Get the first player.
+     *
+     * @return the first player.
+     */
+    public Player getPlayerOne() {
+        return playerOne;
+    }
+
+    /**
+     * Get the second player.
+     *
+     * @return the second player, or {@code null} if no second player has joined yet.
+     */
+    @Nullable
+    public Player getPlayerTwo() {
+        return playerTwo;
+    }
+
+    /**
+     * Get the ID of the WebSocket session of the first player.
+     *
+     * @return the session ID of the first player, or {@code null} if the game was recovered and the player has not yet rejoined.
+     */
+    @Nullable
+    public String getPlayerOneSessionId() {
+        return playerOneSessionId;
+    }
+
+    /**
+     * Get the ID of the WebSocket session of the second player.
+     *
+     * @return the session ID of the second player, or {@code null} if no second player has joined yet.
+     */
+    @Nullable
+    public String getPlayerTwoSessionId() {
+        return playerTwoSessionId;
+    }
+}
@@ -0,0 +1,82 @@
+package com.otisliddy.fiveinarow.game;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.stereotype.Component;
+
+import com.otisliddy.fiveinarow.config.SystemProperties;
+
+/**
+ * Runs the tasks of each game one at a time, in the order they were submitted, on a fixed pool of worker threads.
+ * <p>Each game is assigned to one single-threaded worker by hashing its ID, so every change to a game's {@link GameState} is made by the same
+ * thread and {@code GameState} needs no locking. Different games are spread over all the workers, so they are processed in parallel.</p>
+ */
+@Component
+public class GameExecutor {
+
+    private final ExecutorService[] workers;
+
+    /**
+     * Construct an instance of {@code GameExecutor} with the number of workers given by {@link SystemProperties#GAME_THREADS}.
+     */
+    public GameExecutor() {
+        this(SystemProperties.GAME_THREADS.getValue());
+    }
+
+    /**
+     * Construct an instance of {@code GameExecutor}.
+     *
+     * @param numWorkers
+     *            the number of worker threads, or 0 for one per available processor.
+     */
+    public GameExecutor(int numWorkers) {
+        final int size = numWorkers > 0 ? numWorkers : Runtime.getRuntime().availableProcessors();
+        workers = new ExecutorService[size];
+        for (int i = 0; i < size; i++) {
+            final String threadName = "game-worker-" + i;
+            workers[i] = Executors.newSingleThreadExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Run a task for a game after all tasks previously submitted for the game have finished.
+     *
+     * @param gameId
+     *            the ID of the game the task belongs to.
+     * @param task
+     *            the task to run.
+     */
+    public void execute(long gameId, Runnable task) {
+        workers[worker(gameId)].execute(task);
+    }
+
+    int worker(long gameId) {
+        long hash = gameId * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 32;
+        return (int) ((hash & Integer.MAX_VALUE) % workers.length);
+    }
+
+    /**
+     * Stop accepting tasks, and wait briefly for the tasks already submitted to finish.
+     *
+     * @throws InterruptedException
+     *            if interrupted while waiting.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+        for (ExecutorService worker : workers) {
+            worker.awaitTermination(1, TimeUnit.SECONDS);
+        }
+    }
+}
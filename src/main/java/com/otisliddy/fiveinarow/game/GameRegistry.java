@@ -0,0 +1,269 @@
+package com.otisliddy.fiveinarow.game;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import com.otisliddy.fiveinarow.config.SystemProperties;
+
+/**
+ * Registry of all games hosted by this server, keyed by game ID, along with the game each WebSocket session is playing in.
+ * <p>Both lookups are held in {@link ShardedMap}s so that creating, finding and removing games never takes a global lock.</p>
+ * <p>Every registered game is also held in one {@link TimingWheel}, so that games left idle for {@link SystemProperties#GAME_IDLE_SECONDS}
+ * seconds, or finished for {@link SystemProperties#GAME_FINISHED_SECONDS} seconds, can be found by {@link #expire(Consumer)} without a timer
+ * per game. Registering, joining and {@link #touch(Game) touching} a game only record the time on the game, and the wheel catches up with
+ * the new deadline when it next comes round to the game. A removed game is dropped from the wheel at the same point.</p>
+ */
+@Component
+public class GameRegistry {
+
+    private static final int NUM_SHARDS = 64;
+    public static final long EXPIRY_TICK_MILLIS = 1000;
+    private static final int NUM_TICKS = 1024;
+
+    private final ShardedMap<Long, Game> games = new ShardedMap<>(NUM_SHARDS);
+    private final ShardedMap<String, Game> gamesBySession = new ShardedMap<>(NUM_SHARDS);
+    private final AtomicLong gameId = new AtomicLong(1);
+    private final AtomicLong estimatedBytes = new AtomicLong();
+    private final long idleMillis;
+    private final long finishedMillis;
+    private final LongSupplier clock;
+    private final TimingWheel<Game> expiries;
+
+    /**
+     * Construct an instance of {@code GameRegistry}, expiring games after the times set by system properties.
+     */
+    public GameRegistry() {
+        this(SystemProperties.GAME_IDLE_SECONDS.getValue() * 1000L, SystemProperties.GAME_FINISHED_SECONDS.getValue() * 1000L,
+                System::currentTimeMillis);
+    }
+
+    /**
+     * Construct an instance of {@code GameRegistry}.
+     *
+     * @param idleMillis
+     *            the time in milliseconds a game in progress may go without activity before it expires.
+     * @param finishedMillis
+     *            the time in milliseconds a finished game is kept after its last activity before it expires.
+     * @param clock
+     *            supplies the current time in milliseconds.
+     */
+    public GameRegistry(long idleMillis, long finishedMillis, LongSupplier clock) {
+        this.idleMillis = idleMillis;
+        this.finishedMillis = finishedMillis;
+        this.clock = clock;
+        expiries = new TimingWheel<>(NUM_TICKS, EXPIRY_TICK_MILLIS, this::expiryMillis, clock.getAsLong());
+    }
+
+    /**
+     * Create and register a new game.
+     *
+     * @param variant
+     *            the variant of the game to create.
+     * @param playerOneName
+     *            the name of the first player.
+     * @param playerOneSessionId
+     *            the ID of the WebSocket session of the first player.
+     * @return the new game.
+     */
+    public Game create(Variant variant, String playerOneName, String playerOneSessionId) {
+        final Game game = new Game(gameId.getAndIncrement(), variant.newGameState(), playerOneName, playerOneSessionId);
+        add(game);
+        gamesBySession.put(playerOneSessionId, game);
+        return game;
+    }
+
+    /**
+     * Add the second player to a game, and route later messages from their WebSocket session to it. The player does not join a game that has
+     * been removed, including one removed while they were joining, as nothing would then start or evict the game for them.
+     *
+     * @param game
+     *            the game to join.
+     * @param name
+     *            the name of the second player.
+     * @param sessionId
+     *            the ID of the WebSocket session of the second player.
+     * @return the second player, or {@code null} if the game has been removed or already has a second player.
+     */
+    @Nullable
+    public Player join(Game game, String name, String sessionId) {
+        final Player player = game.joinPlayerTwo(name, sessionId);
+        if (player == null) {
+            return null;
+        }
+        gamesBySession.put(sessionId, game);
+        if (game.isRemoved()) {
+            // Removed after the player joined, possibly without seeing their session, so the session is not left routed to the game.
+            gamesBySession.remove(sessionId, game);
+            return null;
+        }
+        touch(game);
+        return player;
+    }
+
+    /**
+     * Register a game recovered from storage. Its players are not routed to it until they {@link #rejoin(Game, int, String, String) rejoin}.
+     * Games created later are given IDs above the recovered game's ID.
+     *
+     * @param game
+     *            the recovered game.
+     */
+    public void restore(Game game) {
+        if (game.getState().getStatus() != GameStatus.IN_PROGRESS) {
+            game.markFinished();
+        }
+        add(game);
+        gameId.accumulateAndGet(game.getId() + 1, Math::max);
+    }
+
+    private void add(Game game) {
+        game.touch(clock.getAsLong());
+        games.put(game.getId(), game);
+        estimatedBytes.addAndGet(game.estimatedBytes());
+        expiries.schedule(game);
+    }
+
+    /**
+     * Reattach a player to a game from a new WebSocket session, and route later messages from the session to the game. Only called from the
+     * game's {@link GameExecutor} worker.
+     *
+     * @param game
+     *            the game to rejoin.
+     * @param playerId
+     *            the ID of the player rejoining, 1 or 2.
+     * @param name
+     *            the name of the player.
+     * @param sessionId
+     *            the ID of the new WebSocket session of the player.
+     * @return the reattached player.
+     */
+    public Player rejoin(Game game, int playerId, String name, String sessionId) {
+        final String oldSessionId = playerId == 1 ? game.getPlayerOneSessionId() : game.getPlayerTwoSessionId();
+        if (oldSessionId != null) {
+            gamesBySession.remove(oldSessionId, game);
+        }
+        final Player player = game.rejoin(playerId, name, sessionId);
+        gamesBySession.put(sessionId, game);
+        touch(game);
+        return player;
+    }
+
+    /**
+     * Find a game by its ID.
+     *
+     * @param id
+     *            the game ID.
+     * @return the game, or {@code null} if no such game is registered.
+     */
+    @Nullable
+    public Game get(long id) {
+        return games.get(id);
+    }
+
+    /**
+     * Find the game a WebSocket session is playing in.
+     *
+     * @param sessionId
+     *            the session ID.
+     * @return the game, or {@code null} if the session is not playing in a registered game.
+     */
+    @Nullable
+    public Game getBySession(String sessionId) {
+        return gamesBySession.get(sessionId);
+    }
+
+    /**
+     * Remove a game and the session mappings of its players. The game is marked removed before its sessions are read, so a player joining it
+     * at the same time either has their session mapping removed here or sees the game removed and backs out of {@link #join}.
+     *
+     * @param game
+     *            the game to remove.
+     */
+    public void remove(Game game) {
+        game.markRemoved();
+        if (games.remove(game.getId(), game)) {
+            estimatedBytes.addAndGet(-game.estimatedBytes());
+        }
+        final String playerOneSessionId = game.getPlayerOneSessionId();
+        if (playerOneSessionId != null) {
+            gamesBySession.remove(playerOneSessionId, game);
+        }
+        final String playerTwoSessionId = game.getPlayerTwoSessionId();
+        if (playerTwoSessionId != null) {
+            gamesBySession.remove(playerTwoSessionId, game);
+        }
+    }
+
+    /**
+     * Perform an action for every registered game.
+     *
+     * @param action
+     *            the action to perform.
+     */
+    public void forEach(Consumer<Game> action) {
+        games.forEachValue(action);
+    }
+
+    /**
+     * Record activity in a game, putting off its expiry.
+     *
+     * @param game
+     *            the game.
+     */
+    public void touch(Game game) {
+        game.touch(clock.getAsLong());
+    }
+
+    /**
+     * Find the registered games that have expired since the last call, and stop tracking them along with any removed games. Only called
+     * from one thread at a time, once every {@value #EXPIRY_TICK_MILLIS} ms or so. Expired games are no longer tracked but are not removed, so the
+     * action should remove them.
+     *
+     * @param action
+     *            the action to perform for each expired game.
+     */
+    public void expire(Consumer<Game> action) {
+        expiries.advance(clock.getAsLong(), game -> {
+            if (games.get(game.getId()) == game) {
+                action.accept(game);
+            }
+        });
+    }
+
+    private long expiryMillis(Game game) {
+        if (games.get(game.getId()) != game) {
+            return Long.MIN_VALUE;
+        }
+        return game.getLastActiveMillis() + (game.isFinished() ? finishedMillis : idleMillis);
+    }
+
+    /**
+     * Get the estimated heap used by the registered games, as the sum of {@link Game#estimatedBytes()}.
+     *
+     * @return the estimated size of the registered games in bytes.
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes.get();
+    }
+
+    /**
+     * Get the number of games tracked for expiry, which includes removed games until they are dropped.
+     *
+     * @return the number of games tracked for expiry.
+     */
+    public int getTrackedForExpiry() {
+        return expiries.size();
+    }
+
+    /**
+     * Get the number of registered games.
+     *
+     * @return the number of registered games.
+     */
+    public int size() {
+        return games.size();
+    }
+}
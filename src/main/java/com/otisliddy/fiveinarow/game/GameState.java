@@ -1,10 +1,8 @@
 package com.otisliddy.fiveinarow.game;
 
-import java.awt.*;
 import java.io.Serializable;
 
 import org.springframework.lang.Nullable;
-import org.springframework.stereotype.Component;
 
 import com.otisliddy.fiveinarow.config.SystemProperties;
 import com.otisliddy.fiveinarow.exception.IllegalMoveException;
@@ -12,25 +10,31 @@ import com.otisliddy.fiveinarow.exception.IllegalMoveException;
 /**
  * Holds the state of a game, including the grid of discs, the {@link GameStatus} and whose move it is.
  * <p>To external methods, columns are indexed starting at 1. Internally to the class, they are indexed starting at 0.</p>
+ * <p>The discs are held in a {@link Bitboard}. The {@code int[][]} grid exposed to clients is only built from the bitboard when it is
+ * requested after a change.</p>
+ * <p>Every change also moves the state on to a new {@link #version()}, so that encodings of the state can be cached until it next changes.</p>
  */
-@Component
 public class GameState implements Serializable {
 
     private static final int NUM_ROWS = SystemProperties.NUM_ROWS.getValue();
     private static final int NUM_COLUMNS = SystemProperties.NUM_COLUMNS.getValue();
     private static final int IN_A_ROW_TO_WIN = SystemProperties.IN_A_ROW_TO_WIN.getValue();
-    private static final int EMPTY = 0;
 
     private int numRows;
     private int numColumns;
     private int inARow;
 
+    private Bitboard board;
     /**
      * Outer array is the rows, inner array us the columns. (0,0) in the grid corresponds to the bottom left of the game as it should be displayed.
+     * Materialised from {@link #board} on demand.
      */
-    private int[][] grid;
+    private transient int[][] grid;
+    private transient boolean gridStale;
+    private int moveCount;
     private Player playerToMove = null;
     private GameStatus status = GameStatus.IN_PROGRESS;
+    private transient long version;
 
     /**
      * Construct an instance of {@code GameState}.
@@ -46,11 +50,12 @@ public class GameState implements Serializable {
         this.numRows = numRows;
         this.numColumns = numColumns;
         this.inARow = inARow;
+        board = new Bitboard(numRows, numColumns);
         grid = new int[numRows][numColumns];
     }
 
     /**
-     * Construct an instance of {@IllegalMove}. Empty constructor needed for injecting and for transfer over WebSockets.
+     * Construct an instance of {@IllegalMove}. Empty constructor needed for transfer over WebSockets.
      */
     public GameState() {
         this(NUM_ROWS, NUM_COLUMNS, IN_A_ROW_TO_WIN);
@@ -67,17 +72,71 @@ public class GameState implements Serializable {
      * @return the grid of discs.
      */
     public int[][] getGrid() {
+        if (gridStale) {
+            board.copyInto(grid);
+            gridStale = false;
+        }
         return grid;
     }
 
     /**
-     * Set the grid of discs.
+     * Set the grid of discs. The dimensions of the game are taken from the provided grid.
      *
      * @param grid
      *            the grid to set.
      */
     protected void setGrid(int[][] grid) {
+        final int rows = grid.length;
+        final int columns = rows == 0 ? 0 : grid[0].length;
+        if (rows != numRows || columns != numColumns) {
+            numRows = rows;
+            numColumns = columns;
+            board = new Bitboard(numRows, numColumns);
+        }
+        board.load(grid);
+        moveCount = 0;
+        for (int[] row : grid) {
+            for (int cell : row) {
+                if (cell != 0) {
+                    moveCount++;
+                }
+            }
+        }
         this.grid = grid;
+        gridStale = false;
+        version++;
+    }
+
+    /**
+     * Get the bitboard holding the discs of this game, for example to choose a move from without copying it. Not part of the state sent to
+     * clients. The bitboard may be changed to search the moves that could follow, but must be restored before this game is next used.
+     *
+     * @return the bitboard holding the discs of this game.
+     */
+    public Bitboard board() {
+        return board;
+    }
+
+    /**
+     * Empty the board and put this game back to the start, in progress with no player to move, so that the same instance can play another
+     * game of the same size without allocating.
+     */
+    public void reset() {
+        board.clear();
+        moveCount = 0;
+        gridStale = true;
+        playerToMove = null;
+        status = GameStatus.IN_PROGRESS;
+        version++;
+    }
+
+    /**
+     * Copy the bitboard holding the discs of this game, for example to search the moves that could follow without changing this game.
+     *
+     * @return a copy of the bitboard.
+     */
+    public Bitboard copyBoard() {
+        return new Bitboard(board);
     }
 
     /**
@@ -88,64 +147,113 @@ public class GameState implements Serializable {
      * @param playerId
      *            the player ID who added the disc.
      * @throws IllegalMoveException
-     *            if the provided column is not in range or the column is full of discs.
+     *            if the provided column is not in range, the column is full of discs, or the game is over.
+     * @see #tryAddDisc(int, int)
      */
     public void addDisc(int column, int playerId) throws IllegalMoveException {
-        if (column < 1 || column > numColumns) {
+        final int result = tryAddDisc(column, playerId);
+        if (result == MoveResult.COLUMN_OUT_OF_RANGE) {
             throw new IllegalMoveException(String.format("Column %d is out of range of (%d-%d)", column, 1, numColumns), playerId);
         }
-        int newDiscRowIndex = getPopulatedHeight(column);
-        if (newDiscRowIndex >= numRows) {
+        if (result == MoveResult.COLUMN_FULL) {
             throw new IllegalMoveException("No more discs may be added to column " + column + " because it is full", playerId);
         }
-        int newDiscRow = getPopulatedHeight(column);
-        grid[newDiscRow][column - 1] = playerId;
-
-        calculateNewGameState(newDiscRow, column - 1, playerId);
+        if (result == MoveResult.GAME_OVER) {
+            throw new IllegalMoveException("No more discs may be added because the game is over", playerId);
+        }
     }
 
-    private int getPopulatedHeight(int column) {
-        int result = 0;
-        while (result < numRows && grid[result][column - 1] != EMPTY) {
-            result++;
+    /**
+     * Add a disc to the provided column for the provided player ID, reporting the outcome as a {@link MoveResult} code rather than an exception.
+     * Neither an accepted nor a rejected move allocates any objects.
+     *
+     * @param column
+     *            the column to add the disc.
+     * @param playerId
+     *            the player ID who added the disc.
+     * @return the {@link MoveResult} code of the move.
+     */
+    public int tryAddDisc(int column, int playerId) {
+        if (status != GameStatus.IN_PROGRESS) {
+            return MoveResult.GAME_OVER;
         }
-        return result;
-    }
+        if (column < 1 || column > numColumns) {
+            return MoveResult.COLUMN_OUT_OF_RANGE;
+        }
+        if (board.getHeight(column - 1) >= numRows) {
+            return MoveResult.COLUMN_FULL;
+        }
+        final int row = board.drop(column - 1, playerId - 1);
+        moveCount++;
+        gridStale = true;
+        version++;
 
-    private void calculateNewGameState(int rowOfNewDisc, int columnOfNewDisc, int playerId) {
-        for (Direction direction : Direction.values()) {
-            if (isFiveInARow(rowOfNewDisc, columnOfNewDisc, direction, playerId)) {
-                status = GameStatus.OVER_WON;
-                return;
-            }
+        if (board.hasLineThrough(row, column - 1, playerId - 1, inARow)) {
+            status = GameStatus.OVER_WON;
+            return MoveResult.WON;
         }
-        if (isDraw()) {
+        if (moveCount == numRows * numColumns) {
             status = GameStatus.OVER_DRAWN;
+            return MoveResult.DRAWN;
         }
+        return MoveResult.ACCEPTED;
     }
 
-    private boolean isFiveInARow(int rowOfNewDisc, int columnOfNewDisc, final Direction direction, final int playerId) {
-        final Point position = new Point(rowOfNewDisc, columnOfNewDisc);
-        for (int i = 0; i < inARow; i++) {
-            if (!gridPositionExists(position) || grid[position.x][position.y] != playerId) {
-                return false;
-            }
-            position.translate(direction.horizontal, direction.vertical);
-        }
-        return true;
+    /**
+     * Take back the last disc added to the provided column, undoing {@link #tryAddDisc(int, int)}. The game is in progress afterwards.
+     *
+     * @param column
+     *            the column to remove the top disc from, indexed starting at 1, which must not be empty.
+     */
+    void undoDisc(int column) {
+        board.undrop(column - 1);
+        moveCount--;
+        gridStale = true;
+        version++;
+        status = GameStatus.IN_PROGRESS;
     }
 
-    private boolean gridPositionExists(final Point position) {
-        return position.x >= 0 && position.x < numRows && position.y >= 0 && position.y < numColumns;
+    /**
+     * Get the number of discs needed in-a-row to win.
+     *
+     * @return the number of discs needed in-a-row to win.
+     */
+    public int getInARow() {
+        return inARow;
     }
 
-    private boolean isDraw() {
-        for (int i = 0; i < numColumns; i++) {
-            if (grid[numRows - 1][i] == EMPTY) {
-                return false;
-            }
-        }
-        return true;
+    /**
+     * Get the number of discs in the provided column.
+     *
+     * @param column
+     *            the column, indexed starting at 1.
+     * @return the number of discs in the column.
+     */
+    public int getHeight(int column) {
+        return board.getHeight(column - 1);
+    }
+
+    /**
+     * Get the number of cells in the grid, whether or not they hold a disc.
+     */
+    int numCells() {
+        return numRows * numColumns;
+    }
+
+    /**
+     * Get the version of this state, which changes whenever the state does. Not part of the state sent to clients.
+     */
+    long version() {
+        return version;
+    }
+
+    /**
+     * Get the number of discs in the grid.
+     *
+     * @return the number of discs in the grid.
+     */
+    public int getMoveCount() {
+        return moveCount;
     }
 
     /**
@@ -166,6 +274,7 @@ public class GameState implements Serializable {
      */
     public void setPlayerToMove(Player player) {
         this.playerToMove = player;
+        version++;
     }
 
     /**
@@ -185,20 +294,6 @@ public class GameState implements Serializable {
      */
     public void setStatus(final GameStatus status) {
         this.status = status;
-    }
-
-    /**
-     * Directions relative to a position in the game grid.
-     */
-    private enum Direction {
-        UP_RIGHT(1, 1), RIGHT(0, 1), DOWN_RIGHT(-1, 1), DOWN(-1, 0), DOWN_LEFT(-1, -1), LEFT(0, -1), UP_LEFT(1, -1);
-
-        int horizontal;
-        int vertical;
-
-        Direction(final int horizontal, final int vertical) {
-            this.horizontal = horizontal;
-            this.vertical = vertical;
-        }
+        version++;
     }
 }
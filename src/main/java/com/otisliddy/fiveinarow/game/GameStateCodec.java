@@ -0,0 +1,138 @@
+package com.otisliddy.fiveinarow.game;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary encoding of a {@link GameState}, as an alternative to JSON for clients that can handle binary messages.
+ * <p>All numbers are big-endian. The encoding is:</p>
+ * <ol>
+ * <li>{@code byte} format version, currently 1</li>
+ * <li>{@code byte} {@link GameStatus} ordinal</li>
+ * <li>{@code short} number of rows, {@code short} number of columns, {@code short} number of discs needed in-a-row</li>
+ * <li>{@code int} move count</li>
+ * <li>{@code byte} 1 if there is a player to move, followed by their {@code int} ID, {@code long} game ID, {@code short} name length in bytes
+ * (-1 for no name) and UTF-8 name; otherwise {@code byte} 0</li>
+ * <li>the grid, 2 bits per cell with the same values as {@link GameState#getGrid()}, row by row from the bottom left, 4 cells per byte with the
+ * first cell in the lowest bits</li>
+ * </ol>
+ */
+public final class GameStateCodec {
+
+    private static final byte VERSION = 1;
+    private static final int HEADER_BYTES = 2 + 3 * Short.BYTES + Integer.BYTES + 1;
+    private static final int PLAYER_BYTES = Integer.BYTES + Long.BYTES + Short.BYTES;
+    private static final GameStatus[] STATUSES = GameStatus.values();
+
+    private GameStateCodec() {
+    }
+
+    /**
+     * Encode a game state.
+     *
+     * @param gameState
+     *            the game state to encode.
+     * @return the encoded game state.
+     */
+    public static byte[] encode(GameState gameState) {
+        final int[][] grid = gameState.getGrid();
+        final int numRows = grid.length;
+        final int numColumns = numRows == 0 ? 0 : grid[0].length;
+        final Player player = gameState.getPlayerToMove();
+        final byte[] name = player == null || player.getName() == null ? null : player.getName().getBytes(StandardCharsets.UTF_8);
+
+        final int gridBytes = (numRows * numColumns + 3) / 4;
+        final int playerBytes = player == null ? 0 : PLAYER_BYTES + (name == null ? 0 : name.length);
+        final ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + playerBytes + gridBytes);
+        buffer.put(VERSION);
+        buffer.put((byte) gameState.getStatus().ordinal());
+        buffer.putShort((short) numRows);
+        buffer.putShort((short) numColumns);
+        buffer.putShort((short) gameState.getInARow());
+        buffer.putInt(gameState.getMoveCount());
+        if (player == null) {
+            buffer.put((byte) 0);
+        } else {
+            buffer.put((byte) 1);
+            buffer.putInt(player.getId());
+            buffer.putLong(player.getGameId());
+            buffer.putShort((short) (name == null ? -1 : name.length));
+            if (name != null) {
+                buffer.put(name);
+            }
+        }
+
+        int packed = 0;
+        int cell = 0;
+        for (int[] row : grid) {
+            for (int value : row) {
+                packed |= (value & 3) << ((cell & 3) << 1);
+                if ((++cell & 3) == 0) {
+                    buffer.put((byte) packed);
+                    packed = 0;
+                }
+            }
+        }
+        if ((cell & 3) != 0) {
+            buffer.put((byte) packed);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Decode a game state.
+     *
+     * @param bytes
+     *            the encoded game state.
+     * @return the decoded game state.
+     * @throws IllegalArgumentException
+     *            if the bytes are not a valid encoding of a game state.
+     */
+    public static GameState decode(byte[] bytes) {
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            if (buffer.get() != VERSION) {
+                throw new IllegalArgumentException("Unsupported game state encoding version " + bytes[0]);
+            }
+            final GameStatus status = STATUSES[buffer.get()];
+            final int numRows = buffer.getShort();
+            final int numColumns = buffer.getShort();
+            final int inARow = buffer.getShort();
+            buffer.getInt();
+            Player player = null;
+            if (buffer.get() != 0) {
+                final int id = buffer.getInt();
+                final long gameId = buffer.getLong();
+                final short nameLength = buffer.getShort();
+                String name = null;
+                if (nameLength >= 0) {
+                    name = new String(bytes, buffer.position(), nameLength, StandardCharsets.UTF_8);
+                    buffer.position(buffer.position() + nameLength);
+                }
+                player = new Player(name, id, gameId);
+            }
+
+            final int[][] grid = new int[numRows][numColumns];
+            int packed = 0;
+            int cell = 0;
+            for (int[] row : grid) {
+                for (int column = 0; column < numColumns; column++) {
+                    if ((cell & 3) == 0) {
+                        packed = buffer.get();
+                    }
+                    row[column] = (packed >>> ((cell & 3) << 1)) & 3;
+                    cell++;
+                }
+            }
+
+            final GameState gameState = new GameState(numRows, numColumns, inARow);
+            gameState.setGrid(grid);
+            gameState.setStatus(status);
+            gameState.setPlayerToMove(player);
+            return gameState;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException exception) {
+            throw new IllegalArgumentException("Truncated or corrupt game state encoding", exception);
+        }
+    }
+}
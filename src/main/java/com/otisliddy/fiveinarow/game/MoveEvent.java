@@ -0,0 +1,104 @@
+package com.otisliddy.fiveinarow.game;
+
+import java.io.Serializable;
+
+/**
+ * POJO describing a single move made in a game, sent to clients in place of the whole {@link GameState}. Clients apply each event to their
+ * own copy of the grid.
+ * <p>Events of a game are numbered by {@code sequence}, which equals the {@link GameState#getMoveCount()} of the game after the move. A
+ * client that sees a gap in the sequence has missed an event and should request a full {@code GameState} again.</p>
+ */
+public class MoveEvent implements Serializable {
+
+    private long sequence;
+    private int column;
+    private int row;
+    private int playerId;
+    private GameStatus status;
+    private Player playerToMove;
+
+    /**
+     * Construct an instance. Empty constructor is needed for transfer over WebSockets.
+     */
+    public MoveEvent() {
+    }
+
+    /**
+     * Construct an instance with the provided arguments.
+     *
+     * @param sequence
+     *            the sequence number of the move within its game.
+     * @param column
+     *            the column the disc was added to, indexed starting at 1.
+     * @param row
+     *            the row the disc landed on, indexed starting at 0 from the bottom of the grid like {@link GameState#getGrid()}.
+     * @param playerId
+     *            the ID of the player who added the disc.
+     * @param status
+     *            the status of the game after the move.
+     * @param playerToMove
+     *            the player to move next, or the winner if the move won the game.
+     */
+    public MoveEvent(long sequence, int column, int row, int playerId, GameStatus status, Player playerToMove) {
+        this.sequence = sequence;
+        this.column = column;
+        this.row = row;
+        this.playerId = playerId;
+        this.status = status;
+        this.playerToMove = playerToMove;
+    }
+
+    /**
+     * Get the sequence number of the move within its game.
+     *
+     * @return the sequence number, starting at 1 for the first move of the game.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Get the column the disc was added to.
+     *
+     * @return the column, indexed starting at 1.
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * Get the row the disc landed on.
+     *
+     * @return the row, indexed starting at 0 from the bottom of the grid.
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * Get the ID of the player who added the disc.
+     *
+     * @return the player ID.
+     */
+    public int getPlayerId() {
+        return playerId;
+    }
+
+    /**
+     * Get the status of the game after the move.
+     *
+     * @return the status of the game after the move.
+     */
+    public GameStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Get the player to move next, or the winner if the move won the game.
+     *
+     * @return the player to move next.
+     */
+    public Player getPlayerToMove() {
+        return playerToMove;
+    }
+}
@@ -0,0 +1,52 @@
+package com.otisliddy.fiveinarow.game;
+
+/**
+ * Result codes returned by {@link GameState#tryAddDisc(int, int)}. Codes are plain {@code int}s so that making or rejecting a move allocates
+ * nothing.
+ */
+public final class MoveResult {
+
+    /**
+     * The disc was added and the game is still in progress.
+     */
+    public static final int ACCEPTED = 0;
+
+    /**
+     * The disc was added and won the game for the player who added it.
+     */
+    public static final int WON = 1;
+
+    /**
+     * The disc was added and filled the last free position in the grid, drawing the game.
+     */
+    public static final int DRAWN = 2;
+
+    /**
+     * The disc was not added because the column does not exist.
+     */
+    public static final int COLUMN_OUT_OF_RANGE = -1;
+
+    /**
+     * The disc was not added because the column is full of discs.
+     */
+    public static final int COLUMN_FULL = -2;
+
+    /**
+     * The disc was not added because the game is already over.
+     */
+    public static final int GAME_OVER = -3;
+
+    private MoveResult() {
+    }
+
+    /**
+     * Whether the provided result code is for a move that was made.
+     *
+     * @param result
+     *            the result code.
+     * @return {@code true} if the disc was added to the grid.
+     */
+    public static boolean isAccepted(int result) {
+        return result >= ACCEPTED;
+    }
+}
@@ -12,6 +12,8 @@ public class Player implements Serializable {
 
     private int id;
 
+    private long gameId;
+
     /**
      * Construct an instance of a player.
      *
@@ -25,6 +27,21 @@ public class Player implements Serializable {
         this.id = id;
     }
 
+    /**
+     * Construct an instance of a player taking part in a game.
+     *
+     * @param name
+     *            the player name.
+     * @param id
+     *            the player ID within the game, 1 or 2.
+     * @param gameId
+     *            the ID of the game the player is taking part in.
+     */
+    public Player(String name, int id, long gameId) {
+        this(name, id);
+        this.gameId = gameId;
+    }
+
     /**
      * Construct an instance of a player. Empty constructor is needed for transfer over WebSockets.
      */
@@ -49,6 +66,15 @@ public class Player implements Serializable {
         return id;
     }
 
+    /**
+     * Get the ID of the game the player is taking part in.
+     *
+     * @return the game ID.
+     */
+    public long getGameId() {
+        return gameId;
+    }
+
     @Override
     public boolean equals(final Object otherPlayer) {
         if (this == otherPlayer)
@@ -56,12 +82,12 @@ public class Player implements Serializable {
         if (otherPlayer == null || getClass() != otherPlayer.getClass())
             return false;
         final Player player = (Player) otherPlayer;
-        return id == player.id && Objects.equals(name, player.name);
+        return id == player.id && gameId == player.gameId && Objects.equals(name, player.name);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(name, id);
+        return Objects.hash(name, id, gameId);
     }
 
     @Override
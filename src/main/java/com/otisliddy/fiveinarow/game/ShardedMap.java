@@ -0,0 +1,82 @@
+package com.otisliddy.fiveinarow.game;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * A concurrent map split into a fixed, power-of-two number of independent {@link ConcurrentHashMap} shards, chosen by key hash. Writers to
+ * different shards never contend with each other, and no operation takes a lock across shards.
+ * <p>The shard is picked from the top bits of a multiplicative mix of the key's hash, as each shard picks its bucket from the low bits of the
+ * hash. Picking the shard from the low bits as well would leave every key in a shard with the same low bucket bits, so that it could only use
+ * a fraction of the shard's buckets.</p>
+ *
+ * @param <K>
+ *            the key type.
+ * @param <V>
+ *            the value type.
+ */
+class ShardedMap<K, V> {
+
+    private static final int MIX = 0x9E3779B9;
+
+    private final ConcurrentHashMap<K, V>[] shards;
+    private final int shift;
+
+    /**
+     * Construct an empty {@code ShardedMap}.
+     *
+     * @param numShards
+     *            the number of shards, rounded up to a power of two.
+     */
+    ShardedMap(int numShards) {
+        final int size = Integer.highestOneBit(Math.max(1, numShards - 1)) << 1;
+        @SuppressWarnings("unchecked")
+        final ConcurrentHashMap<K, V>[] newShards = (ConcurrentHashMap<K, V>[]) new ConcurrentHashMap<?, ?>[size];
+        for (int i = 0; i < size; i++) {
+            newShards[i] = new ConcurrentHashMap<>();
+        }
+        shards = newShards;
+        shift = Integer.SIZE - Integer.numberOfTrailingZeros(size);
+    }
+
+    V get(K key) {
+        return shard(key).get(key);
+    }
+
+    V put(K key, V value) {
+        return shard(key).put(key, value);
+    }
+
+    V remove(K key) {
+        return shard(key).remove(key);
+    }
+
+    boolean remove(K key, V value) {
+        return shard(key).remove(key, value);
+    }
+
+    int size() {
+        int size = 0;
+        for (ConcurrentHashMap<K, V> shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    void forEachValue(Consumer<? super V> action) {
+        for (ConcurrentHashMap<K, V> shard : shards) {
+            shard.values().forEach(action);
+        }
+    }
+
+    /**
+     * Get the index of the shard for a key hash.
+     */
+    int shardIndex(int hash) {
+        return (hash * MIX) >>> shift;
+    }
+
+    private ConcurrentHashMap<K, V> shard(K key) {
+        return shards[shardIndex(key.hashCode())];
+    }
+}
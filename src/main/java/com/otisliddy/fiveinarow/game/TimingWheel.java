@@ -0,0 +1,109 @@
+package com.otisliddy.fiveinarow.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * A hashed timing wheel, which expires any number of entries with one shared structure rather than one timer each.
+ * <p>Time is divided into ticks, and each entry is held in the bucket of the tick its deadline falls in, modulo the number of buckets. Each
+ * {@link #advance(long, Consumer)} visits the buckets of the ticks passed since the last call. A visited entry whose deadline has come is
+ * expired, to the resolution of one tick. The others were either pushed back since they were bucketed, or fall in a later turn of the wheel,
+ * and are moved to the bucket of their current deadline.</p>
+ * <p>Deadlines are read from the entries when visited, so an entry's deadline may be pushed back without touching the wheel. Entries may be
+ * scheduled from any thread, and are bucketed on the next advance. The wheel must only be advanced by one thread at a time.</p>
+ *
+ * @param <T>
+ *            the type of entry.
+ */
+class TimingWheel<T> {
+
+    private final long tickMillis;
+    private final List<List<T>> buckets;
+    private final ToLongFunction<T> deadline;
+    private final ConcurrentLinkedQueue<T> scheduled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private long currentTick;
+
+    /**
+     * Construct an instance of {@code TimingWheel}.
+     *
+     * @param numBuckets
+     *            the number of buckets, and so of ticks in one turn of the wheel.
+     * @param tickMillis
+     *            the length of a tick in milliseconds.
+     * @param deadline
+     *            gets the current deadline of an entry, as a time in milliseconds.
+     * @param startMillis
+     *            the time to start the wheel at, in milliseconds.
+     */
+    TimingWheel(int numBuckets, long tickMillis, ToLongFunction<T> deadline, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.deadline = deadline;
+        buckets = new ArrayList<>(numBuckets);
+        for (int bucket = 0; bucket < numBuckets; bucket++) {
+            buckets.add(new ArrayList<>());
+        }
+        currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Add an entry to the wheel, to be expired at its deadline.
+     */
+    void schedule(T entry) {
+        size.incrementAndGet();
+        scheduled.add(entry);
+    }
+
+    /**
+     * Move the wheel on to a time, expiring the entries whose deadlines have come by then.
+     *
+     * @param nowMillis
+     *            the current time in milliseconds.
+     * @param expired
+     *            the action to perform for each expired entry, which is removed from the wheel.
+     */
+    void advance(long nowMillis, Consumer<T> expired) {
+        final long nowTick = nowMillis / tickMillis;
+        for (T entry = scheduled.poll(); entry != null; entry = scheduled.poll()) {
+            bucket(entry, nowTick, expired);
+        }
+        // Visiting more than one turn of the wheel would find nothing new, so a long pause costs at most one turn.
+        final long fromTick = Math.max(currentTick + 1, nowTick - buckets.size() + 1);
+        for (long tick = fromTick; tick <= nowTick; tick++) {
+            final List<T> bucket = buckets.get(index(tick));
+            final List<T> visited = new ArrayList<>(bucket);
+            bucket.clear();
+            for (T entry : visited) {
+                bucket(entry, nowTick, expired);
+            }
+        }
+        currentTick = Math.max(currentTick, nowTick);
+    }
+
+    private void bucket(T entry, long nowTick, Consumer<T> expired) {
+        final long deadlineTick = deadline.applyAsLong(entry) / tickMillis;
+        if (deadlineTick <= nowTick) {
+            size.decrementAndGet();
+            expired.accept(entry);
+        } else {
+            buckets.get(index(deadlineTick)).add(entry);
+        }
+    }
+
+    private int index(long tick) {
+        return (int) Math.floorMod(tick, (long) buckets.size());
+    }
+
+    /**
+     * Get the number of entries in the wheel, including those scheduled since the last advance.
+     *
+     * @return the number of entries.
+     */
+    int size() {
+        return size.get();
+    }
+}
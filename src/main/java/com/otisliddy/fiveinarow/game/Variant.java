@@ -0,0 +1,125 @@
+package com.otisliddy.fiveinarow.game;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import com.otisliddy.fiveinarow.config.SystemProperties;
+
+/**
+ * The board dimensions and number of discs needed in-a-row to win that together define a variant of the game.
+ */
+public final class Variant implements Serializable {
+
+    private static final int MAX_DIMENSION = 100;
+
+    private final int numRows;
+    private final int numColumns;
+    private final int inARow;
+
+    /**
+     * Construct an instance of {@code Variant}.
+     *
+     * @param numRows
+     *            the number of rows in the grid.
+     * @param numColumns
+     *            the number of columns in the grid.
+     * @param inARow
+     *            the number of discs needed in-a-row to win.
+     */
+    public Variant(int numRows, int numColumns, int inARow) {
+        this.numRows = numRows;
+        this.numColumns = numColumns;
+        this.inARow = inARow;
+    }
+
+    /**
+     * Get the variant configured through {@link SystemProperties}.
+     *
+     * @return the default variant.
+     */
+    public static Variant defaultVariant() {
+        return new Variant(SystemProperties.NUM_ROWS.getValue(), SystemProperties.NUM_COLUMNS.getValue(),
+                SystemProperties.IN_A_ROW_TO_WIN.getValue());
+    }
+
+    /**
+     * Parse a variant of the form {@code <rows>x<columns>x<inARow>}, for example {@code 6x9x5}.
+     *
+     * @param value
+     *            the value to parse.
+     * @return the parsed variant, or {@code null} if the value is not a valid variant. Each dimension must be between 1 and 100.
+     */
+    public static Variant parse(String value) {
+        final String[] parts = value.split("x");
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            final Variant variant = new Variant(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()),
+                    Integer.parseInt(parts[2].trim()));
+            return variant.isValid() ? variant : null;
+        } catch (NumberFormatException exception) {
+            return null;
+        }
+    }
+
+    private boolean isValid() {
+        return numRows > 0 && numRows <= MAX_DIMENSION && numColumns > 0 && numColumns <= MAX_DIMENSION && inARow > 0 && inARow <= MAX_DIMENSION;
+    }
+
+    /**
+     * Create a new, empty game state for this variant.
+     *
+     * @return a new game state.
+     */
+    public GameState newGameState() {
+        return new GameState(numRows, numColumns, inARow);
+    }
+
+    /**
+     * Get the number of rows in the grid.
+     *
+     * @return the number of rows in the grid.
+     */
+    public int getNumRows() {
+        return numRows;
+    }
+
+    /**
+     * Get the number of columns in the grid.
+     *
+     * @return the number of columns in the grid.
+     */
+    public int getNumColumns() {
+        return numColumns;
+    }
+
+    /**
+     * Get the number of discs needed in-a-row to win.
+     *
+     * @return the number of discs needed in-a-row to win.
+     */
+    public int getInARow() {
+        return inARow;
+    }
+
+    @Override
+    public boolean equals(final Object otherVariant) {
+        if (this == otherVariant)
+            return true;
+        if (otherVariant == null || getClass() != otherVariant.getClass())
+            return false;
+        final Variant variant = (Variant) otherVariant;
+        return numRows == variant.numRows && numColumns == variant.numColumns && inARow == variant.inARow;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(numRows, numColumns, inARow);
+    }
+
+    @Override
+    public String toString() {
+        return numRows + "x" + numColumns + "x" + inARow;
+    }
+}
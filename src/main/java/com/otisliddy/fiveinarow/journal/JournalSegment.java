@@ -0,0 +1,147 @@
+package com.otisliddy.fiveinarow.journal;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One memory-mapped file of the move journal, holding fixed-size records appended one after another.
+ * <p>Each record is {@value #RECORD_SIZE} bytes:</p>
+ * <ol>
+ * <li>{@code int} record type, one of the {@code TYPE_} constants. Unused space in the file is zero, so a type of 0 marks a slot with no
+ * record.</li>
+ * <li>{@code int} sequence number of the move within its game</li>
+ * <li>{@code long} game ID</li>
+ * <li>{@code int} column of the move, or the packed game variant for {@link #TYPE_CREATED} records</li>
+ * <li>{@code int} ID of the player who made the move</li>
+ * <li>{@code long} checksum of the other fields, so that a record torn by a crash is detected</li>
+ * </ol>
+ * <p>Appending claims a slot with a single atomic add and copies the record into the mapped memory, so any number of threads can append at
+ * once without locking. Records only reach the disk when the segment is {@link #force() forced}. A crash may therefore leave a claimed slot
+ * empty or torn with complete records after it, appended by other threads, so reading skips such slots rather than stopping at them.</p>
+ */
+class JournalSegment {
+
+    static final int RECORD_SIZE = 32;
+    static final int TYPE_CREATED = 1;
+    static final int TYPE_JOINED = 2;
+    static final int TYPE_MOVE = 3;
+    static final int TYPE_ENDED = 4;
+
+    private final long number;
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final AtomicInteger position = new AtomicInteger();
+    private final AtomicInteger written = new AtomicInteger();
+    private volatile int flushed;
+
+    /**
+     * Open a segment for appending, creating the file if needed.
+     *
+     * @param number
+     *            the number of the segment, increasing with each new segment.
+     * @param path
+     *            the path of the file.
+     * @param capacity
+     *            the size of the file in bytes.
+     * @throws IOException
+     *            if the file cannot be opened or mapped.
+     */
+    JournalSegment(long number, Path path, int capacity) throws IOException {
+        this.number = number;
+        this.path = path;
+        this.capacity = capacity - capacity % RECORD_SIZE;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, this.capacity);
+        }
+    }
+
+    /**
+     * Append a record.
+     *
+     * @return {@code false} if the segment is full, in which case nothing was written.
+     */
+    boolean append(int type, long gameId, int sequence, int column, int playerId) {
+        final int offset = position.getAndAdd(RECORD_SIZE);
+        if (offset + RECORD_SIZE > capacity) {
+            return false;
+        }
+        buffer.putInt(offset + 4, sequence);
+        buffer.putLong(offset + 8, gameId);
+        buffer.putInt(offset + 16, column);
+        buffer.putInt(offset + 20, playerId);
+        buffer.putLong(offset + 24, checksum(type, sequence, gameId, column, playerId));
+        buffer.putInt(offset, type);
+        written.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Flush appended records to disk, if any have been appended since the last flush. Records still being appended while the segment is
+     * flushed are flushed by the next call.
+     */
+    void force() {
+        final int count = written.get();
+        if (count != flushed) {
+            buffer.force();
+            flushed = count;
+        }
+    }
+
+    long getNumber() {
+        return number;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * Read every complete record of a segment file, in the order they were appended. Empty and torn slots are skipped, and reading carries on
+     * to the end of the file, as complete records may follow them.
+     *
+     * @param path
+     *            the path of the segment file.
+     * @param visitor
+     *            the visitor to pass the records to.
+     * @throws IOException
+     *            if the file cannot be read.
+     */
+    static void read(Path path, RecordVisitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final MappedByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            for (int offset = 0; offset + RECORD_SIZE <= records.limit(); offset += RECORD_SIZE) {
+                final int type = records.getInt(offset);
+                final int sequence = records.getInt(offset + 4);
+                final long gameId = records.getLong(offset + 8);
+                final int column = records.getInt(offset + 16);
+                final int playerId = records.getInt(offset + 20);
+                if (type == 0 || records.getLong(offset + 24) != checksum(type, sequence, gameId, column, playerId)) {
+                    continue;
+                }
+                visitor.visit(type, gameId, sequence, column, playerId);
+            }
+        }
+    }
+
+    private static long checksum(int type, int sequence, long gameId, int column, int playerId) {
+        long hash = 0x9E3779B97F4A7C15L;
+        hash = (hash ^ type) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ sequence) * 0x94D049BB133111EBL;
+        hash = (hash ^ gameId) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ column) * 0x94D049BB133111EBL;
+        hash = (hash ^ playerId) * 0xBF58476D1CE4E5B9L;
+        return hash ^ (hash >>> 31);
+    }
+
+    /**
+     * Receives the records read from a segment.
+     */
+    interface RecordVisitor {
+        void visit(int type, long gameId, int sequence, int column, int playerId);
+    }
+}
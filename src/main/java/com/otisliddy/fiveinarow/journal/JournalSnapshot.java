@@ -0,0 +1,176 @@
+package com.otisliddy.fiveinarow.journal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import com.otisliddy.fiveinarow.game.Game;
+import com.otisliddy.fiveinarow.game.GameState;
+import com.otisliddy.fiveinarow.game.GameStateCodec;
+import com.otisliddy.fiveinarow.game.Player;
+
+/**
+ * Snapshot of every game at one point in time, written so that the move journal files written before it can be deleted.
+ * <p>The file holds a format version, the number of games, then for each game its ID, the names of its players, its {@link GameState}
+ * encoded by {@link GameStateCodec} and the columns of its moves. It ends with a CRC32 of everything before it. Snapshots are written to a
+ * temporary file which is then renamed, so a snapshot file is either complete or absent.</p>
+ */
+final class JournalSnapshot {
+
+    private static final int VERSION = 1;
+
+    private JournalSnapshot() {
+    }
+
+    /**
+     * Write a snapshot.
+     *
+     * @param path
+     *            the path of the snapshot file.
+     * @param entries
+     *            the games to write.
+     * @throws IOException
+     *            if the snapshot cannot be written.
+     */
+    static void write(Path path, Collection<Entry> entries) throws IOException {
+        final Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        final CRC32 crc = new CRC32();
+        try (FileOutputStream file = new FileOutputStream(temp.toFile());
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(file, crc)))) {
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                out.writeLong(entry.gameId);
+                writeName(out, entry.playerOneName);
+                out.writeBoolean(entry.joined);
+                writeName(out, entry.playerTwoName);
+                out.writeInt(entry.state.length);
+                out.write(entry.state);
+                out.writeInt(entry.moves.length);
+                out.write(entry.moves);
+            }
+            out.flush();
+            new DataOutputStream(file).writeLong(crc.getValue());
+            file.getFD().sync();
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read a snapshot.
+     *
+     * @param path
+     *            the path of the snapshot file.
+     * @return the games in the snapshot.
+     * @throws IOException
+     *            if the snapshot cannot be read or is corrupt.
+     */
+    static List<Entry> read(Path path) throws IOException {
+        final CRC32 crc = new CRC32();
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(path));
+                DataInputStream in = new DataInputStream(new CheckedInputStream(file, crc))) {
+            final int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + " in " + path);
+            }
+            final int size = in.readInt();
+            final List<Entry> entries = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                final long gameId = in.readLong();
+                final String playerOneName = readName(in);
+                final boolean joined = in.readBoolean();
+                final String playerTwoName = readName(in);
+                final byte[] state = new byte[in.readInt()];
+                in.readFully(state);
+                final byte[] moves = new byte[in.readInt()];
+                in.readFully(moves);
+                entries.add(new Entry(gameId, playerOneName, joined, playerTwoName, state, moves));
+            }
+            final long expected = crc.getValue();
+            if (new DataInputStream(file).readLong() != expected) {
+                throw new IOException("Corrupt snapshot " + path);
+            }
+            return entries;
+        }
+    }
+
+    private static void writeName(DataOutputStream out, String name) throws IOException {
+        out.writeBoolean(name != null);
+        if (name != null) {
+            out.writeUTF(name);
+        }
+    }
+
+    private static String readName(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * The snapshot of one game.
+     */
+    static final class Entry {
+
+        private final long gameId;
+        private final String playerOneName;
+        private final boolean joined;
+        private final String playerTwoName;
+        private final byte[] state;
+        private final byte[] moves;
+
+        private Entry(long gameId, String playerOneName, boolean joined, String playerTwoName, byte[] state, byte[] moves) {
+            this.gameId = gameId;
+            this.playerOneName = playerOneName;
+            this.joined = joined;
+            this.playerTwoName = playerTwoName;
+            this.state = state;
+            this.moves = moves;
+        }
+
+        /**
+         * Take the snapshot of a game. Must be called from the game's worker, so that the game is not changed while it is taken.
+         *
+         * @param game
+         *            the game.
+         * @return the snapshot of the game.
+         */
+        static Entry of(Game game) {
+            final Player playerTwo = game.getPlayerTwo();
+            return new Entry(game.getId(), game.getPlayerOne().getName(), playerTwo != null, playerTwo == null ? null : playerTwo.getName(),
+                    GameStateCodec.encode(game.getState()), game.getMoves());
+        }
+
+        /**
+         * Rebuild the game from its snapshot. The players of the game have no WebSocket sessions until they rejoin.
+         *
+         * @return the game.
+         */
+        Game toGame() {
+            final GameState gameState = GameStateCodec.decode(state);
+            final Player playerToMove = gameState.getPlayerToMove();
+            final Game game = new Game(gameId, gameState, playerOneName, null);
+            for (byte column : moves) {
+                game.recordMove(column);
+            }
+            if (joined) {
+                game.joinPlayerTwo(playerTwoName, null);
+                if (playerToMove != null && playerToMove.getId() == 2) {
+                    game.switchPlayerToMove();
+                }
+            }
+            return game;
+        }
+    }
+}
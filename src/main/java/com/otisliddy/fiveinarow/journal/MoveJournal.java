@@ -0,0 +1,386 @@
+package com.otisliddy.fiveinarow.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.otisliddy.fiveinarow.config.SystemProperties;
+import com.otisliddy.fiveinarow.game.Game;
+import com.otisliddy.fiveinarow.game.GameExecutor;
+import com.otisliddy.fiveinarow.game.GameRegistry;
+import com.otisliddy.fiveinarow.game.GameState;
+import com.otisliddy.fiveinarow.game.GameStatus;
+import com.otisliddy.fiveinarow.game.MoveResult;
+import com.otisliddy.fiveinarow.game.Variant;
+
+/**
+ * Append-only journal of game events, used to rebuild the {@link GameRegistry} after the server restarts.
+ * <p>Events are appended to memory-mapped {@link JournalSegment} files, which costs a few memory writes and no system calls. A background
+ * thread flushes all events appended since its last run to disk together every {@link SystemProperties#JOURNAL_FLUSH_MILLIS} ms, so one
+ * flush commits the moves of every game made in that interval. Events are appended from each game's {@link GameExecutor} worker, so the
+ * events of a game are journaled in the order they happened.</p>
+ * <p>Every {@link SystemProperties#JOURNAL_SNAPSHOT_SECONDS} seconds a snapshot of all games is written, and the journal files it covers are
+ * deleted. On startup the latest snapshot is loaded and the journal written after it is replayed. Recovered games wait for their players to
+ * rejoin them from new WebSocket sessions.</p>
+ * <p>The journal is disabled unless {@link SystemProperties#JOURNAL_DIR} is set.</p>
+ */
+@Component
+public class MoveJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(MoveJournal.class);
+    private static final Pattern SEGMENT_FILE = Pattern.compile("journal-(\\d+)\\.log");
+    private static final Pattern SNAPSHOT_FILE = Pattern.compile("snapshot-(\\d+)\\.bin");
+    private static final String PLAYER_ONE_NAME = "Player 1";
+    private static final String PLAYER_TWO_NAME = "Player 2";
+    private static final long SNAPSHOT_TIMEOUT_SECONDS = 10;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final List<JournalSegment> segments = new CopyOnWriteArrayList<>();
+    private volatile JournalSegment current;
+    private ScheduledExecutorService scheduler;
+    @Autowired
+    private GameRegistry gameRegistry;
+    @Autowired
+    private GameExecutor gameExecutor;
+
+    /**
+     * Construct an instance of {@code MoveJournal} configured through system properties. Empty constructor needed for injecting.
+     */
+    public MoveJournal() {
+        final String dir = SystemProperties.JOURNAL_DIR.getStringValue();
+        this.directory = dir.isEmpty() ? null : Paths.get(dir);
+        this.segmentBytes = SystemProperties.JOURNAL_SEGMENT_MB.getValue() << 20;
+    }
+
+    /**
+     * Construct an instance of {@code MoveJournal}.
+     *
+     * @param directory
+     *            the directory to keep the journal in.
+     * @param segmentBytes
+     *            the size in bytes of each journal file.
+     * @param gameRegistry
+     *            the registry to recover games into and take snapshots of.
+     * @param gameExecutor
+     *            the executor running the tasks of each game.
+     */
+    public MoveJournal(Path directory, int segmentBytes, GameRegistry gameRegistry, GameExecutor gameExecutor) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.gameRegistry = gameRegistry;
+        this.gameExecutor = gameExecutor;
+    }
+
+    /**
+     * Recover the games in the journal into the game registry, and start journaling. Does nothing if the journal is disabled.
+     *
+     * @throws IOException
+     *            if the journal cannot be read or written.
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        if (directory == null) {
+            return;
+        }
+        Files.createDirectories(directory);
+        final long lastSegment = recover();
+        current = openSegment(lastSegment + 1);
+
+        scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+            final Thread thread = new Thread(runnable, "move-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long flushMillis = SystemProperties.JOURNAL_FLUSH_MILLIS.getValue();
+        final long snapshotSeconds = SystemProperties.JOURNAL_SNAPSHOT_SECONDS.getValue();
+        scheduler.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::snapshotQuietly, snapshotSeconds, snapshotSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop journaling, flushing everything journaled so far to disk.
+     */
+    @PreDestroy
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        flush();
+    }
+
+    /**
+     * Whether the journal is enabled.
+     *
+     * @return {@code true} if events are journaled.
+     */
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Journal the creation of a game. Must be called from the game's {@link GameExecutor} worker.
+     *
+     * @param gameId
+     *            the game ID.
+     * @param variant
+     *            the variant of the game.
+     */
+    public void gameCreated(long gameId, Variant variant) {
+        append(JournalSegment.TYPE_CREATED, gameId, 0, pack(variant), 1);
+    }
+
+    /**
+     * Journal the second player joining a game. Must be called from the game's {@link GameExecutor} worker.
+     *
+     * @param gameId
+     *            the game ID.
+     * @param variant
+     *            the variant of the game, so that the game can be recovered even if its creation was journaled later.
+     */
+    public void playerJoined(long gameId, Variant variant) {
+        append(JournalSegment.TYPE_JOINED, gameId, 0, pack(variant), 2);
+    }
+
+    /**
+     * Journal a move. Must be called from the game's {@link GameExecutor} worker.
+     *
+     * @param gameId
+     *            the game ID.
+     * @param sequence
+     *            the sequence number of the move within its game, which is the move count of the game after the move.
+     * @param column
+     *            the column of the move, indexed starting at 1.
+     * @param playerId
+     *            the ID of the player who made the move.
+     */
+    public void moveMade(long gameId, int sequence, int column, int playerId) {
+        append(JournalSegment.TYPE_MOVE, gameId, sequence, column, playerId);
+    }
+
+    /**
+     * Journal the end of a game, after which it is no longer recovered. Must be called from the game's {@link GameExecutor} worker.
+     *
+     * @param gameId
+     *            the game ID.
+     */
+    public void gameEnded(long gameId) {
+        append(JournalSegment.TYPE_ENDED, gameId, 0, 0, 0);
+    }
+
+    private void append(int type, long gameId, int sequence, int column, int playerId) {
+        JournalSegment segment = current;
+        while (segment != null) {
+            if (!segment.append(type, gameId, sequence, column, playerId)) {
+                segment = roll(segment);
+                continue;
+            }
+            // A snapshot may have started a new segment after this one was read, and may delete this one. Replaying is idempotent, so
+            // appending the event again to the new segment is safe.
+            final JournalSegment latest = current;
+            segment = latest == segment ? null : latest;
+        }
+    }
+
+    /**
+     * Start a new segment, unless another thread already started one after {@code full}.
+     */
+    private synchronized JournalSegment roll(JournalSegment full) {
+        if (current == full) {
+            try {
+                current = openSegment(full.getNumber() + 1);
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+        return current;
+    }
+
+    private JournalSegment openSegment(long number) throws IOException {
+        final JournalSegment segment = new JournalSegment(number, directory.resolve(String.format("journal-%020d.log", number)), segmentBytes);
+        segments.add(segment);
+        return segment;
+    }
+
+    /**
+     * Flush every event journaled so far to disk.
+     */
+    void flush() {
+        for (JournalSegment segment : segments) {
+            segment.force();
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException exception) {
+            logger.error("Failed to write journal snapshot", exception);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Write a snapshot of every registered game, and delete the journal files and snapshots it replaces.
+     *
+     * @throws IOException
+     *            if the snapshot cannot be written.
+     * @throws InterruptedException
+     *            if interrupted while waiting for the games to be snapshotted.
+     */
+    void snapshot() throws IOException, InterruptedException {
+        // Every event journaled before the new segment is started is applied to its game before the snapshot task of the game runs on the
+        // game's worker, so the snapshot covers all segments before the new one.
+        final long firstSegment = roll(current).getNumber();
+
+        final List<Game> games = new ArrayList<>();
+        gameRegistry.forEach(games::add);
+        final List<JournalSnapshot.Entry> entries = Collections.synchronizedList(new ArrayList<>(games.size()));
+        final CountDownLatch snapshotted = new CountDownLatch(games.size());
+        for (Game game : games) {
+            gameExecutor.execute(game.getId(), () -> {
+                try {
+                    entries.add(JournalSnapshot.Entry.of(game));
+                } finally {
+                    snapshotted.countDown();
+                }
+            });
+        }
+        if (!snapshotted.await(SNAPSHOT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            logger.warn("Timed out taking journal snapshot, keeping the existing journal");
+            return;
+        }
+        JournalSnapshot.write(directory.resolve(String.format("snapshot-%020d.bin", firstSegment)), entries);
+
+        for (JournalSegment segment : segments) {
+            if (segment.getNumber() < firstSegment) {
+                segments.remove(segment);
+            }
+        }
+        for (Map.Entry<Long, Path> file : listFiles(SEGMENT_FILE).headMap(firstSegment).entrySet()) {
+            Files.deleteIfExists(file.getValue());
+        }
+        for (Map.Entry<Long, Path> file : listFiles(SNAPSHOT_FILE).headMap(firstSegment).entrySet()) {
+            Files.deleteIfExists(file.getValue());
+        }
+        logger.debug("Wrote journal snapshot of {} games", entries.size());
+    }
+
+    /**
+     * Rebuild the games in the latest snapshot and the journal written after it, and register those still in progress.
+     *
+     * @return the number of the last journal file, or -1 if there is none.
+     */
+    private long recover() throws IOException {
+        final Map<Long, Game> games = new HashMap<>();
+        final TreeMap<Long, Path> snapshots = listFiles(SNAPSHOT_FILE);
+        long firstSegment = 0;
+        while (!snapshots.isEmpty()) {
+            final Map.Entry<Long, Path> snapshot = snapshots.pollLastEntry();
+            try {
+                for (JournalSnapshot.Entry entry : JournalSnapshot.read(snapshot.getValue())) {
+                    final Game game = entry.toGame();
+                    games.put(game.getId(), game);
+                }
+                firstSegment = snapshot.getKey();
+                break;
+            } catch (IOException | IllegalArgumentException exception) {
+                logger.warn("Ignoring unreadable journal snapshot {}", snapshot.getValue(), exception);
+                games.clear();
+            }
+        }
+
+        final TreeMap<Long, Path> segmentFiles = listFiles(SEGMENT_FILE);
+        for (Path segment : segmentFiles.tailMap(firstSegment).values()) {
+            JournalSegment.read(segment, (type, gameId, sequence, column, playerId) -> replay(games, type, gameId, sequence, column));
+        }
+
+        int restored = 0;
+        for (Game game : games.values()) {
+            if (game.getPlayerTwo() != null && game.getState().getStatus() == GameStatus.IN_PROGRESS) {
+                gameRegistry.restore(game);
+                restored++;
+            }
+        }
+        logger.info("Recovered {} games from the journal in {}", restored, directory);
+        return segmentFiles.isEmpty() ? Math.max(firstSegment - 1, -1) : Math.max(segmentFiles.lastKey(), firstSegment - 1);
+    }
+
+    private static void replay(Map<Long, Game> games, int type, long gameId, int sequence, int column) {
+        switch (type) {
+        case JournalSegment.TYPE_CREATED:
+        case JournalSegment.TYPE_JOINED:
+            final Game game = games.computeIfAbsent(gameId, id -> new Game(id, unpack(column).newGameState(), PLAYER_ONE_NAME, null));
+            if (type == JournalSegment.TYPE_JOINED && game.getPlayerTwo() == null) {
+                game.joinPlayerTwo(PLAYER_TWO_NAME, null);
+            }
+            break;
+        case JournalSegment.TYPE_MOVE:
+            final Game moved = games.get(gameId);
+            if (moved == null || sequence != moved.getState().getMoveCount() + 1) {
+                // Already in the snapshot, or after a move lost in a crash, in which case the game cannot be replayed beyond the lost move.
+                break;
+            }
+            final GameState gameState = moved.getState();
+            if (!MoveResult.isAccepted(gameState.tryAddDisc(column, gameState.getPlayerToMove().getId()))) {
+                break;
+            }
+            moved.recordMove(column);
+            if (gameState.getStatus() == GameStatus.IN_PROGRESS) {
+                moved.switchPlayerToMove();
+            }
+            break;
+        case JournalSegment.TYPE_ENDED:
+            games.remove(gameId);
+            break;
+        default:
+            logger.warn("Ignoring journal record of unknown type {}", type);
+        }
+    }
+
+    private TreeMap<Long, Path> listFiles(Pattern pattern) throws IOException {
+        final TreeMap<Long, Path> files = new TreeMap<>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.forEach(path -> {
+                final Matcher matcher = pattern.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    files.put(Long.parseLong(matcher.group(1)), path);
+                }
+            });
+        }
+        return files;
+    }
+
+    private static int pack(Variant variant) {
+        return variant.getNumRows() << 16 | variant.getNumColumns() << 8 | variant.getInARow();
+    }
+
+    private static Variant unpack(int packed) {
+        return new Variant(packed >>> 16, (packed >>> 8) & 0xFF, packed & 0xFF);
+    }
+}
@@ -0,0 +1,68 @@
+package com.otisliddy.fiveinarow.lobby;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies in nanoseconds. Values are counted in log-linear buckets, four to each power of two, so any percentile is
+ * reported to within 25% of the recorded value.
+ */
+class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 4;
+    private static final int NUM_BUCKETS = 64 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos
+     *            the latency in nanoseconds.
+     */
+    void record(long nanos) {
+        counts.incrementAndGet(bucket(Math.max(0, nanos)));
+    }
+
+    /**
+     * Get the latency at the provided percentile of the recorded values.
+     *
+     * @param percentile
+     *            the percentile, between 0 and 100.
+     * @return the upper bound of the bucket holding the percentile in nanoseconds, or 0 if nothing has been recorded.
+     */
+    long percentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        final long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank && seen > 0) {
+                return lowerBound(i + 1) - 1;
+            }
+        }
+        return 0;
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int) (value >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+        return (exponent - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        if (bucket > bucket(Long.MAX_VALUE)) {
+            return Long.MAX_VALUE;
+        }
+        final int exponent = bucket / SUB_BUCKETS + 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - 2);
+    }
+}
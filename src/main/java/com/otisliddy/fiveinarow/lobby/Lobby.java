@@ -0,0 +1,213 @@
+package com.otisliddy.fiveinarow.lobby;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.otisliddy.fiveinarow.config.SystemProperties;
+import com.otisliddy.fiveinarow.game.Game;
+import com.otisliddy.fiveinarow.game.GameRegistry;
+import com.otisliddy.fiveinarow.game.Player;
+import com.otisliddy.fiveinarow.game.Variant;
+
+/**
+ * Matchmaking lobby that pairs players into games as they arrive. Players are only paired with players sharing the same {@link MatchKey}.
+ * <p>Any two waiting players with the same key can be paired, so at most one player per key is ever left waiting. The waiting queue for each
+ * key is therefore a single slot, claimed and released with compare-and-set. Joining takes no locks, and its cost does not depend on how many
+ * players are joining or waiting. A player who finds the slot empty claims it before creating their game, so no game is created for a lost
+ * claim. A player finding a game still being created spins briefly and then parks between tries until it is there, and a player whose
+ * opponent's game is removed while pairing tries again with the next waiting player.</p>
+ * <p>Ratings are clamped to {@link SystemProperties#LOBBY_MAX_RATING}, so the slots, which are kept once created, are bounded by the number
+ * of variants times the number of rating buckets.</p>
+ * <p>Join and pairing counts and pairing times are exposed over JMX.</p>
+ */
+@Component
+@ManagedResource(objectName = "com.otisliddy.fiveinarow:name=Lobby", description = "Matchmaking lobby")
+public class Lobby {
+
+    private static final int SPINS_BEFORE_PARKING = 64;
+    private static final long PARK_NANOS = 10_000;
+    private final ConcurrentHashMap<MatchKey, AtomicReference<Waiting>> waiting = new ConcurrentHashMap<>();
+    private final LongAdder joins = new LongAdder();
+    private final LongAdder pairings = new LongAdder();
+    private final LatencyHistogram pairingTimes = new LatencyHistogram();
+    private final int ratingBucketSize = SystemProperties.LOBBY_RATING_BUCKET_SIZE.getValue();
+    private final int maxRating = SystemProperties.LOBBY_MAX_RATING.getValue();
+    @Autowired
+    private GameRegistry gameRegistry;
+
+    /**
+     * Construct an instance of {@code Lobby}. Empty constructor needed for injecting.
+     */
+    public Lobby() {
+    }
+
+    /**
+     * Construct an instance of {@code Lobby} creating games in the provided registry.
+     *
+     * @param gameRegistry
+     *            the registry to create games in.
+     */
+    public Lobby(GameRegistry gameRegistry) {
+        this.gameRegistry = gameRegistry;
+    }
+
+    /**
+     * Get the key to match a player on.
+     *
+     * @param variant
+     *            the game variant the player wants to play.
+     * @param rating
+     *            the rating of the player, or {@code null} if the player is unrated. Ratings outside 0 to {@link
+     *            SystemProperties#LOBBY_MAX_RATING} are clamped to that range.
+     * @return the key to match the player on.
+     */
+    public MatchKey matchKey(Variant variant, Integer rating) {
+        return new MatchKey(variant, rating == null ? MatchKey.UNRATED : Math.min(Math.max(0, rating), maxRating) / ratingBucketSize);
+    }
+
+    /**
+     * Add a player to the lobby. If a player with the same key is waiting, the new player joins their game as player 2. Otherwise a new game
+     * is created with the new player as player 1, and the player waits to be paired.
+     *
+     * @param key
+     *            the key to match the player on.
+     * @param name
+     *            the name of the player.
+     * @param sessionId
+     *            the ID of the WebSocket session of the player.
+     * @return the player, whose {@link Player#getId()} is 2 if they were paired into a game, or 1 if they are waiting.
+     */
+    public Player join(MatchKey key, String name, String sessionId) {
+        joins.increment();
+        final AtomicReference<Waiting> slot = waiting.computeIfAbsent(key, k -> new AtomicReference<>());
+        int spins = 0;
+        while (true) {
+            final Waiting opponent = slot.get();
+            if (opponent == null) {
+                final Waiting reserved = new Waiting();
+                if (slot.compareAndSet(null, reserved)) {
+                    return create(key, name, sessionId, slot, reserved);
+                }
+            } else if (opponent.game == null) {
+                if (spins++ < SPINS_BEFORE_PARKING) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(PARK_NANOS);
+                }
+            } else if (slot.compareAndSet(opponent, null)) {
+                final Player player = gameRegistry.join(opponent.game, name, sessionId);
+                if (player == null) {
+                    // The waiting player left after this player had read the slot, and their game has gone.
+                    continue;
+                }
+                pairings.increment();
+                pairingTimes.record(System.nanoTime() - opponent.since);
+                return player;
+            }
+        }
+    }
+
+    private Player create(MatchKey key, String name, String sessionId, AtomicReference<Waiting> slot, Waiting reserved) {
+        final Game game;
+        try {
+            game = gameRegistry.create(key.getVariant(), name, sessionId);
+        } catch (RuntimeException exception) {
+            slot.compareAndSet(reserved, null);
+            throw exception;
+        }
+        game.setMatchKey(key);
+        reserved.game = game;
+        return game.getPlayerOne();
+    }
+
+    /**
+     * Remove a game from the lobby if its player is still waiting to be paired, for example because the player has disconnected.
+     *
+     * @param game
+     *            the game to remove.
+     */
+    public void leave(Game game) {
+        final MatchKey key = game.getMatchKey();
+        if (key == null || game.getPlayerTwo() != null) {
+            return;
+        }
+        final AtomicReference<Waiting> slot = waiting.get(key);
+        final Waiting current = slot == null ? null : slot.get();
+        if (current != null && current.game == game) {
+            slot.compareAndSet(current, null);
+        }
+    }
+
+    /**
+     * Get the number of players who have joined the lobby.
+     *
+     * @return the number of players who have joined the lobby.
+     */
+    @ManagedAttribute(description = "Number of players who have joined the lobby")
+    public long getJoins() {
+        return joins.sum();
+    }
+
+    /**
+     * Get the number of pairs of players paired into a game.
+     *
+     * @return the number of pairings.
+     */
+    @ManagedAttribute(description = "Number of pairs of players paired into a game")
+    public long getPairings() {
+        return pairings.sum();
+    }
+
+    /**
+     * Get the number of players waiting to be paired.
+     *
+     * @return the number of waiting players.
+     */
+    @ManagedAttribute(description = "Number of players waiting to be paired")
+    public int getWaiting() {
+        int count = 0;
+        for (AtomicReference<Waiting> slot : waiting.values()) {
+            if (slot.get() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the median time a player waits to be paired.
+     *
+     * @return the median pairing time in microseconds.
+     */
+    @ManagedAttribute(description = "Median time a player waits to be paired, in microseconds")
+    public long getPairingTimeP50Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(pairingTimes.percentile(50));
+    }
+
+    /**
+     * Get the 99th percentile of the time a player waits to be paired.
+     *
+     * @return the 99th percentile pairing time in microseconds.
+     */
+    @ManagedAttribute(description = "99th percentile of the time a player waits to be paired, in microseconds")
+    public long getPairingTimeP99Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(pairingTimes.percentile(99));
+    }
+
+    /**
+     * A player waiting in the lobby, along with the time they started waiting. The game is set once created, after the player has claimed
+     * the slot.
+     */
+    private static final class Waiting {
+        private volatile Game game;
+        private final long since = System.nanoTime();
+    }
+}
@@ -0,0 +1,70 @@
+package com.otisliddy.fiveinarow.lobby;
+
+import java.util.Objects;
+
+import com.otisliddy.fiveinarow.game.Variant;
+
+/**
+ * The attributes two players must share to be paired into a game by the {@link Lobby}: the game variant and the rating bucket.
+ */
+public final class MatchKey {
+
+    /**
+     * Rating bucket for players who have not provided a rating.
+     */
+    public static final int UNRATED = -1;
+
+    private final Variant variant;
+    private final int ratingBucket;
+
+    /**
+     * Construct an instance of {@code MatchKey}.
+     *
+     * @param variant
+     *            the game variant.
+     * @param ratingBucket
+     *            the rating bucket, or {@link #UNRATED}.
+     */
+    public MatchKey(Variant variant, int ratingBucket) {
+        this.variant = variant;
+        this.ratingBucket = ratingBucket;
+    }
+
+    /**
+     * Get the game variant.
+     *
+     * @return the game variant.
+     */
+    public Variant getVariant() {
+        return variant;
+    }
+
+    /**
+     * Get the rating bucket.
+     *
+     * @return the rating bucket, or {@link #UNRATED}.
+     */
+    public int getRatingBucket() {
+        return ratingBucket;
+    }
+
+    @Override
+    public boolean equals(final Object otherKey) {
+        if (this == otherKey)
+            return true;
+        if (otherKey == null || getClass() != otherKey.getClass())
+            return false;
+        final MatchKey key = (MatchKey) otherKey;
+        return ratingBucket == key.ratingBucket && variant.equals(key.variant);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(variant, ratingBucket);
+    }
+
+    @Override
+    public String toString() {
+        return variant + (ratingBucket == UNRATED ? "" : "/" + ratingBucket);
+    }
+}
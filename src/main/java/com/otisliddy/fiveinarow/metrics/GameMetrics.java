@@ -0,0 +1,338 @@
+package com.otisliddy.fiveinarow.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import com.otisliddy.fiveinarow.ai.BotPlayer;
+import com.otisliddy.fiveinarow.config.SystemProperties;
+import com.otisliddy.fiveinarow.game.GameRegistry;
+import com.otisliddy.fiveinarow.game.GameStatus;
+import com.otisliddy.fiveinarow.lobby.Lobby;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+/**
+ * Micrometer meters of the game server, published by Spring Boot Actuator at {@code /actuator/prometheus} and {@code /actuator/metrics}.
+ * <p>Every meter is registered up front, so recording a move, an illegal move or a finished game only adds to a counter or timer already
+ * held in a field, without looking up, locking or allocating anything. Broadcasts are counted as they are sent to the broker, and each copy
+ * delivered to a subscriber as it is sent to the client's session, so that the fan-out of each topic is the ratio of the two.</p>
+ * <p>The lobby and bot statistics also exposed over JMX, the number and estimated heap size of games and the number of connected WebSocket
+ * sessions are read when the meters are published.</p>
+ * <p>If {@link SystemProperties#METRICS_FILE} is set, the Prometheus text format of every meter is also written to that file every {@link
+ * SystemProperties#METRICS_FILE_SECONDS} seconds, for collection by a node exporter's textfile collector.</p>
+ */
+@Component
+public class GameMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(GameMetrics.class);
+    private static final String TOPIC_PREFIX = "/topic/";
+    private static final String[] TOPICS = { "moves", "state", "disconnected" };
+    private static final String OTHER_TOPIC = "other";
+
+    private final MeterRegistry registry;
+    private final Timer moveTimer;
+    private final Timer startTimer;
+    private final Counter rejectedStarts;
+    private final Counter illegalMoves;
+    private final Counter throttledMoves;
+    private final Counter gamesWon;
+    private final Counter gamesDrawn;
+    private final Counter idleGamesEvicted;
+    private final Counter finishedGamesEvicted;
+    private final Counter[] broadcasts;
+    private final Counter[] deliveries;
+    private final Set<String> sessions = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Construct an instance of {@code GameMetrics}, registering its meters.
+     *
+     * @param registry
+     *            the registry to register the meters with.
+     * @param gameRegistry
+     *            the registry of games, whose size and estimated heap size are published.
+     * @param lobby
+     *            the lobby, whose statistics are published.
+     * @param botPlayer
+     *            the bot opponent, whose statistics are published.
+     */
+    @Autowired
+    public GameMetrics(MeterRegistry registry, GameRegistry gameRegistry, Lobby lobby, BotPlayer botPlayer) {
+        this.registry = registry;
+        moveTimer = Timer.builder("inarow.move").description("Time to apply a move and broadcast it").publishPercentileHistogram()
+                .register(registry);
+        startTimer = Timer.builder("inarow.start").description("Time from a game's second player joining to its initial state being sent")
+                .publishPercentileHistogram().register(registry);
+        rejectedStarts = Counter.builder("inarow.start.rejected").description("Requests to /start refused as the server is overloaded")
+                .register(registry);
+        illegalMoves = Counter.builder("inarow.moves.illegal").description("Moves rejected as illegal").register(registry);
+        throttledMoves = Counter.builder("inarow.moves.throttled").description("Moves dropped as their client sent too many")
+                .register(registry);
+        gamesWon = Counter.builder("inarow.games.finished").tag("outcome", "won").description("Games finished").register(registry);
+        gamesDrawn = Counter.builder("inarow.games.finished").tag("outcome", "drawn").description("Games finished").register(registry);
+        idleGamesEvicted = Counter.builder("inarow.games.evicted").tag("state", "idle").description("Games evicted after expiring")
+                .register(registry);
+        finishedGamesEvicted = Counter.builder("inarow.games.evicted").tag("state", "finished").description("Games evicted after expiring")
+                .register(registry);
+        broadcasts = new Counter[TOPICS.length + 1];
+        deliveries = new Counter[TOPICS.length + 1];
+        for (int i = 0; i <= TOPICS.length; i++) {
+            final String topic = i < TOPICS.length ? TOPICS[i] : OTHER_TOPIC;
+            broadcasts[i] = Counter.builder("inarow.broadcasts").tag("topic", topic).description("Messages broadcast to a topic")
+                    .register(registry);
+            deliveries[i] = Counter.builder("inarow.broadcast.deliveries").tag("topic", topic)
+                    .description("Copies of broadcast messages delivered to subscribers").register(registry);
+        }
+
+        Gauge.builder("inarow.games.active", gameRegistry, GameRegistry::size).description("Games in progress or waiting for a player")
+                .register(registry);
+        Gauge.builder("inarow.games.memory", gameRegistry, GameRegistry::getEstimatedBytes).baseUnit("bytes")
+                .description("Estimated heap used by registered games").register(registry);
+        Gauge.builder("inarow.games.tracked", gameRegistry, GameRegistry::getTrackedForExpiry)
+                .description("Games tracked for expiry, including removed games not yet dropped").register(registry);
+        Gauge.builder("inarow.sessions.active", sessions, Set::size).description("Connected WebSocket sessions").register(registry);
+        Gauge.builder("inarow.lobby.waiting", lobby, Lobby::getWaiting).description("Players waiting to be paired").register(registry);
+        FunctionCounter.builder("inarow.lobby.joins", lobby, Lobby::getJoins).description("Players who have joined the lobby")
+                .register(registry);
+        FunctionCounter.builder("inarow.lobby.pairings", lobby, Lobby::getPairings).description("Pairs of players paired into a game")
+                .register(registry);
+        FunctionCounter.builder("inarow.bot.moves", botPlayer, BotPlayer::getMoves).description("Moves the bot has chosen").register(registry);
+        FunctionCounter.builder("inarow.bot.nodes", botPlayer, BotPlayer::getNodes).description("Positions the bot has searched")
+                .register(registry);
+    }
+
+    /**
+     * Start writing the meters to {@link SystemProperties#METRICS_FILE}, if set.
+     */
+    @PostConstruct
+    public void open() {
+        final String file = SystemProperties.METRICS_FILE.getStringValue();
+        if (file.isEmpty()) {
+            return;
+        }
+        if (!(registry instanceof PrometheusMeterRegistry)) {
+            logger.warn("Not writing metrics to {}, as there is no Prometheus meter registry", file);
+            return;
+        }
+        final Path path = Paths.get(file);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "metrics-file");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long seconds = SystemProperties.METRICS_FILE_SECONDS.getValue();
+        scheduler.scheduleWithFixedDelay(() -> writeQuietly(path), seconds, seconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop writing the meters to a file.
+     */
+    @PreDestroy
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Write the Prometheus text format of every meter to a file, replacing it atomically so that it is never read half written.
+     *
+     * @param path
+     *            the file to write.
+     * @throws IOException
+     *             if the file could not be written.
+     */
+    void write(Path path) throws IOException {
+        final Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(temp, ((PrometheusMeterRegistry) registry).scrape().getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void writeQuietly(Path path) {
+        try {
+            write(path);
+        } catch (IOException | RuntimeException exception) {
+            logger.warn("Could not write metrics to {}", path, exception);
+        }
+    }
+
+    /**
+     * Record the time taken to apply a move.
+     *
+     * @param nanos
+     *            the time taken in nanoseconds.
+     */
+    public void moveApplied(long nanos) {
+        moveTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Record the time taken to start a game, from its second player joining to the initial game state being sent, which includes waiting for
+     * both players to be ready.
+     *
+     * @param nanos
+     *            the time taken in nanoseconds.
+     */
+    public void started(long nanos) {
+        startTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Record a {@code /start} request refused as the server is overloaded.
+     */
+    public void startRejected() {
+        rejectedStarts.increment();
+    }
+
+    /**
+     * Record a move rejected as illegal.
+     */
+    public void illegalMove() {
+        illegalMoves.increment();
+    }
+
+    /**
+     * Record a move dropped by the rate limit of its client.
+     */
+    public void moveThrottled() {
+        throttledMoves.increment();
+    }
+
+    /**
+     * Record a game ending by a move.
+     *
+     * @param status
+     *            the status of the game after the move, which is counted if the game is won or drawn.
+     */
+    public void gameFinished(GameStatus status) {
+        if (status == GameStatus.OVER_WON) {
+            gamesWon.increment();
+        } else if (status == GameStatus.OVER_DRAWN) {
+            gamesDrawn.increment();
+        }
+    }
+
+    /**
+     * Record a game evicted after expiring in the {@link GameRegistry}.
+     *
+     * @param finished
+     *            whether the game had been won or drawn, rather than left idle.
+     */
+    public void gameEvicted(boolean finished) {
+        if (finished) {
+            finishedGamesEvicted.increment();
+        } else {
+            idleGamesEvicted.increment();
+        }
+    }
+
+    /**
+     * Get an interceptor for the broker channel, which counts the messages broadcast to each topic.
+     *
+     * @return the interceptor.
+     */
+    public ChannelInterceptor broadcastInterceptor() {
+        return new TopicCountingInterceptor(broadcasts);
+    }
+
+    /**
+     * Get an interceptor for the client outbound channel, which counts the copies of broadcast messages delivered to subscribers.
+     *
+     * @return the interceptor.
+     */
+    public ChannelInterceptor deliveryInterceptor() {
+        return new TopicCountingInterceptor(deliveries);
+    }
+
+    /**
+     * Track a WebSocket session connecting.
+     *
+     * @param event
+     *            the connection {@code SessionConnectedEvent}.
+     */
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        final String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        if (sessionId != null) {
+            sessions.add(sessionId);
+        }
+    }
+
+    /**
+     * Track a WebSocket session disconnecting. The event may be raised more than once for a session.
+     *
+     * @param event
+     *            the disconnection {@code SessionDisconnectEvent}.
+     */
+    @EventListener
+    public void onDisconnected(SessionDisconnectEvent event) {
+        sessions.remove(event.getSessionId());
+    }
+
+    /**
+     * Index of the counter of the topic of a destination, found by comparing prefixes so that nothing is allocated.
+     */
+    static int topicIndex(String destination) {
+        if (destination == null || !destination.startsWith(TOPIC_PREFIX)) {
+            return -1;
+        }
+        for (int i = 0; i < TOPICS.length; i++) {
+            final String topic = TOPICS[i];
+            if (destination.startsWith(topic, TOPIC_PREFIX.length()) && destination.length() > TOPIC_PREFIX.length() + topic.length()
+                    && destination.charAt(TOPIC_PREFIX.length() + topic.length()) == '/') {
+                return i;
+            }
+        }
+        return TOPICS.length;
+    }
+
+    /**
+     * Counts the messages sent through a channel to each topic.
+     */
+    private static final class TopicCountingInterceptor implements ChannelInterceptor {
+
+        private final Counter[] counters;
+
+        TopicCountingInterceptor(Counter[] counters) {
+            this.counters = counters;
+        }
+
+        @Override
+        public Message<?> preSend(Message<?> message, MessageChannel channel) {
+            final int index = topicIndex(SimpMessageHeaderAccessor.getDestination(message.getHeaders()));
+            if (index >= 0) {
+                counters[index].increment();
+            }
+            return message;
+        }
+    }
+}
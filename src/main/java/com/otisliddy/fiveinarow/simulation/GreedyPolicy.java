@@ -0,0 +1,31 @@
+package com.otisliddy.fiveinarow.simulation;
+
+import java.util.SplittableRandom;
+
+import com.otisliddy.fiveinarow.game.Bitboard;
+
+/**
+ * Plays a winning column if there is one, or else blocks a column the other player would win in, or else plays a random column.
+ */
+public class GreedyPolicy implements MovePolicy {
+
+    @Override
+    public int chooseColumn(Bitboard board, int inARow, int player, SplittableRandom random) {
+        final int winning = winningColumn(board, inARow, player);
+        if (winning >= 0) {
+            return winning;
+        }
+        final int blocking = winningColumn(board, inARow, 1 - player);
+        return blocking >= 0 ? blocking : RandomPolicy.randomColumn(board, random);
+    }
+
+    private static int winningColumn(Bitboard board, int inARow, int player) {
+        for (int column = 0; column < board.getNumColumns(); column++) {
+            final int row = board.getHeight(column);
+            if (row < board.getNumRows() && board.hasLineThrough(row, column, player, inARow)) {
+                return column;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,27 @@
+package com.otisliddy.fiveinarow.simulation;
+
+import java.util.SplittableRandom;
+
+import com.otisliddy.fiveinarow.game.Bitboard;
+
+/**
+ * Chooses the moves of one player in games played by the {@link SelfPlaySimulator}. An instance is only used by one thread.
+ */
+public interface MovePolicy {
+
+    /**
+     * Choose a move.
+     *
+     * @param board
+     *            the position, with at least one column not full and no winner yet. It may be changed while choosing, but must be restored
+     *            before returning.
+     * @param inARow
+     *            the number of discs needed in-a-row to win.
+     * @param player
+     *            the index of the player to move, 0 or 1.
+     * @param random
+     *            the random numbers of the thread playing the game.
+     * @return the column to play, indexed starting at 0, which must not be full.
+     */
+    int chooseColumn(Bitboard board, int inARow, int player, SplittableRandom random);
+}
@@ -0,0 +1,41 @@
+package com.otisliddy.fiveinarow.simulation;
+
+import java.util.SplittableRandom;
+
+import com.otisliddy.fiveinarow.game.Bitboard;
+
+/**
+ * Plays a column chosen uniformly at random from those not full.
+ */
+public class RandomPolicy implements MovePolicy {
+
+    @Override
+    public int chooseColumn(Bitboard board, int inARow, int player, SplittableRandom random) {
+        return randomColumn(board, random);
+    }
+
+    /**
+     * Choose a column uniformly at random from those not full, without allocating.
+     *
+     * @param board
+     *            the position, with at least one column not full.
+     * @param random
+     *            the random numbers to use.
+     * @return the column, indexed starting at 0.
+     */
+    static int randomColumn(Bitboard board, SplittableRandom random) {
+        final int numRows = board.getNumRows();
+        int numOpen = 0;
+        for (int column = 0; column < board.getNumColumns(); column++) {
+            if (board.getHeight(column) < numRows) {
+                numOpen++;
+            }
+        }
+        int choice = random.nextInt(numOpen);
+        for (int column = 0; ; column++) {
+            if (board.getHeight(column) < numRows && choice-- == 0) {
+                return column;
+            }
+        }
+    }
+}
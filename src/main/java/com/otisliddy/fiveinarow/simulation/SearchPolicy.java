@@ -0,0 +1,35 @@
+package com.otisliddy.fiveinarow.simulation;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.otisliddy.fiveinarow.ai.AlphaBetaSearch;
+import com.otisliddy.fiveinarow.ai.MoveSearch;
+import com.otisliddy.fiveinarow.game.Bitboard;
+
+/**
+ * Plays the move chosen by the bot's {@link AlphaBetaSearch}, searching for a fixed time per move.
+ */
+public class SearchPolicy implements MovePolicy {
+
+    private final MoveSearch search;
+    private final long moveNanos;
+
+    /**
+     * Construct an instance of {@code SearchPolicy}.
+     *
+     * @param moveMillis
+     *            the time to search for each move in milliseconds.
+     * @param tableMegabytes
+     *            the size of the transposition table in megabytes.
+     */
+    public SearchPolicy(long moveMillis, int tableMegabytes) {
+        this.search = new AlphaBetaSearch(tableMegabytes);
+        this.moveNanos = TimeUnit.MILLISECONDS.toNanos(moveMillis);
+    }
+
+    @Override
+    public int chooseColumn(Bitboard board, int inARow, int player, SplittableRandom random) {
+        return search.search(board, inARow, player, moveNanos).getColumn() - 1;
+    }
+}
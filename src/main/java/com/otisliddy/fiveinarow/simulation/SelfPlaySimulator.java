@@ -0,0 +1,228 @@
+package com.otisliddy.fiveinarow.simulation;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.otisliddy.fiveinarow.game.Bitboard;
+import com.otisliddy.fiveinarow.game.GameState;
+import com.otisliddy.fiveinarow.game.MoveResult;
+
+/**
+ * Plays complete games between two {@link MovePolicy}s as fast as possible on several threads, without Spring, to measure how rule
+ * variants and changes to the bot play out over many games.
+ * <p>Every move is applied through {@link GameState#tryAddDisc(int, int)}, so games follow the server's rules exactly, and the policies
+ * choose from the game state's own board. Each thread plays games one after another on one {@link GameState}, reset between games, with its
+ * own policies and random numbers, claiming games from a shared count in batches so that threads hardly ever contend. Results are added
+ * to a {@link SimulationStats}, which can be read while the simulation runs.</p>
+ * <p>Run from the command line with {@code key=value} arguments, all optional, e.g.:</p>
+ * <pre>
+ * java -cp target/classes com.otisliddy.fiveinarow.simulation.SelfPlaySimulator games=1000000 threads=8 first=greedy second=random
+ * </pre>
+ * <ul>
+ * <li>{@code games}, {@code threads}, {@code seed}: the number of games, threads and the random seed.</li>
+ * <li>{@code rows}, {@code columns}, {@code inarow}: the board and the number of discs needed in-a-row to win.</li>
+ * <li>{@code first}, {@code second}: the policies of each player: {@code random}, {@code greedy}, or {@code search:<millis>}.</li>
+ * <li>{@code opening}: the number of random moves each game starts with, to vary games between policies that do not play randomly.</li>
+ * <li>{@code scaling=true}: play the games on 1, 2, 4 and so on up to {@code threads} threads, and show the speed at each.</li>
+ * </ul>
+ */
+public class SelfPlaySimulator {
+
+    private static final int BATCH_SIZE = 64;
+
+    private final int numRows;
+    private final int numColumns;
+    private final int inARow;
+    private final Supplier<MovePolicy> firstPolicy;
+    private final Supplier<MovePolicy> secondPolicy;
+    private final int openingMoves;
+    private final long seed;
+
+    /**
+     * Construct an instance of {@code SelfPlaySimulator}.
+     *
+     * @param numRows
+     *            the number of rows of the board.
+     * @param numColumns
+     *            the number of columns of the board.
+     * @param inARow
+     *            the number of discs needed in-a-row to win.
+     * @param firstPolicy
+     *            creates the policy of the player moving first, once per thread.
+     * @param secondPolicy
+     *            creates the policy of the player moving second, once per thread.
+     * @param openingMoves
+     *            the number of random moves to start each game with.
+     * @param seed
+     *            the seed of the random numbers.
+     */
+    public SelfPlaySimulator(int numRows, int numColumns, int inARow, Supplier<MovePolicy> firstPolicy, Supplier<MovePolicy> secondPolicy,
+            int openingMoves, long seed) {
+        this.numRows = numRows;
+        this.numColumns = numColumns;
+        this.inARow = inARow;
+        this.firstPolicy = firstPolicy;
+        this.secondPolicy = secondPolicy;
+        this.openingMoves = openingMoves;
+        this.seed = seed;
+    }
+
+    /**
+     * Play games, returning once they have all been played.
+     *
+     * @param numGames
+     *            the number of games to play.
+     * @param numThreads
+     *            the number of threads to play on.
+     * @param stats
+     *            the results to add each game to.
+     * @throws InterruptedException
+     *             if interrupted while waiting for the games to finish.
+     */
+    public void run(long numGames, int numThreads, SimulationStats stats) throws InterruptedException {
+        final AtomicLong remaining = new AtomicLong(numGames);
+        final SplittableRandom random = new SplittableRandom(seed);
+        final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            final Future<?>[] workers = new Future<?>[numThreads];
+            for (int i = 0; i < numThreads; i++) {
+                final SplittableRandom workerRandom = random.split();
+                workers[i] = executor.submit(() -> play(remaining, workerRandom, stats));
+            }
+            for (Future<?> worker : workers) {
+                try {
+                    worker.get();
+                } catch (ExecutionException exception) {
+                    throw new IllegalStateException("Simulation failed", exception.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void play(AtomicLong remaining, SplittableRandom random, SimulationStats stats) {
+        final MovePolicy[] policies = { firstPolicy.get(), secondPolicy.get() };
+        final GameState gameState = new GameState(numRows, numColumns, inARow);
+        while (true) {
+            final long claimed = remaining.getAndAdd(-BATCH_SIZE);
+            if (claimed <= 0) {
+                return;
+            }
+            for (long i = Math.min(claimed, BATCH_SIZE); i > 0; i--) {
+                playGame(policies, gameState, random, stats);
+            }
+        }
+    }
+
+    private void playGame(MovePolicy[] policies, GameState gameState, SplittableRandom random, SimulationStats stats) {
+        gameState.reset();
+        final Bitboard board = gameState.board();
+        int player = 0;
+        for (int move = 0; ; move++) {
+            final int column = move < openingMoves ? RandomPolicy.randomColumn(board, random)
+                    : policies[player].chooseColumn(board, inARow, player, random);
+            final int result = gameState.tryAddDisc(column + 1, player + 1);
+            if (!MoveResult.isAccepted(result)) {
+                throw new IllegalStateException("Policy " + policies[player].getClass().getSimpleName() + " chose column " + (column + 1)
+                        + " which cannot be played");
+            }
+            if (result == MoveResult.WON) {
+                stats.record(move + 1, player);
+                return;
+            }
+            if (result == MoveResult.DRAWN) {
+                stats.record(move + 1, -1);
+                return;
+            }
+            player = 1 - player;
+        }
+    }
+
+    /**
+     * Create the policy named on the command line.
+     *
+     * @param name
+     *            {@code random}, {@code greedy}, or {@code search:<millis>}.
+     * @return creates the policy.
+     */
+    static Supplier<MovePolicy> policy(String name) {
+        if (name.equals("random")) {
+            return RandomPolicy::new;
+        }
+        if (name.equals("greedy")) {
+            return GreedyPolicy::new;
+        }
+        if (name.startsWith("search")) {
+            final long moveMillis = name.contains(":") ? Long.parseLong(name.substring(name.indexOf(':') + 1)) : 10;
+            return () -> new SearchPolicy(moveMillis, 4);
+        }
+        throw new IllegalArgumentException("Unknown policy " + name);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        final Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            final int equals = arg.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Expected key=value but was " + arg);
+            }
+            options.put(arg.substring(0, equals), arg.substring(equals + 1));
+        }
+        final long numGames = Long.parseLong(options.getOrDefault("games", "1000000"));
+        final int maxThreads = Integer.parseInt(options.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        final SelfPlaySimulator simulator = new SelfPlaySimulator(Integer.parseInt(options.getOrDefault("rows", "6")),
+                Integer.parseInt(options.getOrDefault("columns", "9")), Integer.parseInt(options.getOrDefault("inarow", "5")),
+                policy(options.getOrDefault("first", "random")), policy(options.getOrDefault("second", "random")),
+                Integer.parseInt(options.getOrDefault("opening", "0")), Long.parseLong(options.getOrDefault("seed", "1")));
+
+        if (Boolean.parseBoolean(options.getOrDefault("scaling", "false"))) {
+            System.out.printf("%8s %14s %20s %10s%n", "threads", "games/sec", "games/sec/thread", "speedup");
+            double baseGamesPerSecond = 0;
+            for (int threads = 1; threads <= maxThreads; threads = threads < maxThreads ? Math.min(threads * 2, maxThreads) : threads + 1) {
+                final SimulationStats stats = new SimulationStats();
+                final long start = System.nanoTime();
+                simulator.run(numGames, threads, stats);
+                final double gamesPerSecond = stats.getGames() / ((System.nanoTime() - start) / 1e9);
+                if (threads == 1) {
+                    baseGamesPerSecond = gamesPerSecond;
+                }
+                System.out.printf("%8d %14.0f %20.0f %10.2f%n", threads, gamesPerSecond, gamesPerSecond / threads,
+                        gamesPerSecond / baseGamesPerSecond);
+            }
+            return;
+        }
+
+        final SimulationStats stats = new SimulationStats();
+        final long start = System.nanoTime();
+        final Thread reporter = new Thread(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(1000);
+                    report(stats, start, maxThreads);
+                }
+            } catch (InterruptedException exception) {
+                // Simulation finished.
+            }
+        }, "simulation-reporter");
+        reporter.setDaemon(true);
+        reporter.start();
+        simulator.run(numGames, maxThreads, stats);
+        reporter.interrupt();
+        reporter.join();
+        report(stats, start, maxThreads);
+    }
+
+    private static void report(SimulationStats stats, long start, int numThreads) {
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        final double gamesPerSecond = stats.getGames() / seconds;
+        System.out.printf("%.1fs %s games/sec=%.0f games/sec/thread=%.0f%n", seconds, stats, gamesPerSecond, gamesPerSecond / numThreads);
+    }
+}
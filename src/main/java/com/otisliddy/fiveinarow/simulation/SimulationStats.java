@@ -0,0 +1,94 @@
+package com.otisliddy.fiveinarow.simulation;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregate results of the games played by a {@link SelfPlaySimulator}, updated by every simulation thread and readable at any time while
+ * the simulation runs.
+ */
+public class SimulationStats {
+
+    private final LongAdder games = new LongAdder();
+    private final LongAdder firstPlayerWins = new LongAdder();
+    private final LongAdder secondPlayerWins = new LongAdder();
+    private final LongAdder draws = new LongAdder();
+    private final LongAdder moves = new LongAdder();
+
+    /**
+     * Record the result of a game.
+     *
+     * @param numMoves
+     *            the number of moves played.
+     * @param winner
+     *            the index of the winning player, 0 or 1, or -1 if the game was drawn.
+     */
+    void record(int numMoves, int winner) {
+        if (winner == 0) {
+            firstPlayerWins.increment();
+        } else if (winner == 1) {
+            secondPlayerWins.increment();
+        } else {
+            draws.increment();
+        }
+        moves.add(numMoves);
+        games.increment();
+    }
+
+    /**
+     * Get the number of games played.
+     *
+     * @return the number of games.
+     */
+    public long getGames() {
+        return games.sum();
+    }
+
+    /**
+     * Get the number of games won by the player moving first.
+     *
+     * @return the number of wins.
+     */
+    public long getFirstPlayerWins() {
+        return firstPlayerWins.sum();
+    }
+
+    /**
+     * Get the number of games won by the player moving second.
+     *
+     * @return the number of wins.
+     */
+    public long getSecondPlayerWins() {
+        return secondPlayerWins.sum();
+    }
+
+    /**
+     * Get the number of games drawn.
+     *
+     * @return the number of draws.
+     */
+    public long getDraws() {
+        return draws.sum();
+    }
+
+    /**
+     * Get the number of moves played in all games.
+     *
+     * @return the number of moves.
+     */
+    public long getMoves() {
+        return moves.sum();
+    }
+
+    /**
+     * Summarise the results as rates over the games played so far.
+     *
+     * @return the summary.
+     */
+    @Override
+    public String toString() {
+        final long numGames = Math.max(1, getGames());
+        return String.format("games=%d firstWins=%.2f%% secondWins=%.2f%% draws=%.2f%% averageMoves=%.2f", getGames(),
+                100.0 * getFirstPlayerWins() / numGames, 100.0 * getSecondPlayerWins() / numGames, 100.0 * getDraws() / numGames,
+                (double) getMoves() / numGames);
+    }
+}
@@ -1,6 +1,9 @@
 var stompClient = null;
 var playerId;
 var playerName;
+var gameId;
+var gameState;
+var spectating = false;
 
 function connect() {
     var socket = new SockJS('/5-in-a-row');
@@ -8,45 +11,156 @@ function connect() {
 
     stompClient.connect({}, function (frame) {
         $("#btn-start").prop("disabled", false);
+        $("#btn-start-bot").prop("disabled", false);
+        $("#btn-spectate").prop("disabled", false);
+        $("#btn-replay").prop("disabled", false);
         stompClient.subscribe('/user/queue/start', function (response) {
             getReadyForGameStart(response);
-            stompClient.subscribe('/topic/moves', function (response) {
-                handleGameState(JSON.parse(response.body));
-            });
-            stompClient.subscribe('/topic/disconnected', function (response) {
-                $('#lbl-cmd-prompt').text(response.body);
-                setGameOver();
-            });
-            stompClient.subscribe('/user/queue/illegal-move', function (response) {
-                var illegalMove = JSON.parse(response.body);
-                if (illegalMove.playerId == playerId) {
-                    $('#lbl-cmd-prompt').text(illegalMove.message);
-                }
-            });
+            subscribeThenReady([
+                ['/topic/state/' + gameId, function (response) {
+                    handleGameState(JSON.parse(response.body));
+                }],
+                ['/user/queue/state', function (response) {
+                    handleGameState(JSON.parse(response.body));
+                }],
+                ['/topic/moves/' + gameId, function (response) {
+                    handleMoveEvent(JSON.parse(response.body));
+                }],
+                ['/topic/disconnected/' + gameId, function (response) {
+                    $('#lbl-cmd-prompt').text(response.body);
+                    setGameOver();
+                }],
+                ['/user/queue/illegal-move', function (response) {
+                    var illegalMove = JSON.parse(response.body);
+                    if (illegalMove.playerId == playerId) {
+                        $('#lbl-cmd-prompt').text(illegalMove.message);
+                    }
+                }]
+            ]);
+        });
+        stompClient.subscribe('/user/queue/start-rejected', function (response) {
+            $('#lbl-cmd-prompt').text(response.body);
+            $("#div-enter-name").show();
         });
     }, function (error) {
         console.log("STOMP error: " + error);
     });
 }
 
+// Subscriptions are registered by the server asynchronously, so each one asks for a receipt, and the server is told the client is ready
+// for the game to start only once all of them have been acknowledged.
+function subscribeThenReady(subscriptions) {
+    var pending = {};
+    var numPending = subscriptions.length;
+    subscriptions.forEach(function (subscription, index) {
+        var receipt = 'game-' + gameId + '-' + index;
+        pending[receipt] = true;
+        stompClient.subscribe(subscription[0], subscription[1], {receipt: receipt});
+    });
+    stompClient.onreceipt = function (frame) {
+        var receipt = frame.headers['receipt-id'];
+        if (pending[receipt]) {
+            delete pending[receipt];
+            if (--numPending == 0) {
+                stompClient.send("/fiveinarow/ready", {}, '');
+            }
+        }
+    };
+}
+
 function getReadyForGameStart(response) {
     var player = JSON.parse(response.body);
     playerId = player.id;
     playerName = player.name;
+    gameId = player.gameId;
     if (playerId == 1) {
         $('#lbl-cmd-prompt').text("Waiting for the other player to join...");
     }
 }
 
+function spectate() {
+    if (!isWatchedGameId()) {
+        return;
+    }
+    watchGame();
+    stompClient.subscribe('/user/queue/state', function (response) {
+        handleGameState(JSON.parse(response.body));
+    });
+    stompClient.subscribe('/topic/moves/' + gameId, function (response) {
+        handleMoveEvent(JSON.parse(response.body));
+    });
+    stompClient.subscribe('/topic/disconnected/' + gameId, function (response) {
+        $('#lbl-cmd-prompt').text(response.body);
+        setGameOver();
+    });
+    stompClient.send("/fiveinarow/spectate", {gameId: gameId}, '');
+}
+
+function replay() {
+    if (!isWatchedGameId()) {
+        return;
+    }
+    watchGame();
+    stompClient.subscribe('/user/queue/replay/state', function (response) {
+        handleGameState(JSON.parse(response.body));
+    });
+    stompClient.subscribe('/user/queue/replay/moves', function (response) {
+        handleMoveEvent(JSON.parse(response.body));
+    });
+    stompClient.send("/fiveinarow/replay", {gameId: gameId}, '');
+}
+
+function isWatchedGameId() {
+    var gameIdValue = $("#txt-watch-game").val();
+    return gameIdValue != '' && !isNaN(gameIdValue - 0);
+}
+
+function watchGame() {
+    spectating = true;
+    gameId = $("#txt-watch-game").val();
+    $("#div-enter-name").hide();
+    $("#txt-player-move").hide();
+    $("#btn-player-move").hide();
+    $("#div-game").show();
+}
+
 function setGameOver() {
     disableMoving(true);
     stompClient.disconnect(function () {
     });
 }
 
-function handleGameState(gameState) {
+function handleMoveEvent(moveEvent) {
+    if (!gameState || moveEvent.sequence <= gameState.moveCount) {
+        return;
+    }
+    if (moveEvent.sequence != gameState.moveCount + 1) {
+        if (spectating) {
+            stompClient.send("/fiveinarow/spectate", {gameId: gameId}, '');
+        } else {
+            stompClient.send("/fiveinarow/resync", {}, '');
+        }
+        return;
+    }
+    gameState.grid[moveEvent.row][moveEvent.column - 1] = moveEvent.playerId;
+    gameState.moveCount = moveEvent.sequence;
+    gameState.status = moveEvent.status;
+    gameState.playerToMove = moveEvent.playerToMove;
+    renderGameState();
+}
+
+function handleGameState(newGameState) {
+    gameState = newGameState;
+    renderGameState();
+}
+
+function renderGameState() {
     $('#div-game-grid').html(parseGridHtml(gameState.grid));
 
+    if (spectating) {
+        renderSpectatedGameState();
+        return;
+    }
     if (gameState.status == 'IN_PROGRESS') {
         if (isThisPlayer(gameState.playerToMove)) {
             $('#lbl-cmd-prompt').text("It's your turn " + playerName + ", please enter column (1-" + gameState.grid[0].length + "):");
@@ -71,6 +185,20 @@ function handleGameState(gameState) {
     }
 }
 
+function renderSpectatedGameState() {
+    if (gameState.status == 'IN_PROGRESS') {
+        $('#lbl-cmd-prompt').text("Waiting for " + gameState.playerToMove.name + " to move...");
+        return;
+    }
+    setGameOver();
+    if (gameState.status == 'OVER_WON') {
+        $('#lbl-cmd-prompt').text(gameState.playerToMove.name + " has won.");
+    }
+    else if (gameState.status == 'OVER_DRAWN') {
+        $('#lbl-cmd-prompt').text("The game has ended in a draw.");
+    }
+}
+
 function parseGridHtml(gridArray) {
     var html = '<tt>';
     for (var row = gridArray.length - 1; row >= 0; row--) {
@@ -93,9 +221,9 @@ function disableMoving(disabled) {
     $("#btn-player-move").prop("disabled", disabled);
 }
 
-function sendName() {
+function sendName(headers) {
     if ($("#txt-name").val() != '') {
-        stompClient.send("/fiveinarow/start", {}, $("#txt-name").val());
+        stompClient.send("/fiveinarow/start", headers, $("#txt-name").val());
         $("#div-enter-name").hide();
         $("#div-game").show();
     }
@@ -112,7 +240,10 @@ $(function () {
     $("form").on('submit', function (e) {
         e.preventDefault();
     });
-    $("#btn-start").click(function () { sendName(); });
+    $("#btn-start").click(function () { sendName({}); });
+    $("#btn-start-bot").click(function () { sendName({opponent: 'bot'}); });
     $("#btn-player-move").click(function () { move(); });
+    $("#btn-spectate").click(function () { spectate(); });
+    $("#btn-replay").click(function () { replay(); });
     connect();
 });
\ No newline at end of file
@@ -0,0 +1,90 @@
+package com.otisliddy.fiveinarow.ai;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.otisliddy.fiveinarow.game.Bitboard;
+
+public class AlphaBetaSearchTest {
+
+    private final AlphaBetaSearch search = new AlphaBetaSearch(1);
+
+    @Test
+    public void takesImmediateWin() {
+        final Bitboard board = new Bitboard(6, 9);
+        for (int column = 0; column < 4; column++) {
+            board.drop(column, 0);
+            board.drop(column, 1);
+        }
+        board.drop(8, 0);
+
+        final SearchResult result = search.search(board, 5, 0, TimeUnit.MILLISECONDS.toNanos(200));
+
+        assertEquals(5, result.getColumn());
+        assertEquals(AlphaBetaSearch.WIN_SCORE, result.getScore());
+    }
+
+    @Test
+    public void blocksOpponentWin() {
+        final Bitboard board = new Bitboard(6, 9);
+        final int[] otherColumns = { 0, 4, 8 };
+        for (int i = 0; i < 3; i++) {
+            board.drop(2, 0);
+            board.drop(otherColumns[i], 1);
+        }
+        board.drop(2, 0);
+
+        final SearchResult result = search.search(board, 5, 1, TimeUnit.MILLISECONDS.toNanos(200));
+
+        assertEquals(3, result.getColumn());
+    }
+
+    @Test
+    public void prefersCentreOnEmptyBoard() {
+        final SearchResult result = search.search(new Bitboard(6, 9), 5, 0, TimeUnit.MILLISECONDS.toNanos(50));
+
+        assertEquals(5, result.getColumn());
+        assertTrue(result.getDepth() >= 1);
+    }
+
+    @Test
+    public void staysWithinBudget() {
+        final long start = System.nanoTime();
+        final SearchResult result = search.search(new Bitboard(10, 15), 5, 0, TimeUnit.MILLISECONDS.toNanos(100));
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue("took " + elapsedMillis + " ms", elapsedMillis < 1000);
+        assertTrue(result.getNodes() > 0);
+        assertTrue(result.getColumn() >= 1 && result.getColumn() <= 15);
+    }
+
+    @Test
+    public void restoresBoard() {
+        final Bitboard board = new Bitboard(5, 4);
+        board.drop(1, 0);
+        board.drop(2, 1);
+        final Bitboard before = new Bitboard(board);
+
+        search.search(board, 4, 0, TimeUnit.MILLISECONDS.toNanos(50));
+
+        for (int column = 0; column < 4; column++) {
+            assertEquals(before.getHeight(column), board.getHeight(column));
+            for (int row = 0; row < 5; row++) {
+                assertEquals(before.get(row, column), board.get(row, column));
+            }
+        }
+    }
+
+    @Test
+    public void solvesSmallBoards() {
+        final SearchResult win = search.search(new Bitboard(4, 4), 3, 0, TimeUnit.SECONDS.toNanos(5));
+        final SearchResult draw = search.search(new Bitboard(4, 4), 4, 0, TimeUnit.SECONDS.toNanos(5));
+
+        assertTrue(win.getScore() >= AlphaBetaSearch.MIN_WIN_SCORE);
+        assertEquals(0, draw.getScore());
+        assertEquals(16, draw.getDepth());
+    }
+}
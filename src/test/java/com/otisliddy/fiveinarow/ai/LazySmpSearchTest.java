@@ -0,0 +1,66 @@
+package com.otisliddy.fiveinarow.ai;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.otisliddy.fiveinarow.game.Bitboard;
+
+public class LazySmpSearchTest {
+
+    private final ExecutorService helperExecutor = Executors.newFixedThreadPool(3);
+    private final LazySmpSearch search = new LazySmpSearch(4, 4, helperExecutor);
+
+    @After
+    public void tearDown() {
+        helperExecutor.shutdownNow();
+    }
+
+    @Test
+    public void takesImmediateWin() {
+        final Bitboard board = new Bitboard(6, 9);
+        for (int column = 0; column < 4; column++) {
+            board.drop(column, 0);
+            board.drop(column, 1);
+        }
+        board.drop(8, 0);
+
+        final SearchResult result = search.search(board, 5, 0, TimeUnit.MILLISECONDS.toNanos(200));
+
+        assertEquals(5, result.getColumn());
+        assertEquals(AlphaBetaSearch.WIN_SCORE, result.getScore());
+    }
+
+    @Test
+    public void agreesWithSequentialSearchOnSolvedBoard() {
+        final SearchResult parallel = search.search(new Bitboard(4, 4), 4, 0, TimeUnit.SECONDS.toNanos(5));
+        final SearchResult sequential = new AlphaBetaSearch(4).search(new Bitboard(4, 4), 4, 0, TimeUnit.SECONDS.toNanos(5));
+
+        assertEquals(sequential.getScore(), parallel.getScore());
+        assertEquals(16, parallel.getDepth());
+    }
+
+    @Test
+    public void countsNodesOfEveryThreadAndStopsAtDeadline() {
+        final Bitboard board = new Bitboard(6, 9);
+        final long start = System.nanoTime();
+
+        final SearchResult result = search.search(board, 5, 0, TimeUnit.MILLISECONDS.toNanos(100));
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        assertTrue(result.getNodes() > 0);
+        assertEquals(0, board.getHeight(4));
+    }
+
+    @Test
+    public void stopsAtMaxDepth() {
+        final SearchResult result = search.search(new Bitboard(6, 9), 5, 0, TimeUnit.SECONDS.toNanos(5), 4);
+
+        assertEquals(4, result.getDepth());
+    }
+}
@@ -0,0 +1,76 @@
+package com.otisliddy.fiveinarow.ai;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.otisliddy.fiveinarow.game.Bitboard;
+
+/**
+ * Measures how the bot's search scales with threads on 6x9 boards with 5 in-a-row. For each number of threads from 1 up to the number
+ * of processors, prints the search speed over a fixed time, and the time taken to complete a search to a fixed depth, for a few standard
+ * positions.
+ * <p>Not run as part of the tests. Run with, e.g.:</p>
+ * <pre>
+ * java -cp target/classes:target/test-classes com.otisliddy.fiveinarow.ai.SearchBenchmark [maxThreads] [depth] [millis] [tableMegabytes]
+ * </pre>
+ */
+public class SearchBenchmark {
+
+    private static final int NUM_ROWS = 6;
+    private static final int NUM_COLUMNS = 9;
+    private static final int IN_A_ROW = 5;
+
+    /**
+     * Opening moves of each position, as columns indexed starting at 0, alternating between players starting with player 0.
+     */
+    private static final int[][] POSITIONS = { {}, { 4, 4, 3, 5 }, { 4, 3, 4, 5, 2, 6, 4, 4 }, { 0, 8, 4, 4, 3, 2, 5, 6, 5, 3 } };
+
+    public static void main(String[] args) {
+        final int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        final int depth = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        final long millis = args.length > 2 ? Long.parseLong(args[2]) : 2000;
+        final int tableMegabytes = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+
+        final ExecutorService helperExecutor = Executors.newFixedThreadPool(Math.max(1, maxThreads - 1), runnable -> {
+            final Thread thread = new Thread(runnable, "benchmark-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        System.out.printf("%-10s %8s %14s %8s %18s%n", "position", "threads", "nodes/sec", "depth", "ms to depth " + depth);
+        for (int position = 0; position < POSITIONS.length; position++) {
+            double baseNodesPerSecond = 0;
+            for (int threads = 1; threads <= maxThreads; threads++) {
+                // Warm up, then time each measurement with an empty table.
+                run(position, threads, tableMegabytes, helperExecutor, TimeUnit.MILLISECONDS.toNanos(200), Integer.MAX_VALUE);
+                final SearchResult timed = run(position, threads, tableMegabytes, helperExecutor, TimeUnit.MILLISECONDS.toNanos(millis),
+                        Integer.MAX_VALUE);
+                final SearchResult toDepth = run(position, threads, tableMegabytes, helperExecutor, TimeUnit.MINUTES.toNanos(10), depth);
+                if (threads == 1) {
+                    baseNodesPerSecond = timed.getNodesPerSecond();
+                }
+                System.out.printf("%-10d %8d %14d %8d %18.1f   (x%.2f nodes/sec)%n", position, threads, timed.getNodesPerSecond(),
+                        timed.getDepth(), toDepth.getElapsedNanos() / 1e6, timed.getNodesPerSecond() / baseNodesPerSecond);
+            }
+        }
+        helperExecutor.shutdownNow();
+    }
+
+    private static SearchResult run(int position, int threads, int tableMegabytes, ExecutorService helperExecutor, long budgetNanos,
+            int maxDepth) {
+        final LazySmpSearch search = new LazySmpSearch(threads, tableMegabytes, helperExecutor);
+        return search.search(board(position), IN_A_ROW, player(position), budgetNanos, maxDepth);
+    }
+
+    private static Bitboard board(int position) {
+        final Bitboard board = new Bitboard(NUM_ROWS, NUM_COLUMNS);
+        for (int i = 0; i < POSITIONS[position].length; i++) {
+            board.drop(POSITIONS[position][i], i & 1);
+        }
+        return board;
+    }
+
+    private static int player(int position) {
+        return POSITIONS[position].length & 1;
+    }
+}
@@ -0,0 +1,92 @@
+package com.otisliddy.fiveinarow.ai;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.otisliddy.fiveinarow.game.Bitboard;
+
+public class SolvedPositionsTest {
+
+    private SolvedPositions solved;
+    private int emptyBoardValue;
+
+    @Before
+    public void setup() throws IOException {
+        final PositionSolver solver = new PositionSolver(4, 4, 3);
+        emptyBoardValue = solver.solve();
+        final Path path = Files.createTempDirectory("solved").resolve(SolvedPositions.fileName(4, 4, 3));
+        solver.write(path);
+        solved = SolvedPositions.open(path);
+    }
+
+    @Test
+    public void firstPlayerWinsOnEmptyBoard() {
+        assertEquals(9, emptyBoardValue);
+        assertEquals(9, solved.lookup(new Bitboard(4, 4)));
+        assertEquals(4, solved.getNumRows());
+        assertEquals(4, solved.getNumColumns());
+        assertEquals(3, solved.getInARow());
+    }
+
+    @Test
+    public void bestMoveTakesImmediateWin() {
+        final Bitboard board = new Bitboard(4, 4);
+        board.drop(0, 0);
+        board.drop(0, 1);
+        board.drop(1, 0);
+        board.drop(1, 1);
+
+        assertEquals(2, solved.bestMove(board, 0));
+        assertEquals(1, solved.lookup(board));
+        assertEquals(0, board.getHeight(2));
+    }
+
+    @Test
+    public void mirrorImagesHaveSameValue() {
+        final Bitboard board = new Bitboard(4, 4);
+        board.drop(0, 0);
+        final Bitboard mirror = new Bitboard(4, 4);
+        mirror.drop(3, 0);
+
+        assertEquals(solved.lookup(board), solved.lookup(mirror));
+    }
+
+    @Test
+    public void finishedGameIsNotFound() {
+        final Bitboard board = new Bitboard(4, 4);
+        board.drop(0, 0);
+        board.drop(3, 1);
+        board.drop(0, 0);
+        board.drop(3, 1);
+        board.drop(0, 0);
+
+        assertEquals(SolvedPositions.NOT_FOUND, solved.lookup(board));
+    }
+
+    @Test
+    public void agreesWithSearch() {
+        final Bitboard board = new Bitboard(4, 4);
+        board.drop(1, 0);
+        board.drop(2, 1);
+
+        final int value = solved.lookup(board);
+        final SearchResult result = new AlphaBetaSearch(1).search(board, 3, 0, 5_000_000_000L);
+
+        assertTrue(value > 0);
+        assertEquals(AlphaBetaSearch.WIN_SCORE - value + 1, result.getScore());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedFile() throws IOException {
+        final Path path = Files.createTempFile("solved", ".bin");
+        Files.write(path, new byte[40]);
+
+        SolvedPositions.open(path);
+    }
+}
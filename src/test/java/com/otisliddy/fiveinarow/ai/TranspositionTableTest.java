@@ -0,0 +1,60 @@
+package com.otisliddy.fiveinarow.ai;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TranspositionTableTest {
+
+    private final TranspositionTable table = new TranspositionTable(1);
+
+    @Test
+    public void storeAndProbe() {
+        table.store(0x1234_5678_9ABC_DEF0L, 7, TranspositionTable.LOWER_BOUND, -42, 3);
+
+        final long entry = table.probe(0x1234_5678_9ABC_DEF0L);
+
+        assertEquals(-42, TranspositionTable.score(entry));
+        assertEquals(7, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER_BOUND, TranspositionTable.bound(entry));
+        assertEquals(3, TranspositionTable.move(entry));
+    }
+
+    @Test
+    public void missingEntry() {
+        assertEquals(TranspositionTable.NO_ENTRY, table.probe(99));
+    }
+
+    @Test
+    public void otherPositionInSlotIsNotReturned() {
+        final long hash = 5;
+        table.store(hash, 1, TranspositionTable.EXACT, 10, -1);
+
+        assertEquals(TranspositionTable.NO_ENTRY, table.probe(hash + table.capacity()));
+        assertEquals(-1, TranspositionTable.move(table.probe(hash)));
+    }
+
+    @Test
+    public void deeperEntryOfCurrentSearchIsKept() {
+        final long hash = 5;
+        final long other = hash + table.capacity();
+        table.newSearch();
+        table.store(hash, 8, TranspositionTable.EXACT, 10, 1);
+
+        table.store(other, 2, TranspositionTable.EXACT, 20, 2);
+        assertEquals(TranspositionTable.NO_ENTRY, table.probe(other));
+
+        table.newSearch();
+        table.store(other, 2, TranspositionTable.EXACT, 20, 2);
+        assertEquals(20, TranspositionTable.score(table.probe(other)));
+        assertEquals(TranspositionTable.NO_ENTRY, table.probe(hash));
+    }
+
+    @Test
+    public void samePositionIsAlwaysReplaced() {
+        table.store(5, 8, TranspositionTable.EXACT, 10, 1);
+        table.store(5, 2, TranspositionTable.UPPER_BOUND, 30, 4);
+
+        assertEquals(2, TranspositionTable.depth(table.probe(5)));
+    }
+}
@@ -0,0 +1,135 @@
+package com.otisliddy.fiveinarow.archive;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.otisliddy.fiveinarow.game.Game;
+import com.otisliddy.fiveinarow.game.GameState;
+import com.otisliddy.fiveinarow.game.GameStatus;
+import com.otisliddy.fiveinarow.game.MoveEvent;
+import com.otisliddy.fiveinarow.game.Variant;
+
+public class GameArchiveTest {
+
+    private Path directory;
+    private GameArchive gameArchive;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("archive");
+        gameArchive = new GameArchive(directory);
+        gameArchive.open();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        gameArchive.close();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void wonGameIsReplayedMoveByMove() throws IOException {
+        final Game game = playGame(7, new Variant(6, 9, 5), 1, 2, 1, 2, 1, 2, 1, 2, 1);
+        gameArchive.archive(game);
+
+        final ArchivedGame archivedGame = gameArchive.find(7);
+
+        assertNotNull(archivedGame);
+        assertEquals(new Variant(6, 9, 5), archivedGame.getVariant());
+        assertEquals(GameStatus.OVER_WON, archivedGame.getStatus());
+        assertEquals(9, archivedGame.getNumMoves());
+        final GameState initial = archivedGame.newGameState();
+        assertEquals(0, initial.getMoveCount());
+        assertEquals("Alice", initial.getPlayerToMove().getName());
+
+        final MoveEvent first = archivedGame.nextMove();
+        assertEquals(1, first.getSequence());
+        assertEquals(1, first.getColumn());
+        assertEquals(0, first.getRow());
+        assertEquals(1, first.getPlayerId());
+        assertEquals(GameStatus.IN_PROGRESS, first.getStatus());
+        assertEquals("Bob", first.getPlayerToMove().getName());
+
+        MoveEvent last = first;
+        while (archivedGame.hasNextMove()) {
+            last = archivedGame.nextMove();
+        }
+        assertEquals(9, last.getSequence());
+        assertEquals(4, last.getRow());
+        assertEquals(GameStatus.OVER_WON, last.getStatus());
+        assertEquals("Alice", last.getPlayerToMove().getName());
+    }
+
+    @Test
+    public void longGameIsReplayedAcrossReadBlocks() throws IOException {
+        final Variant variant = new Variant(10, 10, 11);
+        final int[] columns = new int[100];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = i / 10 + 1;
+        }
+        gameArchive.archive(playGame(3, variant, columns));
+
+        final ArchivedGame archivedGame = gameArchive.find(3);
+
+        for (int i = 0; i < columns.length; i++) {
+            final MoveEvent move = archivedGame.nextMove();
+            assertEquals(i + 1, move.getSequence());
+            assertEquals(columns[i], move.getColumn());
+            assertEquals(i % 10, move.getRow());
+        }
+        assertFalse(archivedGame.hasNextMove());
+    }
+
+    @Test
+    public void gamesInProgressAreNotArchived() throws IOException {
+        gameArchive.archive(playGame(5, new Variant(6, 9, 5), 1, 2, 3));
+
+        assertNull(gameArchive.find(5));
+    }
+
+    @Test
+    public void gamesAreFoundAfterReopening() throws IOException {
+        gameArchive.archive(playGame(1, new Variant(2, 2, 3), 1, 1, 2, 2));
+        gameArchive.archive(playGame(2, new Variant(6, 9, 5), 1, 2, 1, 2, 1, 2, 1, 2, 1));
+        gameArchive.close();
+        try (FileChannel channel = FileChannel.open(directory.resolve("games.archive"), StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] { 0, 0, 0, 100, 1, 2 }));
+        }
+
+        gameArchive = new GameArchive(directory);
+        gameArchive.open();
+
+        assertEquals(GameStatus.OVER_DRAWN, gameArchive.find(1).getStatus());
+        assertEquals(9, gameArchive.find(2).getNumMoves());
+        gameArchive.archive(playGame(4, new Variant(2, 2, 3), 2, 1, 2, 1));
+        assertEquals(4, gameArchive.find(4).getNumMoves());
+    }
+
+    private static Game playGame(long gameId, Variant variant, int... columns) {
+        final Game game = new Game(gameId, variant.newGameState(), "Alice", "session-1");
+        game.joinPlayerTwo("Bob", "session-2");
+        final GameState gameState = game.getState();
+        for (int column : columns) {
+            gameState.tryAddDisc(column, gameState.getPlayerToMove().getId());
+            game.recordMove(column);
+            if (gameState.getStatus() == GameStatus.IN_PROGRESS) {
+                game.switchPlayerToMove();
+            }
+        }
+        return game;
+    }
+}
@@ -0,0 +1,46 @@
+package com.otisliddy.fiveinarow.config;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.util.MimeType;
+
+import com.otisliddy.fiveinarow.game.GameState;
+import com.otisliddy.fiveinarow.game.GameStatus;
+
+public class GameStateMessageConverterTest {
+
+    private final GameStateMessageConverter converter = new GameStateMessageConverter();
+
+    @Test
+    public void convertsWithBinaryContentType() {
+        final GameState gameState = new GameState(3, 3, 3);
+        gameState.setStatus(GameStatus.OVER_WON);
+
+        final Message<?> message = converter.toMessage(gameState, headers(GameStateMessageConverter.CONTENT_TYPE));
+        assertNotNull(message);
+        assertTrue(message.getPayload() instanceof byte[]);
+
+        final GameState converted = (GameState) converter.fromMessage(message, GameState.class);
+        assertEquals(GameStatus.OVER_WON, converted.getStatus());
+    }
+
+    @Test
+    public void ignoresMessagesWithoutContentType() {
+        assertNull(converter.toMessage(new GameState(3, 3, 3), new MessageHeaders(null)));
+    }
+
+    @Test
+    public void ignoresJsonContentType() {
+        assertNull(converter.toMessage(new GameState(3, 3, 3), headers("application/json")));
+    }
+
+    private static MessageHeaders headers(String contentType) {
+        final MessageHeaderAccessor accessor = new MessageHeaderAccessor();
+        accessor.setContentType(MimeType.valueOf(contentType));
+        return accessor.getMessageHeaders();
+    }
+}
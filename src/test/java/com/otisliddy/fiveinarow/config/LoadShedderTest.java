@@ -0,0 +1,85 @@
+package com.otisliddy.fiveinarow.config;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+public class LoadShedderTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ThreadPoolTaskExecutor inbound = executor(10);
+    private final ThreadPoolTaskExecutor outbound = executor(10);
+    private final LoadShedder loadShedder = new LoadShedder(inbound, outbound, 80);
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        inbound.shutdown();
+        outbound.shutdown();
+    }
+
+    @Test
+    public void notOverloadedWhileQueuesHaveRoom() throws Exception {
+        block(inbound, 7);
+        block(outbound, 7);
+
+        assertFalse(loadShedder.isOverloaded());
+    }
+
+    @Test
+    public void overloadedOnceInboundQueueReachesThreshold() throws Exception {
+        block(inbound, 8);
+
+        assertTrue(loadShedder.isOverloaded());
+    }
+
+    @Test
+    public void overloadedOnceOutboundQueueReachesThreshold() throws Exception {
+        block(outbound, 8);
+
+        assertTrue(loadShedder.isOverloaded());
+    }
+
+    @Test
+    public void notOverloadedWithoutQueue() {
+        final ThreadPoolTaskExecutor direct = executor(0);
+        try {
+            assertFalse(new LoadShedder(direct, direct, 80).isOverloaded());
+        } finally {
+            direct.shutdown();
+        }
+    }
+
+    private static ThreadPoolTaskExecutor executor(int queueCapacity) {
+        final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(queueCapacity);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Occupy the executor's thread until the test ends, and queue tasks behind it.
+     */
+    private void block(ThreadPoolTaskExecutor executor, int queued) throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        started.await();
+        for (int i = 0; i < queued; i++) {
+            executor.execute(() -> {
+            });
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.otisliddy.fiveinarow.config;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+
+public class MoveRateLimiterTest {
+
+    private static final long MILLIS = 1_000_000;
+
+    private long now = 1_000 * MILLIS;
+    private final MoveRateLimiter limiter = new MoveRateLimiter(10, 3, () -> now, null);
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+
+    @Test
+    public void allowsBurstThenDrops() {
+        assertTrue(limiter.tryAcquire(attributes));
+        assertTrue(limiter.tryAcquire(attributes));
+        assertTrue(limiter.tryAcquire(attributes));
+
+        assertFalse(limiter.tryAcquire(attributes));
+    }
+
+    @Test
+    public void refillsAtRate() {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire(attributes);
+        }
+
+        now += 99 * MILLIS;
+        assertFalse(limiter.tryAcquire(attributes));
+        now += MILLIS;
+        assertTrue(limiter.tryAcquire(attributes));
+        assertFalse(limiter.tryAcquire(attributes));
+    }
+
+    @Test
+    public void refillsNoMoreThanBurst() {
+        now += 60_000 * MILLIS;
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire(attributes));
+        }
+        assertFalse(limiter.tryAcquire(attributes));
+    }
+
+    @Test
+    public void sessionsHaveSeparateBuckets() {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire(attributes);
+        }
+
+        assertTrue(limiter.tryAcquire(new ConcurrentHashMap<>()));
+    }
+
+    @Test
+    public void zeroRateSetsNoLimit() {
+        final MoveRateLimiter unlimited = new MoveRateLimiter(0, 3, () -> now, null);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(unlimited.tryAcquire(attributes));
+        }
+        assertTrue(attributes.isEmpty());
+    }
+
+    @Test
+    public void interceptorDropsExcessMovesOnly() {
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(limiter.preSend(message(MoveRateLimiter.MOVE_DESTINATION), null));
+        }
+
+        assertNull(limiter.preSend(message(MoveRateLimiter.MOVE_DESTINATION), null));
+        assertNotNull(limiter.preSend(message("/fiveinarow/resync"), null));
+    }
+
+    private Message<byte[]> message(String destination) {
+        final SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        accessor.setSessionId("session-1");
+        accessor.setSessionAttributes(attributes);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
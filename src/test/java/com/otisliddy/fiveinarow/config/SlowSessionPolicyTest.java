@@ -0,0 +1,96 @@
+package com.otisliddy.fiveinarow.config;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+
+public class SlowSessionPolicyTest {
+
+    private final SlowSessionPolicy policy = new SlowSessionPolicy();
+    private final WebSocketHandler handler = policy.decorate(new AbstractWebSocketHandler() {
+    });
+    private final List<Object> closes = new ArrayList<>();
+    private final WebSocketSession session = session("session-1");
+
+    @Test
+    public void closesSessionOnce() throws Exception {
+        handler.afterConnectionEstablished(session);
+
+        policy.rejectedExecution(task("session-1"), null);
+        policy.rejectedExecution(task("session-1"), null);
+
+        assertEquals(1, closes.size());
+        assertEquals(CloseStatus.SESSION_NOT_RELIABLE, closes.get(0));
+    }
+
+    @Test
+    public void ignoresOtherSessions() throws Exception {
+        handler.afterConnectionEstablished(session);
+
+        policy.rejectedExecution(task("session-2"), null);
+        policy.rejectedExecution(() -> { }, null);
+
+        assertTrue(closes.isEmpty());
+    }
+
+    @Test
+    public void forgetsClosedSessions() throws Exception {
+        handler.afterConnectionEstablished(session);
+        assertEquals(1, policy.size());
+
+        handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+
+        assertEquals(0, policy.size());
+        policy.rejectedExecution(task("session-1"), null);
+        assertTrue(closes.isEmpty());
+    }
+
+    private WebSocketSession session(String id) {
+        return (WebSocketSession) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { WebSocketSession.class },
+                (proxy, method, args) -> {
+                    if (method.getName().equals("getId")) {
+                        return id;
+                    }
+                    if (method.getName().equals("close")) {
+                        closes.add(args == null ? CloseStatus.NORMAL : args[0]);
+                    }
+                    return null;
+                });
+    }
+
+    private static MessageHandlingRunnable task(String sessionId) {
+        final SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        final Message<byte[]> message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        return new MessageHandlingRunnable() {
+            @Override
+            public Message<?> getMessage() {
+                return message;
+            }
+
+            @Override
+            public MessageHandler getMessageHandler() {
+                return null;
+            }
+
+            @Override
+            public void run() {
+                fail("Dropped messages are not sent");
+            }
+        };
+    }
+}
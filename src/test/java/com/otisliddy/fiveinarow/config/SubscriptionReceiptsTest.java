@@ -0,0 +1,45 @@
+package com.otisliddy.fiveinarow.config;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.simp.user.DefaultUserDestinationResolver;
+import org.springframework.messaging.simp.user.UserDestinationMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.web.socket.messaging.DefaultSimpUserRegistry;
+
+public class SubscriptionReceiptsTest {
+
+    private final ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel();
+    private final SimpleBrokerMessageHandler brokerHandler = new SimpleBrokerMessageHandler(channel, channel, channel, singletonList("/topic"));
+    private final UserDestinationMessageHandler userHandler =
+            new UserDestinationMessageHandler(channel, channel, new DefaultUserDestinationResolver(new DefaultSimpUserRegistry()));
+
+    @Test
+    public void brokerRegistersTopicSubscriptions() {
+        assertTrue(SubscriptionReceipts.registers(brokerHandler, "/topic/state/1"));
+        assertFalse(SubscriptionReceipts.registers(userHandler, "/topic/state/1"));
+    }
+
+    @Test
+    public void userHandlerRegistersUserSubscriptions() {
+        assertTrue(SubscriptionReceipts.registers(userHandler, "/user/queue/state"));
+        assertFalse(SubscriptionReceipts.registers(brokerHandler, "/user/queue/state"));
+    }
+
+    @Test
+    public void receiptMessage() {
+        final Message<byte[]> message = SubscriptionReceipts.receiptMessage("receipt-1", "session-1");
+
+        final StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        assertEquals(StompCommand.RECEIPT, accessor.getCommand());
+        assertEquals("receipt-1", accessor.getReceiptId());
+        assertEquals("session-1", accessor.getSessionId());
+        assertEquals(0, message.getPayload().length);
+    }
+}
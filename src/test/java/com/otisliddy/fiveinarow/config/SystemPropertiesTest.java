@@ -28,4 +28,20 @@ public class SystemPropertiesTest {
             System.clearProperty(SystemProperties.NUM_ROWS.getName());
         }
     }
+
+    @Test
+    public void stringValueProvidedValueReturned() {
+        try{
+            System.setProperty(SystemProperties.BROKER_RELAY_HOST.getName(), "broker.example.com");
+            assertEquals("broker.example.com", SystemProperties.BROKER_RELAY_HOST.getStringValue());
+        }
+        finally{
+            System.clearProperty(SystemProperties.BROKER_RELAY_HOST.getName());
+        }
+    }
+
+    @Test
+    public void noStringValueProvidedDefaultValueReturned() {
+        assertEquals("", SystemProperties.BROKER_RELAY_HOST.getStringValue());
+    }
 }
@@ -0,0 +1,100 @@
+package com.otisliddy.fiveinarow.config;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class VirtualThreadTaskExecutorTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<Runnable> rejected = new ArrayList<>();
+    private final VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor(Executors.newCachedThreadPool(), 2);
+
+    public VirtualThreadTaskExecutorTest() {
+        executor.setRejectedExecutionHandler((task, pool) -> rejected.add(task));
+        executor.initialize();
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    public void rejectsTasksBeyondLimit() throws InterruptedException {
+        block(2);
+        final Runnable task = () -> {
+        };
+
+        executor.execute(task);
+
+        assertEquals(2, executor.getInFlight());
+        assertEquals(1, rejected.size());
+        assertSame(task, rejected.get(0));
+    }
+
+    @Test
+    public void runsTasksAgainOnceFinished() throws Exception {
+        block(2);
+        release.countDown();
+        while (executor.getInFlight() > 0) {
+            Thread.sleep(1);
+        }
+
+        final CountDownLatch ran = new CountDownLatch(1);
+        executor.execute(ran::countDown);
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertTrue(rejected.isEmpty());
+    }
+
+    @Test
+    public void callerRunsRejectedTasks() throws InterruptedException {
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        block(2);
+        final Thread caller = Thread.currentThread();
+        final List<Thread> ranOn = new ArrayList<>();
+
+        executor.execute(() -> ranOn.add(Thread.currentThread()));
+
+        assertEquals(1, ranOn.size());
+        assertSame(caller, ranOn.get(0));
+    }
+
+    @Test
+    public void overloadedOnceTasksInFlightReachThreshold() throws InterruptedException {
+        final LoadShedder loadShedder = new LoadShedder(executor, executor, 100);
+        block(1);
+        assertFalse(loadShedder.isOverloaded());
+
+        block(1);
+        assertTrue(loadShedder.isOverloaded());
+    }
+
+    /**
+     * Start tasks that run until the test ends.
+     */
+    private void block(int tasks) throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(tasks);
+        for (int i = 0; i < tasks; i++) {
+            executor.execute(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        started.await();
+    }
+}
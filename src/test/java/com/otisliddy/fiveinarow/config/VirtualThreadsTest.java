@@ -0,0 +1,62 @@
+package com.otisliddy.fiveinarow.config;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+import org.junit.Test;
+
+public class VirtualThreadsTest {
+
+    private static final boolean JAVA_21 = Runtime.version().feature() >= 21;
+
+    @Test
+    public void supportedFromJava21() {
+        assertEquals(JAVA_21, VirtualThreads.isSupported());
+    }
+
+    @Test
+    public void factoryCreatesNamedVirtualThreads() throws Exception {
+        if (!JAVA_21) {
+            try {
+                VirtualThreads.factory("test-");
+                fail("Expected IllegalStateException before Java 21");
+            } catch (IllegalStateException exception) {
+                assertTrue(exception.getMessage().contains("Java 21"));
+            }
+            return;
+        }
+        final ThreadFactory factory = VirtualThreads.factory("test-");
+        final Thread first = factory.newThread(() -> {
+        });
+        final Thread second = factory.newThread(() -> {
+        });
+
+        assertEquals("test-0", first.getName());
+        assertEquals("test-1", second.getName());
+        assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(first));
+    }
+
+    @Test
+    public void threadPerTaskExecutorRunsTasksOnVirtualThreads() throws Exception {
+        if (!JAVA_21) {
+            try {
+                VirtualThreads.threadPerTaskExecutor("test-");
+                fail("Expected IllegalStateException before Java 21");
+            } catch (IllegalStateException exception) {
+                assertTrue(exception.getMessage().contains("Java 21"));
+            }
+            return;
+        }
+        final ExecutorService executor = VirtualThreads.threadPerTaskExecutor("test-");
+        try {
+            final Thread thread = executor.submit(Thread::currentThread).get();
+
+            assertEquals("test-0", thread.getName());
+            assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(thread));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.otisliddy.fiveinarow.controller;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static junit.framework.TestCase.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.activemq.broker.BrokerService;
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import com.otisliddy.fiveinarow.config.SystemProperties;
+import com.otisliddy.fiveinarow.game.GameState;
+import com.otisliddy.fiveinarow.game.GameStatus;
+import com.otisliddy.fiveinarow.game.MoveEvent;
+import com.otisliddy.fiveinarow.game.Player;
+import com.otisliddy.fiveinarow.util.GenericFrameHandler;
+import com.otisliddy.fiveinarow.util.ReceiptedSubscriptions;
+
+/**
+ * Runs a game through the STOMP broker relay, against an embedded ActiveMQ broker standing in for an external one.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public class BrokerRelayIntegrationTest {
+    private static final String WEBSOCKET_URI = "ws://localhost:8080/5-in-a-row";
+    private static final int BROKER_PORT = 61623;
+    private static final long BROKER_AVAILABLE_TIMEOUT_MILLIS = 10000;
+    private static BrokerService broker;
+
+    private GenericFrameHandler<Player> playerResponse = new GenericFrameHandler<>(Player.class);
+    private GenericFrameHandler<GameState> gameStateResponse = new GenericFrameHandler<>(GameState.class);
+    private GenericFrameHandler<MoveEvent> moveEventResponse = new GenericFrameHandler<>(MoveEvent.class);
+    final WebSocketStompClient stompClient =
+               new WebSocketStompClient(new SockJsClient(asList(new WebSocketTransport(new StandardWebSocketClient()))));
+    private StompSession stompSession;
+    private final ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+    @Autowired
+    private StompBrokerRelayMessageHandler brokerRelay;
+
+    @BeforeClass
+    public static void setupClass() throws Exception {
+        broker = new BrokerService();
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        broker.addConnector("stomp://localhost:" + BROKER_PORT);
+        broker.start();
+        broker.waitUntilStarted();
+        System.setProperty(SystemProperties.BROKER_RELAY_HOST.getName(), "localhost");
+        System.setProperty(SystemProperties.BROKER_RELAY_PORT.getName(), String.valueOf(BROKER_PORT));
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        System.clearProperty(SystemProperties.BROKER_RELAY_HOST.getName());
+        System.clearProperty(SystemProperties.BROKER_RELAY_PORT.getName());
+        broker.stop();
+        broker.waitUntilStopped();
+    }
+
+    @Before
+    public void setup() throws Exception {
+        awaitBrokerAvailable();
+        taskScheduler.initialize();
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        stompClient.setTaskScheduler(taskScheduler);
+        stompSession = stompClient.connect(WEBSOCKET_URI, new StompSessionHandlerAdapter() {
+        }).get(5, SECONDS);
+        stompSession.subscribe("/user/queue/start", playerResponse);
+    }
+
+    @After
+    public void reset() {
+        if (stompSession != null) {
+            stompSession.disconnect();
+        }
+        taskScheduler.shutdown();
+    }
+
+    /**
+     * Wait for the relay's system session to connect to the broker, as the relay refuses clients until it has.
+     */
+    private void awaitBrokerAvailable() throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + BROKER_AVAILABLE_TIMEOUT_MILLIS;
+        while (!brokerRelay.isBrokerAvailable() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertTrue("The broker relay did not connect to the broker", brokerRelay.isBrokerAvailable());
+    }
+
+    @Test
+    public void gamePlayedThroughRelay() {
+        stompSession.send("/fiveinarow/start", "player 1");
+        final Player playerOne = playerResponse.getRespoonse();
+        assertNotNull(playerOne);
+        ReceiptedSubscriptions.subscribe(stompSession, "/topic/state/" + playerOne.getGameId(), gameStateResponse);
+        ReceiptedSubscriptions.subscribe(stompSession, "/topic/moves/" + playerOne.getGameId(), moveEventResponse);
+        stompSession.send("/fiveinarow/ready", "");
+
+        stompSession.send("/fiveinarow/start", "player 2");
+        final Player playerTwo = playerResponse.getRespoonse();
+        assertNotNull(playerTwo);
+        assertEquals(playerOne.getGameId(), playerTwo.getGameId());
+        assertNotNull(gameStateResponse.getRespoonse());
+
+        stompSession.send("/fiveinarow/move", 1);
+
+        final MoveEvent moveEvent = moveEventResponse.getRespoonse();
+        assertNotNull(moveEvent);
+        assertEquals(GameStatus.IN_PROGRESS, moveEvent.getStatus());
+        assertEquals(1, moveEvent.getSequence());
+    }
+}
@@ -5,6 +5,7 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 import static junit.framework.TestCase.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
@@ -16,8 +17,11 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
 import org.springframework.messaging.simp.stomp.StompSession;
 import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.web.socket.client.standard.StandardWebSocketClient;
@@ -27,10 +31,14 @@ import org.springframework.web.socket.sockjs.client.WebSocketTransport;
 
 import com.otisliddy.fiveinarow.config.SystemProperties;
 import com.otisliddy.fiveinarow.exception.IllegalMove;
+import com.otisliddy.fiveinarow.game.Game;
+import com.otisliddy.fiveinarow.game.GameRegistry;
 import com.otisliddy.fiveinarow.game.GameState;
 import com.otisliddy.fiveinarow.game.GameStatus;
+import com.otisliddy.fiveinarow.game.MoveEvent;
 import com.otisliddy.fiveinarow.game.Player;
 import com.otisliddy.fiveinarow.util.GenericFrameHandler;
+import com.otisliddy.fiveinarow.util.ReceiptedSubscriptions;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT)
@@ -40,19 +48,28 @@ public class GameControllerIntegrationTest {
     private static final String WEBSOCKET_URI = "ws://localhost:8080/5-in-a-row";
     private static final String ENDPOINT_START = "/fiveinarow/start";
     private static final String ENDPOINT_MOVE = "/fiveinarow/move";
-    private static final String SUBSCRIBE_MOVES = "/topic/moves";
+    private static final String ENDPOINT_READY = "/fiveinarow/ready";
+    private static final String ENDPOINT_RESYNC = "/fiveinarow/resync";
+    private static final String ENDPOINT_SPECTATE = "/fiveinarow/spectate";
+    private static final String ENDPOINT_REJOIN = "/fiveinarow/rejoin";
+    private static final String SUBSCRIBE_MOVES = "/topic/moves/";
+    private static final String SUBSCRIBE_STATE = "/topic/state/";
+    private static final String SUBSCRIBE_RESYNC = "/user/queue/state";
     private static final String SUBSCRIBE_START = "/user/queue/start";
-    private static final String SUBSCRIBE_ILLEGAL_MOVE = "/queue/illegal-move";
-    private static final String SUBSCRIBE_DISCONNECTED = "/topic/disconnected";
+    private static final String SUBSCRIBE_ILLEGAL_MOVE = "/user/queue/illegal-move";
+    private static final String SUBSCRIBE_DISCONNECTED = "/topic/disconnected/";
 
     private GenericFrameHandler<Player> playerResponse = new GenericFrameHandler<>(Player.class);
     private GenericFrameHandler<GameState> gameStateResponse = new GenericFrameHandler<>(GameState.class);
+    private GenericFrameHandler<MoveEvent> moveEventResponse = new GenericFrameHandler<>(MoveEvent.class);
     private GenericFrameHandler<IllegalMove> illegalMoveResponse = new GenericFrameHandler<>(IllegalMove.class);
     private GenericFrameHandler<String> stringResponse = new GenericFrameHandler<>(String.class);
     final WebSocketStompClient stompClient =
                new WebSocketStompClient(new SockJsClient(asList(new WebSocketTransport(new StandardWebSocketClient()))));
     private StompSession stompSession;
+    private final ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
     @Autowired
+    private GameRegistry gameRegistry;
     private GameState gameStateBefore;
 
     @BeforeClass
@@ -60,6 +77,7 @@ public class GameControllerIntegrationTest {
         System.setProperty(SystemProperties.NUM_ROWS.getName(), "3");
         System.setProperty(SystemProperties.NUM_COLUMNS.getName(), "4");
         System.setProperty(SystemProperties.IN_A_ROW_TO_WIN.getName(), "3");
+        System.setProperty(SystemProperties.BOT_MOVE_MILLIS.getName(), "20");
     }
 
     @AfterClass
@@ -67,22 +85,28 @@ public class GameControllerIntegrationTest {
         System.clearProperty(SystemProperties.NUM_ROWS.getName());
         System.clearProperty(SystemProperties.NUM_COLUMNS.getName());
         System.clearProperty(SystemProperties.IN_A_ROW_TO_WIN.getName());
+        System.clearProperty(SystemProperties.BOT_MOVE_MILLIS.getName());
     }
 
     @Before
     public void setup() throws InterruptedException, ExecutionException, TimeoutException {
+        taskScheduler.initialize();
         stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        stompClient.setTaskScheduler(taskScheduler);
         stompSession = stompClient.connect(WEBSOCKET_URI, new StompSessionHandlerAdapter() {
         }).get(5, SECONDS);
 
         stompSession.subscribe(SUBSCRIBE_START, playerResponse);
-        stompSession.subscribe(SUBSCRIBE_MOVES, gameStateResponse);
-        stompSession.subscribe(SUBSCRIBE_ILLEGAL_MOVE, illegalMoveResponse);
     }
 
     @After
     public void reset() {
         stompSession.disconnect();
+        taskScheduler.shutdown();
+    }
+
+    private void subscribe(String destination, StompFrameHandler handler) {
+        ReceiptedSubscriptions.subscribe(stompSession, destination, handler);
     }
 
     @Test
@@ -93,6 +117,12 @@ public class GameControllerIntegrationTest {
         assertNotNull(player);
         assertEquals(1, player.getId());
         assertEquals("player 1", player.getName());
+        assertEquals(1, player.getGameId());
+        subscribe(SUBSCRIBE_STATE + player.getGameId(), gameStateResponse);
+        subscribe(SUBSCRIBE_MOVES + player.getGameId(), moveEventResponse);
+        subscribe(SUBSCRIBE_ILLEGAL_MOVE, illegalMoveResponse);
+        stompSession.send(ENDPOINT_READY, "");
+        gameStateBefore = gameRegistry.get(player.getGameId()).getState();
         GameState gameState = gameStateResponse.getRespoonse();
         assertNull(gameState);
 
@@ -102,20 +132,142 @@ public class GameControllerIntegrationTest {
         assertNotNull(player);
         assertEquals(2, player.getId());
         assertEquals("player 2", player.getName());
+        assertEquals(1, player.getGameId());
         gameState = gameStateResponse.getRespoonse();
         assertNotNull(gameState);
         assertEquals(1, gameState.getPlayerToMove().getId());
     }
 
+    @Test
+    public void testStartEndpoint_thirdPlayerStartsNewGame() {
+        testStartEndpoint();
+        stompSession.send(ENDPOINT_START, "player 3");
+
+        final Player player = playerResponse.getRespoonse();
+        assertNotNull(player);
+        assertEquals(1, player.getId());
+        assertEquals(2, player.getGameId());
+        assertEquals(2, gameRegistry.size());
+    }
+
     @Test
     public void testMoveEndpoint_initialState() {
         testStartEndpoint();
         stompSession.send(ENDPOINT_MOVE, 1);
 
-        final GameState gameStateAfter = gameStateResponse.getRespoonse();
-        assertNotNull(gameStateAfter);
-        assertEquals(GameStatus.IN_PROGRESS, gameStateAfter.getStatus());
-        assertEquals(1, gameStateAfter.getGrid()[0][0]);
+        final MoveEvent moveEvent = moveEventResponse.getRespoonse();
+        assertNotNull(moveEvent);
+        assertEquals(GameStatus.IN_PROGRESS, moveEvent.getStatus());
+        assertEquals(1, moveEvent.getSequence());
+        assertEquals(1, moveEvent.getColumn());
+        assertEquals(0, moveEvent.getRow());
+        assertEquals(1, moveEvent.getPlayerId());
+        assertEquals(2, moveEvent.getPlayerToMove().getId());
+    }
+
+    @Test
+    public void testResyncEndpoint() {
+        testStartEndpoint();
+        stompSession.subscribe(SUBSCRIBE_RESYNC, gameStateResponse);
+        stompSession.send(ENDPOINT_MOVE, 1);
+        assertNotNull(moveEventResponse.getRespoonse());
+
+        stompSession.send(ENDPOINT_RESYNC, "");
+
+        final GameState gameState = gameStateResponse.getRespoonse();
+        assertNotNull(gameState);
+        assertEquals(1, gameState.getMoveCount());
+        assertEquals(1, gameState.getGrid()[0][0]);
+        assertEquals(2, gameState.getPlayerToMove().getId());
+    }
+
+    @Test
+    public void testSpectateEndpoint() {
+        testStartEndpoint();
+        stompSession.subscribe(SUBSCRIBE_RESYNC, gameStateResponse);
+        stompSession.send(ENDPOINT_MOVE, 2);
+        assertNotNull(moveEventResponse.getRespoonse());
+
+        final StompHeaders headers = new StompHeaders();
+        headers.setDestination(ENDPOINT_SPECTATE);
+        headers.set("gameId", "1");
+        stompSession.send(headers, "");
+
+        final GameState gameState = gameStateResponse.getRespoonse();
+        assertNotNull(gameState);
+        assertEquals(1, gameState.getMoveCount());
+        assertEquals(1, gameState.getGrid()[0][1]);
+    }
+
+    @Test
+    public void testRejoinEndpoint() {
+        final Game game = new Game(7, new GameState(3, 4, 3), "player 1", null);
+        game.joinPlayerTwo("player 2", null);
+        gameRegistry.restore(game);
+        subscribe(SUBSCRIBE_RESYNC, gameStateResponse);
+
+        final StompHeaders headers = new StompHeaders();
+        headers.setDestination(ENDPOINT_REJOIN);
+        headers.set("gameId", "7");
+        headers.set("playerId", "2");
+        stompSession.send(headers, "player 2");
+        stompSession.send(headers, "player 2");
+
+        final Player player = playerResponse.getRespoonse();
+        assertNotNull(player);
+        assertEquals(2, player.getId());
+        assertEquals(7, player.getGameId());
+        assertNotNull(gameStateResponse.getRespoonse());
+        assertNull(playerResponse.getRespoonse());
+        assertSame(game, gameRegistry.getBySession(game.getPlayerTwoSessionId()));
+    }
+
+    @Test
+    public void testStartEndpoint_botOpponent() {
+        final StompHeaders headers = new StompHeaders();
+        headers.setDestination(ENDPOINT_START);
+        headers.set("opponent", "bot");
+        stompSession.send(headers, "player 1");
+
+        final Player player = playerResponse.getRespoonse();
+        assertNotNull(player);
+        assertEquals(1, player.getId());
+        subscribe(SUBSCRIBE_STATE + player.getGameId(), gameStateResponse);
+        subscribe(SUBSCRIBE_MOVES + player.getGameId(), moveEventResponse);
+        stompSession.send(ENDPOINT_READY, "");
+        final GameState gameState = gameStateResponse.getRespoonse();
+        assertNotNull(gameState);
+        assertEquals(1, gameState.getPlayerToMove().getId());
+
+        stompSession.send(ENDPOINT_MOVE, 1);
+
+        final MoveEvent playerMove = moveEventResponse.getRespoonse();
+        assertNotNull(playerMove);
+        assertEquals(1, playerMove.getPlayerId());
+        final MoveEvent botMove = moveEventResponse.getRespoonse();
+        assertNotNull(botMove);
+        assertEquals(2, botMove.getPlayerId());
+        assertEquals(2, botMove.getSequence());
+    }
+
+    @Test
+    public void testMoveEndpoint_outOfTurnIgnored() {
+        final StompHeaders headers = new StompHeaders();
+        headers.setDestination(ENDPOINT_START);
+        headers.set("opponent", "bot");
+        stompSession.send(headers, "player 1");
+        final Player player = playerResponse.getRespoonse();
+        subscribe(SUBSCRIBE_STATE + player.getGameId(), gameStateResponse);
+        subscribe(SUBSCRIBE_MOVES + player.getGameId(), moveEventResponse);
+        stompSession.send(ENDPOINT_READY, "");
+        assertNotNull(gameStateResponse.getRespoonse());
+
+        stompSession.send(ENDPOINT_MOVE, 1);
+        stompSession.send(ENDPOINT_MOVE, 1);
+
+        assertEquals(1, moveEventResponse.getRespoonse().getPlayerId());
+        assertEquals(2, moveEventResponse.getRespoonse().getPlayerId());
+        assertNull(moveEventResponse.getRespoonse());
     }
 
     @Test
@@ -123,8 +275,8 @@ public class GameControllerIntegrationTest {
         testStartEndpoint();
         stompSession.send(ENDPOINT_MOVE, 0);
 
-        final GameState gameStateAfter = gameStateResponse.getRespoonse();
-        assertNull(gameStateAfter);
+        final MoveEvent moveEvent = moveEventResponse.getRespoonse();
+        assertNull(moveEvent);
 
         final IllegalMove illegalMove = illegalMoveResponse.getRespoonse();
         assertNotNull(illegalMove);
@@ -140,8 +292,8 @@ public class GameControllerIntegrationTest {
 
         stompSession.send(ENDPOINT_MOVE, 2);
 
-        final GameState gameStateAfter = gameStateResponse.getRespoonse();
-        assertNull(gameStateAfter);
+        final MoveEvent moveEvent = moveEventResponse.getRespoonse();
+        assertNull(moveEvent);
 
         final IllegalMove illegalMove = illegalMoveResponse.getRespoonse();
         assertNotNull(illegalMove);
@@ -156,10 +308,23 @@ public class GameControllerIntegrationTest {
 
         stompSession.send(ENDPOINT_MOVE, 1);
 
-        final GameState gameStateAfter = gameStateResponse.getRespoonse();
-        assertNotNull(gameStateAfter);
-        assertEquals(GameStatus.OVER_WON, gameStateAfter.getStatus());
-        assertEquals(1, gameStateAfter.getPlayerToMove().getId());
+        final MoveEvent moveEvent = moveEventResponse.getRespoonse();
+        assertNotNull(moveEvent);
+        assertEquals(GameStatus.OVER_WON, moveEvent.getStatus());
+        assertEquals(1, moveEvent.getPlayerToMove().getId());
+    }
+
+    @Test
+    public void testMoveEndpoint_afterGameWon() throws Exception {
+        testMoveEndpoint_gameWon();
+        final int moveCount = gameStateBefore.getMoveCount();
+
+        stompSession.send(ENDPOINT_MOVE, 2);
+
+        assertNull(moveEventResponse.getRespoonse());
+        assertNull(illegalMoveResponse.getRespoonse());
+        assertEquals(moveCount, gameStateBefore.getMoveCount());
+        assertEquals(GameStatus.OVER_WON, gameStateBefore.getStatus());
     }
 
 }
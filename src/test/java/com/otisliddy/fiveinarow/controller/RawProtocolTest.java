@@ -0,0 +1,95 @@
+package com.otisliddy.fiveinarow.controller;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.otisliddy.fiveinarow.exception.IllegalMove;
+import com.otisliddy.fiveinarow.game.GameState;
+import com.otisliddy.fiveinarow.game.GameStateCodec;
+import com.otisliddy.fiveinarow.game.GameStatus;
+import com.otisliddy.fiveinarow.game.MoveEvent;
+import com.otisliddy.fiveinarow.game.Player;
+
+public class RawProtocolTest {
+
+    @Test
+    public void started() {
+        final ByteBuffer frame = ByteBuffer.wrap(RawProtocol.started(new Player("player", 2, 1234567890123L)));
+
+        assertEquals(RawProtocol.STARTED, frame.get());
+        assertEquals(2, frame.get());
+        assertEquals(1234567890123L, frame.getLong());
+        assertFalse(frame.hasRemaining());
+    }
+
+    @Test
+    public void stateIsPrefixedCodecEncoding() {
+        final GameState gameState = new GameState(6, 9, 5);
+        gameState.setPlayerToMove(new Player("player", 1, 3));
+
+        final byte[] frame = RawProtocol.state(gameState);
+
+        assertEquals(RawProtocol.STATE, frame[0]);
+        assertArrayEquals(GameStateCodec.encode(gameState), Arrays.copyOfRange(frame, 1, frame.length));
+    }
+
+    @Test
+    public void moved() {
+        final ByteBuffer frame = ByteBuffer.wrap(RawProtocol.moved(new MoveEvent(7, 4, 6, 1, GameStatus.IN_PROGRESS, new Player("two", 2))));
+
+        assertEquals(RawProtocol.MOVED_BYTES, frame.remaining());
+        assertEquals(RawProtocol.MOVED, frame.get());
+        assertEquals(7, frame.getInt());
+        assertEquals(4, frame.get());
+        assertEquals(6, frame.get());
+        assertEquals(1, frame.get());
+        assertEquals(GameStatus.IN_PROGRESS.ordinal(), frame.get());
+        assertEquals(2, frame.get());
+    }
+
+    @Test
+    public void movedWithoutPlayerToMove() {
+        final byte[] frame = RawProtocol.moved(new MoveEvent(9, 1, 1, 2, GameStatus.OVER_DRAWN, null));
+
+        assertEquals(0, frame[RawProtocol.MOVED_BYTES - 1]);
+    }
+
+    @Test
+    public void illegalMove() {
+        final ByteBuffer frame = ByteBuffer.wrap(RawProtocol.illegalMove(new IllegalMove("Column full", 1)));
+
+        assertEquals(RawProtocol.ILLEGAL_MOVE, frame.get());
+        assertEquals(1, frame.get());
+        assertEquals("Column full", StandardCharsets.UTF_8.decode(frame).toString());
+    }
+
+    @Test
+    public void parseStart() {
+        final ByteBuffer frame = start(1, 7, 8, 4, "player é");
+
+        assertTrue(RawProtocol.startAgainstBot(frame));
+        assertEquals("7x8x4", RawProtocol.startVariant(frame));
+        assertEquals("player é", RawProtocol.startName(frame));
+        assertEquals(0, frame.position());
+    }
+
+    @Test
+    public void parseStartWithDefaultVariant() {
+        final ByteBuffer frame = start(0, 0, 0, 0, "");
+
+        assertFalse(RawProtocol.startAgainstBot(frame));
+        assertNull(RawProtocol.startVariant(frame));
+        assertEquals("", RawProtocol.startName(frame));
+    }
+
+    private static ByteBuffer start(int bot, int numRows, int numColumns, int inARow, String name) {
+        final byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.wrap(ByteBuffer.allocate(5 + nameBytes.length).put(RawProtocol.START).put((byte) bot).put((byte) numRows)
+                .put((byte) numColumns).put((byte) inARow).put(nameBytes).array());
+    }
+}
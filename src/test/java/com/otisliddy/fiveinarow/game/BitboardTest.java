@@ -0,0 +1,135 @@
+package com.otisliddy.fiveinarow.game;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class BitboardTest {
+
+    private Bitboard board = new Bitboard(6, 9);
+
+    @Test
+    public void dropStacksDiscs() {
+        assertEquals(0, board.drop(2, 0));
+        assertEquals(1, board.drop(2, 1));
+
+        assertEquals(2, board.getHeight(2));
+        assertEquals(0, board.get(0, 2));
+        assertEquals(1, board.get(1, 2));
+        assertEquals(-1, board.get(2, 2));
+    }
+
+    @Test
+    public void undropRemovesTopDisc() {
+        board.drop(4, 0);
+        board.drop(4, 1);
+
+        board.undrop(4);
+
+        assertEquals(1, board.getHeight(4));
+        assertEquals(-1, board.get(1, 4));
+        assertEquals(0, board.get(0, 4));
+    }
+
+    @Test
+    public void loadAndCopyInto() {
+        board = new Bitboard(2, 3);
+        int[][] grid = { { 1, 2, 0 }, { 2, 0, 0 } };
+
+        board.load(grid);
+
+        int[][] copy = new int[2][3];
+        board.copyInto(copy);
+        assertArrayEquals(grid, copy);
+        assertEquals(2, board.getHeight(0));
+        assertEquals(1, board.getHeight(1));
+        assertEquals(0, board.getHeight(2));
+    }
+
+    @Test
+    public void verticalLine() {
+        for (int i = 0; i < 4; i++) {
+            board.drop(3, 0);
+        }
+        assertFalse(board.hasLine(0, 5));
+
+        board.drop(3, 0);
+        assertTrue(board.hasLine(0, 5));
+        assertFalse(board.hasLine(1, 5));
+    }
+
+    @Test
+    public void horizontalLine() {
+        for (int column = 4; column < 9; column++) {
+            board.drop(column, 1);
+        }
+        assertTrue(board.hasLine(1, 5));
+        assertFalse(board.hasLine(1, 6));
+    }
+
+    @Test
+    public void diagonalLines() {
+        int[][] up = new int[6][9];
+        int[][] down = new int[6][9];
+        for (int i = 0; i < 5; i++) {
+            up[i][i + 2] = 1;
+            down[i][8 - i] = 2;
+        }
+
+        board.load(up);
+        assertTrue(board.hasLine(0, 5));
+
+        board.load(down);
+        assertTrue(board.hasLine(1, 5));
+    }
+
+    @Test
+    public void noLineWrapsBetweenColumns() {
+        board = new Bitboard(3, 3);
+        int[][] grid = { { 0, 1, 0 }, { 0, 0, 0 }, { 1, 0, 0 } };
+
+        board.load(grid);
+
+        assertFalse(board.hasLine(0, 2));
+    }
+
+    @Test
+    public void largeBoardSpanningManyWords() {
+        board = new Bitboard(20, 30);
+        for (int column = 10; column < 17; column++) {
+            for (int row = 0; row < 8; row++) {
+                board.drop(column, row == 7 ? 0 : 1);
+            }
+        }
+
+        assertTrue(board.hasLine(0, 7));
+        assertFalse(board.hasLine(0, 8));
+        assertTrue(board.hasLine(1, 7));
+    }
+
+    @Test
+    public void canonicalKeyIsSharedByMirrorImages() {
+        board = new Bitboard(4, 5);
+        board.drop(0, 0);
+        board.drop(1, 1);
+        board.drop(1, 0);
+        final Bitboard mirror = new Bitboard(4, 5);
+        mirror.drop(4, 0);
+        mirror.drop(3, 1);
+        mirror.drop(3, 0);
+        final Bitboard other = new Bitboard(4, 5);
+        other.drop(0, 0);
+        other.drop(1, 0);
+        other.drop(1, 1);
+
+        assertEquals(board.canonicalKey(), mirror.canonicalKey());
+        assertNotEquals(board.canonicalKey(), other.canonicalKey());
+        assertNotEquals(0, new Bitboard(4, 5).canonicalKey());
+    }
+
+    @Test
+    public void canonicalKeyOnlyForBoardsFittingOneWord() {
+        assertTrue(Bitboard.hasCanonicalKey(7, 8));
+        assertFalse(Bitboard.hasCanonicalKey(6, 10));
+    }
+}
@@ -0,0 +1,69 @@
+package com.otisliddy.fiveinarow.game;
+
+import static org.junit.Assert.*;
+
+import java.util.function.Function;
+
+import org.junit.Test;
+
+public class EncodedStateCacheTest {
+
+    private static final Function<GameState, byte[]> BINARY = GameStateCodec::encode;
+    private static final Function<GameState, byte[]> MOVE_COUNT = gameState -> new byte[] { (byte) gameState.getMoveCount() };
+
+    private final GameState gameState = new GameState(6, 9, 5);
+    private final EncodedStateCache cache = new EncodedStateCache(gameState);
+
+    @Test
+    public void encodesEachVersionOnce() {
+        final byte[] first = cache.get(BINARY);
+        final byte[] second = cache.get(BINARY);
+
+        assertSame(first, second);
+        assertEquals(1, cache.getEncodeCount());
+    }
+
+    @Test
+    public void moveInvalidates() throws Exception {
+        final byte[] before = cache.get(BINARY);
+
+        gameState.addDisc(3, 1);
+        final byte[] after = cache.get(BINARY);
+
+        assertNotSame(before, after);
+        assertArrayEquals(GameStateCodec.encode(gameState), after);
+        assertEquals(2, cache.getEncodeCount());
+    }
+
+    @Test
+    public void playerToMoveAndStatusInvalidate() {
+        cache.get(BINARY);
+
+        gameState.setPlayerToMove(new Player("player", 2, 1));
+        assertEquals(new Player("player", 2, 1), GameStateCodec.decode(cache.get(BINARY)).getPlayerToMove());
+        gameState.setStatus(GameStatus.OVER_DRAWN);
+        assertEquals(GameStatus.OVER_DRAWN, GameStateCodec.decode(cache.get(BINARY)).getStatus());
+
+        assertEquals(3, cache.getEncodeCount());
+    }
+
+    @Test
+    public void encodingsAreCachedSeparately() throws Exception {
+        cache.get(BINARY);
+        cache.get(MOVE_COUNT);
+        cache.get(BINARY);
+        gameState.addDisc(1, 1);
+
+        assertEquals(1, cache.get(MOVE_COUNT)[0]);
+        assertEquals(1, cache.get(MOVE_COUNT)[0]);
+        assertEquals(3, cache.getEncodeCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void limitsNumberOfEncodings() {
+        for (int i = 0; i < 5; i++) {
+            final int size = i;
+            cache.get(gameState -> new byte[size]);
+        }
+    }
+}
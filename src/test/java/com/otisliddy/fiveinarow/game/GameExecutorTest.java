@@ -0,0 +1,56 @@
+package com.otisliddy.fiveinarow.game;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class GameExecutorTest {
+
+    private final GameExecutor executor = new GameExecutor(4);
+
+    @After
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+    }
+
+    @Test
+    public void tasksForOneGameRunInOrderOnOneThread() throws InterruptedException {
+        final List<Integer> order = new ArrayList<>();
+        final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        final CountDownLatch done = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            final int task = i;
+            executor.execute(42, () -> {
+                order.add(task);
+                threads.add(Thread.currentThread());
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, threads.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+    }
+
+    @Test
+    public void gamesAreSpreadOverAllWorkers() {
+        final Set<Integer> workers = ConcurrentHashMap.newKeySet();
+        for (long gameId = 1; gameId <= 100; gameId++) {
+            final int worker = executor.worker(gameId);
+            assertEquals(worker, executor.worker(gameId));
+            workers.add(worker);
+        }
+
+        assertEquals(4, workers.size());
+    }
+}
@@ -0,0 +1,156 @@
+package com.otisliddy.fiveinarow.game;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class GameRegistryTest {
+
+    private final GameRegistry registry = new GameRegistry();
+
+    @Test
+    public void createRegistersGameAndSession() {
+        final Game game = registry.create(Variant.defaultVariant(), "player 1", "session-1");
+
+        assertSame(game, registry.get(game.getId()));
+        assertSame(game, registry.getBySession("session-1"));
+        assertEquals(new Player("player 1", 1, game.getId()), game.getPlayerOne());
+        assertEquals(game.getPlayerOne(), game.getState().getPlayerToMove());
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void createAssignsUniqueIds() {
+        final Game gameOne = registry.create(Variant.defaultVariant(), "player 1", "session-1");
+        final Game gameTwo = registry.create(Variant.defaultVariant(), "player 2", "session-2");
+
+        assertNotEquals(gameOne.getId(), gameTwo.getId());
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    public void joinRoutesSecondSession() {
+        final Game game = registry.create(Variant.defaultVariant(), "player 1", "session-1");
+
+        final Player player = registry.join(game, "player 2", "session-2");
+
+        assertEquals(new Player("player 2", 2, game.getId()), player);
+        assertSame(game, registry.getBySession("session-2"));
+        game.switchPlayerToMove();
+        assertEquals(player, game.getState().getPlayerToMove());
+    }
+
+    @Test
+    public void removeForgetsGameAndSessions() {
+        final Game game = registry.create(Variant.defaultVariant(), "player 1", "session-1");
+        registry.join(game, "player 2", "session-2");
+
+        registry.remove(game);
+
+        assertNull(registry.get(game.getId()));
+        assertNull(registry.getBySession("session-1"));
+        assertNull(registry.getBySession("session-2"));
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void joinRefusesRemovedGame() {
+        final Game game = registry.create(Variant.defaultVariant(), "player 1", "session-1");
+        registry.remove(game);
+
+        assertNull(registry.join(game, "player 2", "session-2"));
+        assertNull(registry.getBySession("session-2"));
+    }
+
+    @Test
+    public void joinRacingRemoveLeavesNoSession() throws InterruptedException {
+        for (int i = 0; i < 1000; i++) {
+            final Game game = registry.create(Variant.defaultVariant(), "player 1", "session-1-" + i);
+            final String sessionId = "session-2-" + i;
+            final Thread remover = new Thread(() -> registry.remove(game));
+            remover.start();
+            registry.join(game, "player 2", sessionId);
+            remover.join();
+
+            assertNull(registry.getBySession(sessionId));
+        }
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void restoredGameIsRoutedAfterRejoin() {
+        final Game game = new Game(41, Variant.defaultVariant().newGameState(), "player 1", null);
+        game.joinPlayerTwo("player 2", null);
+
+        registry.restore(game);
+        registry.rejoin(game, 2, "player 2", "session-2");
+
+        assertSame(game, registry.get(41));
+        assertSame(game, registry.getBySession("session-2"));
+        assertEquals(42, registry.create(Variant.defaultVariant(), "player 3", "session-3").getId());
+    }
+
+    @Test
+    public void restoredGameKeepsFinished() {
+        final Game game = new Game(41, Variant.defaultVariant().newGameState(), "player 1", null);
+        game.getState().setStatus(GameStatus.OVER_DRAWN);
+
+        registry.restore(game);
+
+        assertTrue(game.isFinished());
+    }
+
+    @Test
+    public void idleGameExpires() {
+        final long[] now = { 0 };
+        final GameRegistry expiringRegistry = new GameRegistry(10_000, 2_000, () -> now[0]);
+        final Game idle = expiringRegistry.create(Variant.defaultVariant(), "player 1", "session-1");
+        final Game active = expiringRegistry.create(Variant.defaultVariant(), "player 2", "session-2");
+        final List<Game> expired = new ArrayList<>();
+
+        now[0] = 6_000;
+        expiringRegistry.touch(active);
+        now[0] = 10_000;
+        expiringRegistry.expire(expired::add);
+
+        assertEquals(List.of(idle), expired);
+        now[0] = 16_000;
+        expiringRegistry.expire(expired::add);
+        assertEquals(List.of(idle, active), expired);
+    }
+
+    @Test
+    public void finishedGameExpiresSooner() {
+        final long[] now = { 0 };
+        final GameRegistry expiringRegistry = new GameRegistry(10_000, 2_000, () -> now[0]);
+        final Game game = expiringRegistry.create(Variant.defaultVariant(), "player 1", "session-1");
+        game.getState().setStatus(GameStatus.OVER_WON);
+        game.markFinished();
+        final List<Game> expired = new ArrayList<>();
+
+        now[0] = 2_000;
+        expiringRegistry.expire(expired::add);
+
+        assertEquals(List.of(game), expired);
+    }
+
+    @Test
+    public void removedGameIsDroppedWithoutExpiring() {
+        final long[] now = { 0 };
+        final GameRegistry expiringRegistry = new GameRegistry(10_000, 2_000, () -> now[0]);
+        final Game game = expiringRegistry.create(Variant.defaultVariant(), "player 1", "session-1");
+        assertEquals(game.estimatedBytes(), expiringRegistry.getEstimatedBytes());
+        expiringRegistry.remove(game);
+        final List<Game> expired = new ArrayList<>();
+
+        now[0] = 10_000;
+        expiringRegistry.expire(expired::add);
+
+        assertTrue(expired.isEmpty());
+        assertEquals(0, expiringRegistry.getTrackedForExpiry());
+        assertEquals(0, expiringRegistry.getEstimatedBytes());
+    }
+}
@@ -0,0 +1,66 @@
+package com.otisliddy.fiveinarow.game;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class GameStateCodecTest {
+
+    @Test
+    public void roundTrip() {
+        final GameState gameState = new GameState(3, 5, 4);
+        int[][] grid = { { 1, 2, 1, 2, 0 }, { 2, 1, 0, 0, 0 }, { 1, 0, 0, 0, 0 } };
+        gameState.setGrid(grid);
+        gameState.setPlayerToMove(new Player("player \u00e9", 2, 17));
+
+        final GameState decoded = GameStateCodec.decode(GameStateCodec.encode(gameState));
+
+        assertArrayEquals(grid, decoded.getGrid());
+        assertEquals(GameStatus.IN_PROGRESS, decoded.getStatus());
+        assertEquals(4, decoded.getInARow());
+        assertEquals(7, decoded.getMoveCount());
+        assertEquals(new Player("player \u00e9", 2, 17), decoded.getPlayerToMove());
+    }
+
+    @Test
+    public void roundTripWithoutPlayer() {
+        final GameState gameState = new GameState(2, 2, 2);
+        gameState.setStatus(GameStatus.OVER_DRAWN);
+
+        final GameState decoded = GameStateCodec.decode(GameStateCodec.encode(gameState));
+
+        assertNull(decoded.getPlayerToMove());
+        assertEquals(GameStatus.OVER_DRAWN, decoded.getStatus());
+        assertArrayEquals(new int[2][2], decoded.getGrid());
+    }
+
+    @Test
+    public void twoBitsPerCell() {
+        final GameState gameState = new GameState(6, 9, 5);
+
+        assertEquals(13 + 14, GameStateCodec.encode(gameState).length);
+    }
+
+    @Test
+    public void smallerThanJson() throws Exception {
+        final GameState gameState = new GameState(6, 9, 5);
+        gameState.setPlayerToMove(new Player("player 1", 1, 1));
+        gameState.addDisc(5, 1);
+
+        final int binaryBytes = GameStateCodec.encode(gameState).length;
+        final int jsonBytes = new ObjectMapper().writeValueAsBytes(gameState).length;
+
+        assertTrue(binaryBytes * 4 < jsonBytes);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedEncoding() {
+        final byte[] bytes = GameStateCodec.encode(new GameState(6, 9, 5));
+
+        GameStateCodec.decode(Arrays.copyOf(bytes, bytes.length - 1));
+    }
+}
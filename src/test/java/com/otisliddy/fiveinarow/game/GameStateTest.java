@@ -20,9 +20,9 @@ public class GameStateTest {
         int[][] initialGrid = { { 0, 1, 1 }, { 0, 0, 2 }, { 0, 0, 0 } };
         game.setGrid(initialGrid);
 
-        addDisc(1, 1);
         addDisc(2, 1);
         addDisc(3, 2);
+        addDisc(1, 1);
 
         int[][] expected = { { 1, 1, 1 }, { 0, 1, 2 }, { 0, 0, 2 } };
         assertArrayEquals(expected, game.getGrid());
@@ -63,6 +63,18 @@ public class GameStateTest {
         game.addDisc(2, 2);
     }
 
+    @Test
+    public void addDiscAfterWin() throws IllegalMoveException {
+        int[][] initialGrid = { { 1, 0, 0 }, { 1, 2, 0 }, { 1, 2, 0 } };
+        game.setGrid(initialGrid);
+        game.setStatus(GameStatus.OVER_WON);
+
+        expectedException.expect(IllegalMoveException.class);
+        expectedException.expectMessage("No more discs may be added because the game is over");
+
+        game.addDisc(3, 2);
+    }
+
     @Test
     public void addDiscToIllegalColumn_tooLow() throws IllegalMoveException {
         expectedException.expect(IllegalMoveException.class);
@@ -79,6 +91,34 @@ public class GameStateTest {
         game.addDisc(4, 1);
     }
 
+    @Test
+    public void tryAddDiscResultCodes() {
+        game = new GameState(2, 2, 2);
+
+        assertEquals(MoveResult.COLUMN_OUT_OF_RANGE, game.tryAddDisc(0, 1));
+        assertEquals(MoveResult.COLUMN_OUT_OF_RANGE, game.tryAddDisc(3, 1));
+        assertEquals(MoveResult.ACCEPTED, game.tryAddDisc(1, 1));
+        assertEquals(MoveResult.ACCEPTED, game.tryAddDisc(1, 2));
+        assertEquals(MoveResult.COLUMN_FULL, game.tryAddDisc(1, 1));
+        assertEquals(2, game.getMoveCount());
+        assertEquals(MoveResult.WON, game.tryAddDisc(2, 2));
+        assertEquals(GameStatus.OVER_WON, game.getStatus());
+        assertEquals(MoveResult.GAME_OVER, game.tryAddDisc(2, 1));
+        assertEquals(3, game.getMoveCount());
+    }
+
+    @Test
+    public void tryAddDiscDrawn() {
+        game = new GameState(2, 3, 3);
+        int[][] initialGrid = { { 1, 2, 1 }, { 2, 1, 0 } };
+        game.setGrid(initialGrid);
+
+        assertEquals(5, game.getMoveCount());
+        assertEquals(MoveResult.DRAWN, game.tryAddDisc(3, 2));
+        assertEquals(GameStatus.OVER_DRAWN, game.getStatus());
+        assertEquals(MoveResult.GAME_OVER, game.tryAddDisc(3, 1));
+    }
+
     @Test
     public void winnerTopRight() {
         int[][] initialGrid = { { 0, 2, 2 }, { 0, 1, 2 }, { 0, 0, 1 } };
@@ -219,6 +259,35 @@ public class GameStateTest {
         assertEquals(GameStatus.IN_PROGRESS, game.getStatus());
     }
 
+    @Test
+    public void winnerMiddleOfLine() {
+        game = new GameState(3, 5, 5);
+        int[][] initialGrid = { { 1, 1, 0, 1, 1 }, { 2, 2, 0, 2, 2 }, { 0, 0, 0, 0, 0 } };
+        game.setGrid(initialGrid);
+
+        addDisc(3, 1);
+
+        assertEquals(GameStatus.OVER_WON, game.getStatus());
+    }
+
+    @Test
+    public void winnerMiddleOfDiagonalLargeGrid() {
+        game = new GameState(40, 40, 4);
+        for (int column = 1; column <= 4; column++) {
+            for (int height = 1; height < column; height++) {
+                addDisc(column, 2);
+            }
+        }
+        addDisc(1, 1);
+        addDisc(2, 1);
+        addDisc(4, 1);
+        assertEquals(GameStatus.IN_PROGRESS, game.getStatus());
+
+        addDisc(3, 1);
+
+        assertEquals(GameStatus.OVER_WON, game.getStatus());
+    }
+
     @Test
     public void drawLeftColumn() {
         game = new GameState(2, 3, 3);
@@ -321,6 +390,23 @@ public class GameStateTest {
         assertEquals(GameStatus.OVER_WON, game.getStatus());
     }
 
+    @Test
+    public void resetStartsGameAgain() {
+        game.setPlayerToMove(new Player("player", 1, 3));
+        addDisc(1, 1);
+        addDisc(2, 1);
+        addDisc(3, 1);
+        assertEquals(GameStatus.OVER_WON, game.getStatus());
+
+        game.reset();
+
+        assertEquals(GameStatus.IN_PROGRESS, game.getStatus());
+        assertEquals(0, game.getMoveCount());
+        assertNull(game.getPlayerToMove());
+        assertArrayEquals(new int[3][3], game.getGrid());
+        assertEquals(0, game.board().getHeight(0));
+    }
+
     private void addDisc(int column, int playerId) {
         try {
             game.addDisc(column, playerId);
@@ -330,4 +416,19 @@ public class GameStateTest {
         }
     }
 
+    @Test
+    public void undoDiscRestoresGameInProgress() {
+        game = new GameState(2, 2, 2);
+        addDisc(1, 1);
+        addDisc(1, 1);
+        assertEquals(GameStatus.OVER_WON, game.getStatus());
+
+        game.undoDisc(1);
+
+        assertEquals(GameStatus.IN_PROGRESS, game.getStatus());
+        assertEquals(1, game.getMoveCount());
+        assertEquals(1, game.getHeight(1));
+        assertEquals(0, game.getGrid()[1][0]);
+        assertEquals(1, game.getGrid()[0][0]);
+    }
 }
@@ -0,0 +1,116 @@
+package com.otisliddy.fiveinarow.game;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class GameTest {
+
+    private final Game game = new Game(7, new GameState(6, 9, 5), "player 1", "session-1");
+
+    @Test
+    public void startsOnceBothPlayersReady() {
+        game.markReady("session-1");
+        assertFalse(game.claimStart(false));
+
+        game.joinPlayerTwo("player 2", "session-2");
+        assertFalse(game.claimStart(false));
+
+        game.markReady("session-2");
+        assertTrue(game.claimStart(false));
+        assertFalse(game.claimStart(false));
+        assertFalse(game.claimStart(true));
+    }
+
+    @Test
+    public void startsWhenForced() {
+        game.joinPlayerTwo("player 2", "session-2");
+
+        assertTrue(game.claimStart(true));
+        assertFalse(game.claimStart(true));
+    }
+
+    @Test
+    public void sameSessionForBothPlayers() {
+        game.markReady("session-1");
+        game.joinPlayerTwo("player 2", "session-1");
+
+        assertTrue(game.claimStart(false));
+    }
+
+    @Test
+    public void onlyOneSecondPlayerJoins() {
+        assertNotNull(game.joinPlayerTwo("player 2", "session-2"));
+
+        assertNull(game.joinPlayerTwo("player 3", "session-3"));
+        assertEquals("session-2", game.getPlayerTwoSessionId());
+    }
+
+    @Test
+    public void removedGameCannotBeJoined() {
+        game.markRemoved();
+
+        assertTrue(game.isRemoved());
+        assertNull(game.joinPlayerTwo("player 2", "session-2"));
+        assertNull(game.getPlayerTwo());
+    }
+
+    @Test
+    public void switchPlayerToMove() {
+        final Player playerTwo = game.joinPlayerTwo("player 2", "session-2");
+        assertEquals(game.getPlayerOne(), game.getState().getPlayerToMove());
+
+        game.switchPlayerToMove();
+        assertEquals(playerTwo, game.getState().getPlayerToMove());
+
+        game.switchPlayerToMove();
+        assertEquals(game.getPlayerOne(), game.getState().getPlayerToMove());
+    }
+
+    @Test
+    public void rejoinReplacesPlayerToMove() {
+        game.joinPlayerTwo("player 2", "session-2");
+
+        final Player player = game.rejoin(1, "player one", "session-3");
+
+        assertEquals("session-3", game.getPlayerOneSessionId());
+        assertSame(player, game.getPlayerOne());
+        assertSame(player, game.getState().getPlayerToMove());
+    }
+
+    @Test
+    public void recordMoveKeepsHistoryInOrder() {
+        for (int i = 0; i < 40; i++) {
+            game.recordMove(i % 9 + 1);
+        }
+
+        final byte[] moves = game.getMoves();
+        assertEquals(40, moves.length);
+        assertEquals(1, moves[0]);
+        assertEquals(4, moves[39]);
+    }
+
+    @Test
+    public void joinBotIsReadyToStartAndMovesSecond() {
+        final Player bot = game.joinBot("Bot");
+
+        assertEquals(2, bot.getId());
+        assertNull(game.getPlayerTwoSessionId());
+        assertFalse(game.isBotToMove());
+
+        game.markReady("session-1");
+        assertTrue(game.claimStart(false));
+        game.switchPlayerToMove();
+        assertTrue(game.isBotToMove());
+    }
+
+    @Test
+    public void recordsWhenPlayerTwoJoined() {
+        assertEquals(0, game.getPlayerTwoJoinedNanos());
+        final long before = System.nanoTime();
+
+        game.joinPlayerTwo("player 2", "session-2");
+
+        assertTrue(game.getPlayerTwoJoinedNanos() - before >= 0);
+    }
+}
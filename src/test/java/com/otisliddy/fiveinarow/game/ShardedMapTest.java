@@ -0,0 +1,64 @@
+package com.otisliddy.fiveinarow.game;
+
+import static org.junit.Assert.*;
+
+import java.util.BitSet;
+
+import org.junit.Test;
+
+public class ShardedMapTest {
+
+    private static final int NUM_SHARDS = 64;
+    private static final int NUM_BUCKETS = 1024;
+
+    private final ShardedMap<Long, Long> map = new ShardedMap<>(NUM_SHARDS);
+
+    @Test
+    public void spreadsSequentialIdsAcrossShards() {
+        final int[] counts = new int[NUM_SHARDS];
+        for (long id = 1; id <= NUM_SHARDS * 100; id++) {
+            counts[map.shardIndex(Long.hashCode(id))]++;
+        }
+
+        for (int count : counts) {
+            assertTrue(count > 50 && count < 150);
+        }
+    }
+
+    @Test
+    public void keysInOneShardUseAllBuckets() {
+        final BitSet buckets = new BitSet(NUM_BUCKETS);
+        int keys = 0;
+        for (long id = 1; keys < NUM_BUCKETS * 8; id++) {
+            final int hash = Long.hashCode(id);
+            if (map.shardIndex(hash) == 0) {
+                buckets.set((hash ^ (hash >>> 16)) & (NUM_BUCKETS - 1));
+                keys++;
+            }
+        }
+
+        assertTrue(buckets.cardinality() > NUM_BUCKETS * 9 / 10);
+    }
+
+    @Test
+    public void roundsShardsUpToPowerOfTwo() {
+        final ShardedMap<Long, Long> oddMap = new ShardedMap<>(5);
+
+        for (long id = 0; id < 1000; id++) {
+            assertTrue(oddMap.shardIndex(Long.hashCode(id)) < 8);
+        }
+    }
+
+    @Test
+    public void putGetRemove() {
+        for (long id = 0; id < 1000; id++) {
+            map.put(id, id * 2);
+        }
+
+        assertEquals(1000, map.size());
+        assertEquals(Long.valueOf(84), map.get(42L));
+        assertTrue(map.remove(42L, 84L));
+        assertNull(map.get(42L));
+        assertEquals(999, map.size());
+    }
+}
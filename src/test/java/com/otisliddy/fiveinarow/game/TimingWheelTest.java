@@ -0,0 +1,85 @@
+package com.otisliddy.fiveinarow.game;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class TimingWheelTest {
+
+    private final Map<String, Long> deadlines = new HashMap<>();
+    private final TimingWheel<String> wheel = new TimingWheel<>(8, 100, deadlines::get, 0);
+    private final List<String> expired = new ArrayList<>();
+
+    @Test
+    public void expiresAtDeadline() {
+        schedule("a", 350);
+
+        wheel.advance(299, expired::add);
+        assertTrue(expired.isEmpty());
+        wheel.advance(350, expired::add);
+
+        assertEquals(List.of("a"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void pushedBackDeadlineIsRebucketed() {
+        schedule("a", 250);
+        wheel.advance(100, expired::add);
+        deadlines.put("a", 650L);
+
+        wheel.advance(500, expired::add);
+        assertTrue(expired.isEmpty());
+        assertEquals(1, wheel.size());
+        wheel.advance(650, expired::add);
+
+        assertEquals(List.of("a"), expired);
+    }
+
+    @Test
+    public void deadlineInLaterTurnWaitsForIt() {
+        schedule("a", 1050);
+
+        wheel.advance(800, expired::add);
+        wheel.advance(999, expired::add);
+        assertTrue(expired.isEmpty());
+        wheel.advance(1050, expired::add);
+
+        assertEquals(List.of("a"), expired);
+    }
+
+    @Test
+    public void longPauseVisitsEveryBucket() {
+        schedule("a", 150);
+        schedule("b", 750);
+        schedule("c", 5000);
+        wheel.advance(10, expired::add);
+
+        wheel.advance(3000, expired::add);
+
+        assertEquals(Set.of("a", "b"), new HashSet<>(expired));
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    public void pastDeadlineExpiresOnNextAdvance() {
+        wheel.advance(500, expired::add);
+        schedule("a", 100);
+
+        wheel.advance(500, expired::add);
+
+        assertEquals(List.of("a"), expired);
+    }
+
+    private void schedule(String entry, long deadline) {
+        deadlines.put(entry, deadline);
+        wheel.schedule(entry);
+    }
+}
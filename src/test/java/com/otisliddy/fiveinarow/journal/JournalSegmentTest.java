@@ -0,0 +1,100 @@
+package com.otisliddy.fiveinarow.journal;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JournalSegmentTest {
+
+    private Path path;
+
+    @Before
+    public void setUp() throws IOException {
+        path = Files.createTempFile("journal", ".log");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Test
+    public void recordsAreReadInOrder() throws IOException {
+        final JournalSegment segment = new JournalSegment(0, path, 1024);
+        assertTrue(segment.append(JournalSegment.TYPE_CREATED, 7, 0, 42, 1));
+        assertTrue(segment.append(JournalSegment.TYPE_MOVE, 7, 1, 3, 1));
+        assertTrue(segment.append(JournalSegment.TYPE_MOVE, 7, 2, 4, 2));
+        segment.force();
+
+        final List<String> records = read();
+
+        assertEquals(3, records.size());
+        assertEquals("1 7 0 42 1", records.get(0));
+        assertEquals("3 7 1 3 1", records.get(1));
+        assertEquals("3 7 2 4 2", records.get(2));
+    }
+
+    @Test
+    public void appendFailsWhenSegmentIsFull() throws IOException {
+        final JournalSegment segment = new JournalSegment(0, path, 2 * JournalSegment.RECORD_SIZE);
+
+        assertTrue(segment.append(JournalSegment.TYPE_MOVE, 1, 1, 1, 1));
+        assertTrue(segment.append(JournalSegment.TYPE_MOVE, 1, 2, 1, 2));
+        assertFalse(segment.append(JournalSegment.TYPE_MOVE, 1, 3, 1, 1));
+        assertEquals(2, read().size());
+    }
+
+    @Test
+    public void readingSkipsTornRecord() throws IOException {
+        final JournalSegment segment = new JournalSegment(0, path, 1024);
+        segment.append(JournalSegment.TYPE_MOVE, 1, 1, 1, 1);
+        segment.append(JournalSegment.TYPE_MOVE, 1, 2, 1, 2);
+        segment.append(JournalSegment.TYPE_MOVE, 1, 3, 1, 1);
+        segment.force();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, 9), JournalSegment.RECORD_SIZE + 16);
+        }
+
+        final List<String> records = read();
+
+        assertEquals(2, records.size());
+        assertEquals("3 1 1 1 1", records.get(0));
+        assertEquals("3 1 3 1 1", records.get(1));
+    }
+
+    @Test
+    public void readingSkipsEmptySlotInMiddleOfSegment() throws IOException {
+        final JournalSegment segment = new JournalSegment(0, path, 1024);
+        segment.append(JournalSegment.TYPE_MOVE, 1, 1, 1, 1);
+        segment.append(JournalSegment.TYPE_MOVE, 2, 1, 4, 1);
+        segment.append(JournalSegment.TYPE_MOVE, 3, 1, 5, 1);
+        segment.force();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(JournalSegment.RECORD_SIZE), JournalSegment.RECORD_SIZE);
+        }
+
+        final List<String> records = read();
+
+        assertEquals(2, records.size());
+        assertEquals("3 1 1 1 1", records.get(0));
+        assertEquals("3 3 1 5 1", records.get(1));
+    }
+
+    private List<String> read() throws IOException {
+        final List<String> records = new ArrayList<>();
+        JournalSegment.read(path, (type, gameId, sequence, column, playerId) -> records.add(type + " " + gameId + " " + sequence + " " + column
+                + " " + playerId));
+        return records;
+    }
+}
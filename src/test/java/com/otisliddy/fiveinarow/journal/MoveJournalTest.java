@@ -0,0 +1,220 @@
+package com.otisliddy.fiveinarow.journal;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.otisliddy.fiveinarow.game.Game;
+import com.otisliddy.fiveinarow.game.GameExecutor;
+import com.otisliddy.fiveinarow.game.GameRegistry;
+import com.otisliddy.fiveinarow.game.GameState;
+import com.otisliddy.fiveinarow.game.GameStatus;
+import com.otisliddy.fiveinarow.game.Variant;
+
+public class MoveJournalTest {
+
+    private static final Variant VARIANT = new Variant(6, 9, 5);
+
+    private final GameExecutor gameExecutor = new GameExecutor(2);
+    private Path directory;
+    private GameRegistry gameRegistry;
+    private MoveJournal moveJournal;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal");
+        gameRegistry = new GameRegistry();
+        moveJournal = new MoveJournal(directory, 1 << 16, gameRegistry, gameExecutor);
+        moveJournal.open();
+    }
+
+    @After
+    public void tearDown() throws IOException, InterruptedException {
+        moveJournal.close();
+        gameExecutor.shutdown();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void gamesInProgressAreRecovered() throws IOException {
+        final Game game = startGame();
+        move(game, 1);
+        move(game, 2);
+        move(game, 1);
+
+        final GameRegistry recovered = reopen();
+
+        final Game recoveredGame = recovered.get(game.getId());
+        assertNotNull(recoveredGame);
+        assertArrayEquals(game.getState().getGrid(), recoveredGame.getState().getGrid());
+        assertEquals(3, recoveredGame.getState().getMoveCount());
+        assertArrayEquals(new byte[] { 1, 2, 1 }, recoveredGame.getMoves());
+        assertEquals(2, recoveredGame.getState().getPlayerToMove().getId());
+        assertNull(recoveredGame.getPlayerOneSessionId());
+        assertNull(recoveredGame.getPlayerTwoSessionId());
+    }
+
+    @Test
+    public void newGamesAreGivenIdsAboveRecoveredGames() throws IOException {
+        final Game game = startGame();
+
+        final GameRegistry recovered = reopen();
+
+        assertTrue(recovered.create(VARIANT, "Carol", "session-3").getId() > game.getId());
+    }
+
+    @Test
+    public void endedWonAndUnjoinedGamesAreNotRecovered() throws IOException {
+        final Game ended = startGame();
+        moveJournal.gameEnded(ended.getId());
+        final Game won = startGame();
+        for (int i = 0; i < 4; i++) {
+            move(won, 1);
+            move(won, 2);
+        }
+        move(won, 1);
+        assertEquals(GameStatus.OVER_WON, won.getState().getStatus());
+        final Game unjoined = gameRegistry.create(VARIANT, "Dave", "session-4");
+        moveJournal.gameCreated(unjoined.getId(), VARIANT);
+
+        final GameRegistry recovered = reopen();
+
+        assertEquals(0, recovered.size());
+    }
+
+    @Test
+    public void gameIsRecoveredWhenJoinIsJournaledBeforeCreate() throws IOException {
+        final Game game = gameRegistry.create(VARIANT, "Alice", "session-1");
+        gameRegistry.join(game, "Bob", "session-2");
+        moveJournal.playerJoined(game.getId(), VARIANT);
+        moveJournal.gameCreated(game.getId(), VARIANT);
+        move(game, 4);
+
+        final GameRegistry recovered = reopen();
+
+        assertEquals(1, recovered.get(game.getId()).getState().getMoveCount());
+    }
+
+    @Test
+    public void recordsAfterLostRecordAreRecovered() throws IOException {
+        final Game gameOne = startGame();
+        final Game gameTwo = startGame();
+        move(gameOne, 1);
+        move(gameTwo, 2);
+        move(gameOne, 3);
+        move(gameTwo, 4);
+        moveJournal.close();
+        // Lose the first move, as if a crash had interrupted its append after the later ones had been written.
+        try (FileChannel channel = FileChannel.open(journalFile(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(JournalSegment.RECORD_SIZE), 4 * JournalSegment.RECORD_SIZE);
+        }
+
+        final GameRegistry recovered = reopen();
+
+        assertArrayEquals(gameTwo.getState().getGrid(), recovered.get(gameTwo.getId()).getState().getGrid());
+        assertArrayEquals(new byte[] { 2, 4 }, recovered.get(gameTwo.getId()).getMoves());
+        assertEquals(0, recovered.get(gameOne.getId()).getState().getMoveCount());
+    }
+
+    @Test
+    public void journalRollsOverToNewFilesWhenFull() throws IOException {
+        moveJournal.close();
+        moveJournal = new MoveJournal(directory, 4 * JournalSegment.RECORD_SIZE, gameRegistry, gameExecutor);
+        moveJournal.open();
+        final Game game = startGame();
+        for (int column = 1; column <= 9; column++) {
+            move(game, column);
+        }
+
+        final GameRegistry recovered = reopen();
+
+        assertTrue(countFiles("journal-") > 2);
+        assertArrayEquals(game.getState().getGrid(), recovered.get(game.getId()).getState().getGrid());
+    }
+
+    @Test
+    public void snapshotReplacesOlderJournalFiles() throws IOException, InterruptedException {
+        final Game game = startGame();
+        move(game, 3);
+        move(game, 3);
+        moveJournal.snapshot();
+        move(game, 5);
+
+        assertEquals(1, countFiles("snapshot-"));
+        assertEquals(1, countFiles("journal-"));
+
+        final GameRegistry recovered = reopen();
+
+        final Game recoveredGame = recovered.get(game.getId());
+        assertArrayEquals(game.getState().getGrid(), recoveredGame.getState().getGrid());
+        assertEquals("Alice", recoveredGame.getPlayerOne().getName());
+        assertEquals("Bob", recoveredGame.getPlayerTwo().getName());
+        assertEquals(2, recoveredGame.getState().getPlayerToMove().getId());
+        assertArrayEquals(new byte[] { 3, 3, 5 }, recoveredGame.getMoves());
+    }
+
+    @Test
+    public void recoveredPlayerCanRejoin() throws IOException {
+        final Game game = startGame();
+        move(game, 1);
+
+        final GameRegistry recovered = reopen();
+        final Game recoveredGame = recovered.get(game.getId());
+        recovered.rejoin(recoveredGame, 2, "Bob", "session-5");
+
+        assertSame(recoveredGame, recovered.getBySession("session-5"));
+        assertEquals("Bob", recoveredGame.getState().getPlayerToMove().getName());
+    }
+
+    private Game startGame() {
+        final Game game = gameRegistry.create(VARIANT, "Alice", "session-1");
+        moveJournal.gameCreated(game.getId(), VARIANT);
+        gameRegistry.join(game, "Bob", "session-2");
+        moveJournal.playerJoined(game.getId(), VARIANT);
+        return game;
+    }
+
+    private void move(Game game, int column) {
+        final GameState gameState = game.getState();
+        final int playerId = gameState.getPlayerToMove().getId();
+        gameState.tryAddDisc(column, playerId);
+        moveJournal.moveMade(game.getId(), gameState.getMoveCount(), column, playerId);
+        game.recordMove(column);
+        if (gameState.getStatus() == GameStatus.IN_PROGRESS) {
+            game.switchPlayerToMove();
+        }
+    }
+
+    private GameRegistry reopen() throws IOException {
+        moveJournal.close();
+        final GameRegistry recovered = new GameRegistry();
+        moveJournal = new MoveJournal(directory, 1 << 16, recovered, gameExecutor);
+        moveJournal.open();
+        return recovered;
+    }
+
+    private Path journalFile() throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.filter(path -> path.getFileName().toString().startsWith("journal-")).findFirst().get();
+        }
+    }
+
+    private long countFiles(String prefix) throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.filter(path -> path.getFileName().toString().startsWith(prefix)).count();
+        }
+    }
+}
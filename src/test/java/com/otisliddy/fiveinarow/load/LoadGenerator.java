@@ -0,0 +1,232 @@
+package com.otisliddy.fiveinarow.load;
+
+import static java.util.Arrays.asList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+/**
+ * Drives a running server with many simulated players, to find how many moves per second a node can take before latency suffers.
+ * <p>Each {@link SimulatedPlayer} opens its own STOMP session and starts a game, and the server's lobby pairs the players up. Players whose
+ * turn it is are queued, and moves are taken from the queue at the target rate across all games. The time from sending each {@code /move}
+ * to receiving its {@code MoveEvent} on {@code /topic/moves} is recorded in an HDR histogram, and the 50th, 99th and 99.9th percentiles and
+ * the maximum are reported every few seconds and for the whole run. Players whose game is over connect again and start another.</p>
+ * <p>Not run as part of the tests. Start the server, then run with {@code key=value} arguments, all optional, e.g.:</p>
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.otisliddy.fiveinarow.load.LoadGenerator \
+ *     -Dexec.args="players=2000 rate=5000 seconds=60"
+ * </pre>
+ * <ul>
+ * <li>{@code url}: the server's SockJS endpoint, by default {@code ws://localhost:8080/5-in-a-row}.</li>
+ * <li>{@code players}: the number of player sessions, by default 1000.</li>
+ * <li>{@code rate}: the target number of moves per second over all games, by default 1000.</li>
+ * <li>{@code seconds}: how long to send moves for, by default 60.</li>
+ * <li>{@code variant}: the variant to play, e.g. {@code 6x9x5}, by default the server's.</li>
+ * <li>{@code script}: columns, indexed starting at 1, for each player to play in turn, e.g. {@code 5,4,6}. A full column is replaced by a
+ * random one. By default every move is random.</li>
+ * <li>{@code connections}: the number of sessions to connect at once, by default 100.</li>
+ * <li>{@code report}: the number of seconds between reports, by default 5.</li>
+ * <li>{@code metrics}: the URL of the server's Actuator metrics, e.g. {@code http://localhost:8080/actuator/metrics}, to also report the
+ * server's memory and threads with {@link ServerStats}. By default they are not reported.</li>
+ * <li>{@code pid}: the process ID of the server, if on this machine, to also report its resident set size.</li>
+ * </ul>
+ */
+public class LoadGenerator {
+
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final String url;
+    private final int numPlayers;
+    private final double movesPerSecond;
+    private final long seconds;
+    private final String variant;
+    private final int[] script;
+    private final long reportSeconds;
+    private final ServerStats serverStats;
+
+    private final WebSocketStompClient stompClient;
+    private final ExecutorService reconnectExecutor = Executors.newSingleThreadExecutor();
+    private final Semaphore connectPermits;
+    private final ConcurrentLinkedQueue<SimulatedPlayer> readyPlayers = new ConcurrentLinkedQueue<>();
+    private final Recorder latencies = new Recorder(MAX_LATENCY_NANOS, 3);
+    private final Histogram totalLatencies = new Histogram(MAX_LATENCY_NANOS, 3);
+    private final LongAdder sessions = new LongAdder();
+    private final LongAdder gamesStarted = new LongAdder();
+    private final LongAdder gamesFinished = new LongAdder();
+    private final LongAdder movesSent = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private volatile String lastError;
+
+    LoadGenerator(Map<String, String> options) {
+        url = options.getOrDefault("url", "ws://localhost:8080/5-in-a-row");
+        numPlayers = Integer.parseInt(options.getOrDefault("players", "1000"));
+        movesPerSecond = Double.parseDouble(options.getOrDefault("rate", "1000"));
+        seconds = Long.parseLong(options.getOrDefault("seconds", "60"));
+        variant = options.get("variant");
+        script = options.containsKey("script") ? Arrays.stream(options.get("script").split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[0];
+        reportSeconds = Long.parseLong(options.getOrDefault("report", "5"));
+        connectPermits = new Semaphore(Integer.parseInt(options.getOrDefault("connections", "100")));
+        serverStats = options.containsKey("metrics") ? new ServerStats(options.get("metrics"), options.get("pid")) : null;
+
+        final ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+        taskScheduler.setPoolSize(2);
+        taskScheduler.setDaemon(true);
+        taskScheduler.initialize();
+        stompClient = new WebSocketStompClient(new SockJsClient(asList(new WebSocketTransport(new StandardWebSocketClient()))));
+        stompClient.setMessageConverter(new CompositeMessageConverter(asList(new StringMessageConverter(),
+                new MappingJackson2MessageConverter())));
+        stompClient.setTaskScheduler(taskScheduler);
+    }
+
+    /**
+     * Connect the players, send moves at the target rate for the configured time, and report the results.
+     *
+     * @throws InterruptedException
+     *             if interrupted.
+     */
+    void run() throws InterruptedException {
+        final List<SimulatedPlayer> players = new ArrayList<>(numPlayers);
+        for (int i = 0; i < numPlayers; i++) {
+            final SimulatedPlayer player = new SimulatedPlayer(this, "load-" + i);
+            players.add(player);
+            connect(player);
+        }
+        System.out.printf("%7s %8s %8s %8s %9s %9s %9s %9s %9s %7s%s%n", "time", "sessions", "started", "finished", "moves/s", "p50 ms",
+                "p99 ms", "p99.9 ms", "max ms", "errors", serverStats == null ? "" : serverStats.header());
+
+        final long start = System.nanoTime();
+        final long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        long nextReport = start + TimeUnit.SECONDS.toNanos(reportSeconds);
+        long lastReport = start;
+        long lastMovesSent = 0;
+        long movesDue = 0;
+        for (long now = start; now < end; now = System.nanoTime()) {
+            // Send every move due by now, but build up no backlog while no player is ready to move.
+            final long due = (long) ((now - start) / 1e9 * movesPerSecond);
+            while (movesDue < due) {
+                final SimulatedPlayer player = readyPlayers.poll();
+                if (player == null) {
+                    movesDue = due;
+                    break;
+                }
+                player.move();
+                movesDue++;
+            }
+            if (now >= nextReport) {
+                final long sent = movesSent.sum();
+                final Histogram interval = latencies.getIntervalHistogram();
+                totalLatencies.add(interval);
+                report(now - start, (sent - lastMovesSent) / ((now - lastReport) / 1e9), interval);
+                lastMovesSent = sent;
+                lastReport = now;
+                nextReport += TimeUnit.SECONDS.toNanos(reportSeconds);
+            }
+            Thread.sleep(1);
+        }
+
+        // Wait for the replies to the last moves.
+        Thread.sleep(1000);
+        totalLatencies.add(latencies.getIntervalHistogram());
+        System.out.println("Whole run:");
+        report(System.nanoTime() - start, movesSent.sum() / ((System.nanoTime() - start) / 1e9), totalLatencies);
+        if (lastError != null) {
+            System.out.println("Last error: " + lastError);
+        }
+        reconnectExecutor.shutdownNow();
+        stompClient.stop();
+    }
+
+    private void report(long elapsedNanos, double moveRate, Histogram histogram) {
+        System.out.printf("%6.0fs %8d %8d %8d %9.0f %9.2f %9.2f %9.2f %9.2f %7d%s%n", elapsedNanos / 1e9, sessions.sum(), gamesStarted.sum(),
+                gamesFinished.sum(), moveRate, millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMaxValue()), errors.sum(),
+                serverStats == null ? "" : serverStats.sample());
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private void connect(SimulatedPlayer player) {
+        connectPermits.acquireUninterruptibly();
+        stompClient.connect(url, player).addCallback(session -> connectPermits.release(), exception -> {
+            connectPermits.release();
+            error(exception.toString());
+        });
+    }
+
+    void reconnect(SimulatedPlayer player) {
+        sessions.decrement();
+        reconnectExecutor.execute(() -> connect(player));
+    }
+
+    void connected() {
+        sessions.increment();
+    }
+
+    void ready(SimulatedPlayer player) {
+        readyPlayers.add(player);
+    }
+
+    void moveSent() {
+        movesSent.increment();
+    }
+
+    void recordLatency(long nanos) {
+        latencies.recordValue(Math.min(nanos, MAX_LATENCY_NANOS));
+    }
+
+    void gameStarted() {
+        gamesStarted.increment();
+    }
+
+    void gameFinished() {
+        gamesFinished.increment();
+    }
+
+    void error(String message) {
+        errors.increment();
+        lastError = message;
+    }
+
+    String getVariant() {
+        return variant;
+    }
+
+    int[] getScript() {
+        return script;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        final Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            final int equals = arg.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Expected key=value but was " + arg);
+            }
+            options.put(arg.substring(0, equals), arg.substring(equals + 1));
+        }
+        new LoadGenerator(options).run();
+    }
+}
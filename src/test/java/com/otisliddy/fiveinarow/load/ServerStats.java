@@ -0,0 +1,84 @@
+package com.otisliddy.fiveinarow.load;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Samples the memory and threads of the server under test for the {@link LoadGenerator}, to compare the footprint of the server's thread
+ * modes.
+ * <p>Heap and non-heap memory and live threads are read from the server's Actuator metrics. The stacks of platform threads are in neither,
+ * so if the server runs on the same Linux machine, its resident set size is also read from {@code /proc}.</p>
+ */
+class ServerStats {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(2);
+
+    private final String metricsUrl;
+    private final String pid;
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Construct an instance of {@code ServerStats}.
+     *
+     * @param metricsUrl
+     *            the URL of the server's Actuator metrics, e.g. {@code http://localhost:8080/actuator/metrics}.
+     * @param pid
+     *            the process ID of the server, or {@code null} if it is not on this machine.
+     */
+    ServerStats(String metricsUrl, String pid) {
+        this.metricsUrl = metricsUrl;
+        this.pid = pid;
+    }
+
+    String header() {
+        return String.format(" %8s %8s %8s %8s", "heap MB", "other MB", "RSS MB", "threads");
+    }
+
+    String sample() {
+        return String.format(" %8.0f %8.0f %8.0f %8.0f", metric("jvm.memory.used?tag=area:heap") / 1e6,
+                metric("jvm.memory.used?tag=area:nonheap") / 1e6, residentSetSize() / 1e6, metric("jvm.threads.live"));
+    }
+
+    private double metric(String nameAndTags) {
+        try {
+            final HttpRequest request = HttpRequest.newBuilder(URI.create(metricsUrl + "/" + nameAndTags)).timeout(TIMEOUT).build();
+            final HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                return Double.NaN;
+            }
+            final JsonNode measurements = objectMapper.readTree(response.body()).path("measurements");
+            return measurements.size() == 0 ? Double.NaN : measurements.get(0).path("value").asDouble();
+        } catch (IOException exception) {
+            return Double.NaN;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return Double.NaN;
+        }
+    }
+
+    private double residentSetSize() {
+        if (pid == null) {
+            return Double.NaN;
+        }
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc", pid, "status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Double.parseDouble(line.replaceAll("[^0-9]", "")) * 1024;
+                }
+            }
+        } catch (IOException exception) {
+            // Not on Linux, or not on the server's machine.
+        }
+        return Double.NaN;
+    }
+}
@@ -0,0 +1,211 @@
+package com.otisliddy.fiveinarow.load;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSession.Subscription;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+
+import com.otisliddy.fiveinarow.exception.IllegalMove;
+import com.otisliddy.fiveinarow.game.GameState;
+import com.otisliddy.fiveinarow.game.GameStatus;
+import com.otisliddy.fiveinarow.game.MoveEvent;
+import com.otisliddy.fiveinarow.game.Player;
+
+/**
+ * One player of the {@link LoadGenerator}, with its own STOMP session. The player starts a game, subscribes to it and says it is ready once
+ * its subscriptions are acknowledged, waits for its turn, and is then queued to move by the load generator at the target rate. Once its game
+ * is over, the player disconnects and connects again to start another.
+ */
+class SimulatedPlayer extends StompSessionHandlerAdapter {
+
+    private final LoadGenerator generator;
+    private final String name;
+    private volatile StompSession session;
+    private volatile int playerId;
+    private volatile int numRows;
+    private volatile int[] heights;
+    private volatile long sentNanos;
+    private final List<MoveEvent> earlyMoves = new ArrayList<>();
+    private int numMoves;
+
+    SimulatedPlayer(LoadGenerator generator, String name) {
+        this.generator = generator;
+        this.name = name;
+    }
+
+    @Override
+    public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+        this.session = session;
+        generator.connected();
+        session.subscribe("/user/queue/start", handler(Player.class, this::onStarted));
+        session.subscribe("/user/queue/illegal-move", handler(IllegalMove.class, illegalMove -> generator.error(illegalMove.getMessage())));
+        session.subscribe("/user/queue/start-rejected", handler(String.class, reason -> {
+            generator.error(reason);
+            restart();
+        }));
+        final StompHeaders headers = new StompHeaders();
+        headers.setDestination("/fiveinarow/start");
+        if (generator.getVariant() != null) {
+            headers.set("variant", generator.getVariant());
+        }
+        session.send(headers, name);
+    }
+
+    private synchronized void onStarted(Player player) {
+        playerId = player.getId();
+        numMoves = 0;
+        earlyMoves.clear();
+        final StompSession currentSession = session;
+        final AtomicInteger numPending = new AtomicInteger(3);
+        final Runnable receipted = () -> {
+            if (numPending.decrementAndGet() == 0) {
+                currentSession.send("/fiveinarow/ready", "");
+            }
+        };
+        subscribe(currentSession, "/topic/moves/" + player.getGameId(), handler(MoveEvent.class, this::onMove)).addReceiptTask(receipted);
+        subscribe(currentSession, "/topic/state/" + player.getGameId(), handler(GameState.class, this::onState)).addReceiptTask(receipted);
+        subscribe(currentSession, "/topic/disconnected/" + player.getGameId(), handler(String.class, reason -> restart()))
+                .addReceiptTask(receipted);
+    }
+
+    /**
+     * Subscribe to a destination, asking for a receipt once the subscription is registered.
+     */
+    private static Subscription subscribe(StompSession session, String destination, StompFrameHandler handler) {
+        final StompHeaders headers = new StompHeaders();
+        headers.setDestination(destination);
+        headers.setReceipt(destination);
+        return session.subscribe(headers, handler);
+    }
+
+    /**
+     * Take the board from the state of the game, which is broadcast as the game starts and may arrive after the first moves have.
+     */
+    private synchronized void onState(GameState gameState) {
+        final int[][] grid = gameState.getGrid();
+        final int[] columnHeights = new int[grid[0].length];
+        for (int[] row : grid) {
+            for (int column = 0; column < row.length; column++) {
+                if (row[column] != 0) {
+                    columnHeights[column]++;
+                }
+            }
+        }
+        numRows = grid.length;
+        heights = columnHeights;
+        if (playerId == 1) {
+            generator.gameStarted();
+        }
+        if (earlyMoves.isEmpty()) {
+            if (gameState.getStatus() == GameStatus.IN_PROGRESS && gameState.getPlayerToMove() != null
+                    && gameState.getPlayerToMove().getId() == playerId) {
+                generator.ready(this);
+            }
+            return;
+        }
+        final List<MoveEvent> moves = new ArrayList<>(earlyMoves);
+        earlyMoves.clear();
+        for (MoveEvent event : moves) {
+            if (heights != null && event.getSequence() > gameState.getMoveCount()) {
+                onMove(event);
+            }
+        }
+    }
+
+    private synchronized void onMove(MoveEvent event) {
+        if (heights == null) {
+            earlyMoves.add(event);
+            return;
+        }
+        heights[event.getColumn() - 1] = event.getRow() + 1;
+        if (event.getPlayerId() == playerId && sentNanos != 0) {
+            generator.recordLatency(System.nanoTime() - sentNanos);
+            sentNanos = 0;
+        }
+        if (event.getStatus() != GameStatus.IN_PROGRESS) {
+            if (playerId == 1) {
+                generator.gameFinished();
+            }
+            restart();
+        } else if (event.getPlayerToMove() != null && event.getPlayerToMove().getId() == playerId) {
+            generator.ready(this);
+        }
+    }
+
+    /**
+     * Make a move, in the next column of the script if there is one and it is not full, or otherwise in a random column that is not full.
+     */
+    void move() {
+        final StompSession currentSession = session;
+        final int[] columnHeights = heights;
+        if (currentSession == null || columnHeights == null) {
+            return;
+        }
+        final int[] script = generator.getScript();
+        int column = script.length == 0 ? 0 : script[numMoves % script.length];
+        numMoves++;
+        if (column < 1 || column > columnHeights.length || columnHeights[column - 1] >= numRows) {
+            int numOpen = 0;
+            for (int height : columnHeights) {
+                if (height < numRows) {
+                    numOpen++;
+                }
+            }
+            int choice = ThreadLocalRandom.current().nextInt(numOpen);
+            for (column = 1; columnHeights[column - 1] >= numRows || choice-- > 0; column++) {
+                // Skip to the chosen open column.
+            }
+        }
+        sentNanos = System.nanoTime();
+        currentSession.send("/fiveinarow/move", column);
+        generator.moveSent();
+    }
+
+    private void restart() {
+        final StompSession currentSession = session;
+        session = null;
+        heights = null;
+        sentNanos = 0;
+        if (currentSession != null) {
+            if (currentSession.isConnected()) {
+                currentSession.disconnect();
+            }
+            generator.reconnect(this);
+        }
+    }
+
+    @Override
+    public void handleException(StompSession session, StompCommand command, StompHeaders headers, byte[] payload, Throwable exception) {
+        generator.error(exception.toString());
+    }
+
+    @Override
+    public void handleTransportError(StompSession session, Throwable exception) {
+        generator.error(exception.toString());
+        restart();
+    }
+
+    private static <T> StompFrameHandler handler(Class<T> type, Consumer<T> consumer) {
+        return new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return type;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void handleFrame(StompHeaders headers, Object payload) {
+                consumer.accept((T) payload);
+            }
+        };
+    }
+}
@@ -0,0 +1,39 @@
+package com.otisliddy.fiveinarow.lobby;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    public void emptyHistogram() {
+        assertEquals(0, histogram.percentile(99));
+    }
+
+    @Test
+    public void bucketBoundsAreContiguous() {
+        for (int bucket = 0; bucket < LatencyHistogram.bucket(Long.MAX_VALUE); bucket++) {
+            final long lowerBound = LatencyHistogram.lowerBound(bucket);
+            assertEquals(bucket, LatencyHistogram.bucket(lowerBound));
+            assertEquals(bucket, LatencyHistogram.bucket(LatencyHistogram.lowerBound(bucket + 1) - 1));
+        }
+    }
+
+    @Test
+    public void percentilesWithinBucketPrecision() {
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        assertWithinPrecision(500_000, histogram.percentile(50));
+        assertWithinPrecision(990_000, histogram.percentile(99));
+        assertWithinPrecision(1_000_000, histogram.percentile(100));
+    }
+
+    private static void assertWithinPrecision(long expected, long actual) {
+        assertTrue("expected about " + expected + " but was " + actual, actual >= expected && actual <= expected * 1.25);
+    }
+}
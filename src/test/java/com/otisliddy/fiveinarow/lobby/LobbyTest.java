@@ -0,0 +1,114 @@
+package com.otisliddy.fiveinarow.lobby;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.otisliddy.fiveinarow.game.Game;
+import com.otisliddy.fiveinarow.game.GameRegistry;
+import com.otisliddy.fiveinarow.game.Player;
+import com.otisliddy.fiveinarow.game.Variant;
+
+public class LobbyTest {
+
+    private final GameRegistry registry = new GameRegistry();
+    private final Lobby lobby = new Lobby(registry);
+    private final MatchKey defaultKey = lobby.matchKey(new Variant(6, 9, 5), null);
+
+    @Test
+    public void pairsPlayersInArrivalOrder() {
+        final Player playerOne = lobby.join(defaultKey, "player 1", "session-1");
+        final Player playerTwo = lobby.join(defaultKey, "player 2", "session-2");
+        final Player playerThree = lobby.join(defaultKey, "player 3", "session-3");
+
+        assertEquals(1, playerOne.getId());
+        assertEquals(2, playerTwo.getId());
+        assertEquals(playerOne.getGameId(), playerTwo.getGameId());
+        assertEquals(1, playerThree.getId());
+        assertNotEquals(playerOne.getGameId(), playerThree.getGameId());
+        assertEquals(3, lobby.getJoins());
+        assertEquals(1, lobby.getPairings());
+        assertEquals(1, lobby.getWaiting());
+    }
+
+    @Test
+    public void onlyPairsPlayersWithSameVariant() {
+        final Player playerOne = lobby.join(defaultKey, "player 1", "session-1");
+        final Player playerTwo = lobby.join(lobby.matchKey(new Variant(3, 3, 3), null), "player 2", "session-2");
+
+        assertEquals(1, playerOne.getId());
+        assertEquals(1, playerTwo.getId());
+        assertEquals(3, registry.get(playerTwo.getGameId()).getState().getGrid().length);
+    }
+
+    @Test
+    public void onlyPairsPlayersInSameRatingBucket() {
+        final Variant variant = new Variant(6, 9, 5);
+        lobby.join(lobby.matchKey(variant, 1000), "player 1", "session-1");
+
+        assertEquals(1, lobby.join(lobby.matchKey(variant, 1500), "player 2", "session-2").getId());
+        assertEquals(1, lobby.join(lobby.matchKey(variant, null), "player 3", "session-3").getId());
+        assertEquals(2, lobby.join(lobby.matchKey(variant, 1050), "player 4", "session-4").getId());
+    }
+
+    @Test
+    public void clampsRatings() {
+        final Variant variant = new Variant(6, 9, 5);
+
+        assertEquals(lobby.matchKey(variant, 3000), lobby.matchKey(variant, Integer.MAX_VALUE));
+        assertEquals(lobby.matchKey(variant, 0), lobby.matchKey(variant, Integer.MIN_VALUE));
+    }
+
+    @Test
+    public void leaveRemovesWaitingPlayer() {
+        final Player playerOne = lobby.join(defaultKey, "player 1", "session-1");
+        final Game game = registry.get(playerOne.getGameId());
+
+        lobby.leave(game);
+
+        assertEquals(0, lobby.getWaiting());
+        assertEquals(1, lobby.join(defaultKey, "player 2", "session-2").getId());
+    }
+
+    @Test
+    public void doesNotPairIntoRemovedGame() {
+        final Player playerOne = lobby.join(defaultKey, "player 1", "session-1");
+        registry.remove(registry.get(playerOne.getGameId()));
+
+        final Player playerTwo = lobby.join(defaultKey, "player 2", "session-2");
+
+        assertEquals(1, playerTwo.getId());
+        assertNotEquals(playerOne.getGameId(), playerTwo.getGameId());
+        assertEquals(0, lobby.getPairings());
+    }
+
+    @Test
+    public void concurrentJoinsAreAllPaired() throws InterruptedException {
+        final int numThreads = 8;
+        final int joinsPerThread = 1000;
+        final ConcurrentHashMap<Long, AtomicInteger> playersPerGame = new ConcurrentHashMap<>();
+        final CountDownLatch done = new CountDownLatch(numThreads);
+        for (int thread = 0; thread < numThreads; thread++) {
+            final int threadId = thread;
+            new Thread(() -> {
+                for (int i = 0; i < joinsPerThread; i++) {
+                    final Player player = lobby.join(defaultKey, "player", threadId + "-" + i);
+                    playersPerGame.computeIfAbsent(player.getGameId(), id -> new AtomicInteger()).incrementAndGet();
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+
+        assertEquals(numThreads * joinsPerThread / 2, playersPerGame.size());
+        assertEquals(numThreads * joinsPerThread / 2, registry.size());
+        assertEquals(registry.size(), registry.getTrackedForExpiry());
+        playersPerGame.values().forEach(players -> assertEquals(2, players.get()));
+        assertEquals(0, lobby.getWaiting());
+        assertTrue(lobby.getPairingTimeP99Micros() >= lobby.getPairingTimeP50Micros());
+    }
+}
@@ -0,0 +1,122 @@
+package com.otisliddy.fiveinarow.metrics;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+
+import com.otisliddy.fiveinarow.ai.BotPlayer;
+import com.otisliddy.fiveinarow.game.GameRegistry;
+import com.otisliddy.fiveinarow.game.GameStatus;
+import com.otisliddy.fiveinarow.game.Variant;
+import com.otisliddy.fiveinarow.lobby.Lobby;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+public class GameMetricsTest {
+
+    private final GameRegistry gameRegistry = new GameRegistry();
+    private final Lobby lobby = new Lobby(gameRegistry);
+    private final BotPlayer botPlayer = new BotPlayer(1, 10, 1, 1);
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final GameMetrics metrics = new GameMetrics(registry, gameRegistry, lobby, botPlayer);
+
+    @After
+    public void tearDown() {
+        botPlayer.shutdown();
+    }
+
+    @Test
+    public void recordsMovesAndOutcomes() {
+        metrics.moveApplied(TimeUnit.MILLISECONDS.toNanos(2));
+        metrics.moveApplied(TimeUnit.MILLISECONDS.toNanos(4));
+        metrics.illegalMove();
+        metrics.moveThrottled();
+        metrics.gameFinished(GameStatus.OVER_WON);
+        metrics.gameFinished(GameStatus.OVER_DRAWN);
+        metrics.gameFinished(GameStatus.OVER_WON);
+        metrics.gameEvicted(true);
+        metrics.gameEvicted(false);
+        metrics.gameEvicted(true);
+
+        assertEquals(2, registry.get("inarow.move").timer().count());
+        assertEquals(6, registry.get("inarow.move").timer().totalTime(TimeUnit.MILLISECONDS), 0.001);
+        assertEquals(1, registry.get("inarow.moves.illegal").counter().count(), 0);
+        assertEquals(1, registry.get("inarow.moves.throttled").counter().count(), 0);
+        assertEquals(2, registry.get("inarow.games.finished").tag("outcome", "won").counter().count(), 0);
+        assertEquals(1, registry.get("inarow.games.finished").tag("outcome", "drawn").counter().count(), 0);
+        assertEquals(2, registry.get("inarow.games.evicted").tag("state", "finished").counter().count(), 0);
+        assertEquals(1, registry.get("inarow.games.evicted").tag("state", "idle").counter().count(), 0);
+    }
+
+    @Test
+    public void gaugesReadGamesAndLobby() {
+        final Variant variant = new Variant(6, 9, 5);
+        lobby.join(lobby.matchKey(variant, null), "player 1", "session-1");
+        lobby.join(lobby.matchKey(variant, null), "player 2", "session-2");
+        lobby.join(lobby.matchKey(variant, null), "player 3", "session-3");
+
+        assertEquals(2, registry.get("inarow.games.active").gauge().value(), 0);
+        assertTrue(gameRegistry.getEstimatedBytes() > 0);
+        assertEquals(gameRegistry.getEstimatedBytes(), registry.get("inarow.games.memory").gauge().value(), 0);
+        assertEquals(1, registry.get("inarow.lobby.waiting").gauge().value(), 0);
+        assertEquals(3, registry.get("inarow.lobby.joins").functionCounter().count(), 0);
+        assertEquals(1, registry.get("inarow.lobby.pairings").functionCounter().count(), 0);
+    }
+
+    @Test
+    public void countsBroadcastsAndDeliveriesByTopic() {
+        metrics.broadcastInterceptor().preSend(message("/topic/moves/1"), null);
+        metrics.deliveryInterceptor().preSend(message("/topic/moves/1"), null);
+        metrics.deliveryInterceptor().preSend(message("/topic/moves/1"), null);
+        metrics.deliveryInterceptor().preSend(message("/topic/replay/1"), null);
+        metrics.deliveryInterceptor().preSend(message("/user/queue/start"), null);
+
+        assertEquals(1, registry.get("inarow.broadcasts").tag("topic", "moves").counter().count(), 0);
+        assertEquals(2, registry.get("inarow.broadcast.deliveries").tag("topic", "moves").counter().count(), 0);
+        assertEquals(1, registry.get("inarow.broadcast.deliveries").tag("topic", "other").counter().count(), 0);
+        assertEquals(0, registry.get("inarow.broadcast.deliveries").tag("topic", "state").counter().count(), 0);
+    }
+
+    @Test
+    public void topicIndex() {
+        assertEquals(0, GameMetrics.topicIndex("/topic/moves/12"));
+        assertEquals(1, GameMetrics.topicIndex("/topic/state/12"));
+        assertEquals(2, GameMetrics.topicIndex("/topic/disconnected/12"));
+        assertEquals(3, GameMetrics.topicIndex("/topic/movesx/12"));
+        assertEquals(3, GameMetrics.topicIndex("/topic/moves"));
+        assertEquals(-1, GameMetrics.topicIndex("/queue/state"));
+        assertEquals(-1, GameMetrics.topicIndex(null));
+    }
+
+    @Test
+    public void writesPrometheusFile() throws Exception {
+        final GameMetrics prometheusMetrics = new GameMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), gameRegistry, lobby,
+                botPlayer);
+        final Path file = Files.createTempDirectory("metrics").resolve("inarow.prom");
+        prometheusMetrics.illegalMove();
+
+        prometheusMetrics.write(file);
+
+        assertTrue(new String(Files.readAllBytes(file), StandardCharsets.UTF_8).contains("inarow_moves_illegal"));
+        assertFalse(Files.exists(file.resolveSibling("inarow.prom.tmp")));
+    }
+
+    private static Message<byte[]> message(String destination) {
+        final SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
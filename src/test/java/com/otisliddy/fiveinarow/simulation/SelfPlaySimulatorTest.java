@@ -0,0 +1,85 @@
+package com.otisliddy.fiveinarow.simulation;
+
+import static org.junit.Assert.*;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+import com.otisliddy.fiveinarow.game.Bitboard;
+
+public class SelfPlaySimulatorTest {
+
+    @Test
+    public void playsEveryGameOnEveryThread() throws InterruptedException {
+        final SelfPlaySimulator simulator = new SelfPlaySimulator(6, 9, 5, RandomPolicy::new, RandomPolicy::new, 0, 1);
+        final SimulationStats stats = new SimulationStats();
+
+        simulator.run(1000, 4, stats);
+
+        assertEquals(1000, stats.getGames());
+        assertEquals(1000, stats.getFirstPlayerWins() + stats.getSecondPlayerWins() + stats.getDraws());
+        assertTrue(stats.getMoves() >= 1000 * 9);
+    }
+
+    @Test
+    public void sameSeedPlaysSameGamesOnOneThread() throws InterruptedException {
+        final SimulationStats first = new SimulationStats();
+        final SimulationStats second = new SimulationStats();
+
+        new SelfPlaySimulator(4, 5, 4, GreedyPolicy::new, RandomPolicy::new, 0, 7).run(500, 1, first);
+        new SelfPlaySimulator(4, 5, 4, GreedyPolicy::new, RandomPolicy::new, 0, 7).run(500, 1, second);
+
+        assertEquals(first.getFirstPlayerWins(), second.getFirstPlayerWins());
+        assertEquals(first.getMoves(), second.getMoves());
+    }
+
+    @Test
+    public void greedyBeatsRandom() throws InterruptedException {
+        final SimulationStats stats = new SimulationStats();
+
+        new SelfPlaySimulator(6, 9, 5, GreedyPolicy::new, RandomPolicy::new, 0, 3).run(2000, 2, stats);
+
+        assertTrue(stats.toString(), stats.getFirstPlayerWins() > 3 * stats.getSecondPlayerWins());
+    }
+
+    @Test
+    public void searchPlaysCompleteGames() throws InterruptedException {
+        final SimulationStats stats = new SimulationStats();
+
+        new SelfPlaySimulator(4, 4, 3, SelfPlaySimulator.policy("search:5"), GreedyPolicy::new, 0, 1).run(3, 1, stats);
+
+        assertEquals(3, stats.getFirstPlayerWins());
+    }
+
+    @Test
+    public void greedyBlocksOpponent() {
+        final Bitboard board = new Bitboard(6, 9);
+        board.drop(3, 1);
+        board.drop(3, 1);
+        board.drop(3, 1);
+        board.drop(3, 1);
+        board.drop(7, 0);
+
+        assertEquals(3, new GreedyPolicy().chooseColumn(board, 5, 0, new SplittableRandom(1)));
+    }
+
+    @Test
+    public void randomNeverChoosesFullColumn() {
+        final Bitboard board = new Bitboard(2, 3);
+        board.drop(0, 0);
+        board.drop(0, 1);
+        board.drop(2, 0);
+        board.drop(2, 1);
+        final SplittableRandom random = new SplittableRandom(5);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(1, RandomPolicy.randomColumn(board, random));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownPolicy() {
+        SelfPlaySimulator.policy("clever");
+    }
+}
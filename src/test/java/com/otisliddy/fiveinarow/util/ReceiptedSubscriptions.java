@@ -0,0 +1,39 @@
+package com.otisliddy.fiveinarow.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+
+/**
+ * Subscribes STOMP sessions to destinations and waits for the server to acknowledge the subscriptions, as clients must before telling the
+ * server they are ready for their game to start. The session's client must have a task scheduler to track receipts with.
+ */
+public final class ReceiptedSubscriptions {
+
+    private static final long RECEIPT_TIMEOUT_SECONDS = 5;
+
+    private ReceiptedSubscriptions() {
+    }
+
+    /**
+     * Subscribe to a destination, and wait until the subscription is acknowledged with a receipt.
+     *
+     * @param session
+     *            the session to subscribe.
+     * @param destination
+     *            the destination to subscribe to.
+     * @param handler
+     *            the handler of the messages sent to the destination.
+     */
+    public static void subscribe(StompSession session, String destination, StompFrameHandler handler) {
+        final StompHeaders headers = new StompHeaders();
+        headers.setDestination(destination);
+        headers.setReceipt(destination);
+        final CompletableFuture<Void> receipt = new CompletableFuture<>();
+        session.subscribe(headers, handler).addReceiptTask(() -> receipt.complete(null));
+        receipt.orTimeout(RECEIPT_TIMEOUT_SECONDS, TimeUnit.SECONDS).join();
+    }
+}